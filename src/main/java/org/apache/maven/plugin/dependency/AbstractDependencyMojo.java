@@ -20,8 +20,15 @@ package org.apache.maven.plugin.dependency;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
@@ -31,14 +38,25 @@ import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.utils.DependencySilentLog;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
+import org.apache.maven.plugin.dependency.utils.FileCopier;
+import org.apache.maven.plugin.dependency.utils.archives.EntryManifest;
+import org.apache.maven.plugin.dependency.utils.archives.IncludeExcludeMatcher;
+import org.apache.maven.plugin.dependency.utils.archives.TarExtractor;
+import org.apache.maven.plugin.dependency.utils.archives.UnpackCache;
+import org.apache.maven.plugin.dependency.utils.archives.ZipArchiveEntry;
+import org.apache.maven.plugin.dependency.utils.archives.ZipCentralDirectory;
+import org.apache.maven.plugin.dependency.utils.archives.ZipExtractor;
+import org.apache.maven.plugin.dependency.utils.markers.MarkerIndex;
+import org.apache.maven.plugin.dependency.utils.markers.MarkerStore;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
-import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
-import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
 import org.codehaus.plexus.util.ReflectionUtils;
 import org.codehaus.plexus.util.StringUtils;
 
@@ -50,6 +68,10 @@ import org.codehaus.plexus.util.StringUtils;
 public abstract class AbstractDependencyMojo
     extends AbstractMojo
 {
+    private static final String PLEXUS_ENGINE = "plexus";
+
+    private static final String NATIVE_ENGINE = "native";
+
     /**
      * Used to look up Artifacts in the remote repository.
      *
@@ -144,6 +166,174 @@ public abstract class AbstractDependencyMojo
      */
     protected boolean outputAbsoluteArtifactFilename;
 
+    /**
+     * How copied artifacts are placed in their destination: <code>copy</code>,
+     * <code>hardlink</code>, <code>reflink</code> or <code>symlink</code>. The link
+     * modes fall back to a plain copy when the file system can't create the link.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.copyMode}" default-value="copy"
+     */
+    protected String copyMode = FileCopier.COPY;
+
+    /**
+     * Number of threads extracting a single zip or tar archive. With more than one thread the
+     * central directory of a zip archive (zip, jar, war, ear...) is read once and the entries
+     * are spread across workers, each reading the archive through its own channel. Zip
+     * archives unpacked with includes or excludes are extracted this way too, and skipped
+     * without reading their entries when none is included. Tar archives (tar, tar.gz, tgz,
+     * tar.bz2, tbz2, tar.zst, tzst) are decompressed, parsed and written by a pipeline of
+     * threads, and gzip compressed ones made of BGZF blocks are inflated in parallel. Other
+     * archives are always extracted by the plexus unarchiver.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.extractThreads}" default-value="1"
+     */
+    protected int extractThreads = 1;
+
+    /**
+     * The engine unpacking zip and tar archives: <code>plexus</code> for the plexus
+     * unarchiver, or <code>native</code> for the built-in extractors. For zip archives (zip,
+     * jar, war, ear...) it reads the central directory, including Zip64 ones, and extracts
+     * the entries by random access with pooled buffers; for tar archives see
+     * <code>extractThreads</code>. Other archives are always unpacked by the plexus
+     * unarchiver. When no engine is set, zip archives are unpacked by the native engine when
+     * <code>extractThreads</code>, includes or excludes are set, tar archives when
+     * <code>extractThreads</code> is; <code>plexus</code> keeps them on the plexus unarchiver
+     * in any case. Zstandard compressed files (tar.zst, tzst and other zst files) are always
+     * unpacked by the native engine, the plexus unarchiver doesn't support them; a zst file that
+     * is not a tar archive is decompressed to a file named without the <code>.zst</code> extension.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackEngine}"
+     */
+    protected String unpackEngine;
+
+    /**
+     * Whether unpacking a zip archive again into the same directory only rewrites the
+     * entries that changed and deletes the files of the entries that are gone. The name,
+     * CRC, size and path of every unpacked entry are kept in an entry manifest in the
+     * markers directory. Only used when the archive is unpacked straight into its output
+     * directory, not with <code>stageOutput</code> or <code>unpackThreads</code>.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.incrementalUnpack}" default-value="false"
+     */
+    protected boolean incrementalUnpack;
+
+    /**
+     * Whether unpacked archives are kept in a cache shared by all modules and builds using
+     * the same cache directory. Each archive is extracted once per set of includes and
+     * excludes, later unpacks copy or link the cached files into their destination.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.useUnpackCache}" default-value="false"
+     */
+    protected boolean useUnpackCache;
+
+    /**
+     * Directory of the unpack cache. Defaults to
+     * <code>.cache/maven-dependency-plugin/unpack</code> in the local repository.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackCacheDirectory}"
+     */
+    protected File unpackCacheDirectory;
+
+    /**
+     * Size of the unpack cache in megabytes. When it grows beyond, the least recently used
+     * archives are removed from it.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackCacheSize}" default-value="1024"
+     */
+    protected long unpackCacheSize = 1024;
+
+    /**
+     * How files are placed from the unpack cache into the destination: <code>copy</code> or
+     * <code>hardlink</code>. Hard links share the file with the cache, so unpacked files
+     * must then never be modified in place.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackCacheMode}" default-value="copy"
+     */
+    protected String unpackCacheMode = FileCopier.COPY;
+
+    /**
+     * Keep the markers of the goal in a single file of the markers directory,
+     * <code>markers.db</code>, read once and written back when the goal ends, instead of one
+     * empty file per artifact. Markers left as files by builds without it are not read, the
+     * artifacts are processed once more when it is turned on.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.useMarkerStore}" default-value="false"
+     */
+    protected boolean useMarkerStore;
+
+    /**
+     * Lock the directories the goal writes to, output and markers, for the time of the goal,
+     * so that builds running in parallel, as threads (<code>mvn -T</code>) or as processes,
+     * take their turn at a shared directory instead of writing to it at the same time. The
+     * lock of a directory is a file of <code>locksDirectory</code>. When the file system can't
+     * lock files the goal goes on without lock, when another build still holds a directory
+     * after <code>directoryLockTimeout</code> the goal fails.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.useDirectoryLocks}" default-value="true"
+     */
+    protected boolean useDirectoryLocks = true;
+
+    /**
+     * Directory to store the lock files of <code>useDirectoryLocks</code>, one per locked
+     * directory, named after its path. Builds only keep each other out of a directory when they
+     * use the same locks directory: the default is shared by every module and every build of
+     * the user, builds of different users writing to a shared directory must set it to a
+     * directory they share.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.locksDirectory}"
+     *            default-value="${user.home}/.m2/dependency-maven-plugin-locks"
+     */
+    protected File locksDirectory;
+
+    /**
+     * The time, in seconds, to wait for another build to release a directory of
+     * <code>useDirectoryLocks</code> before failing.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.directoryLockTimeout}" default-value="600"
+     */
+    protected int directoryLockTimeout = 600;
+
+    /**
+     * The marker stores read by this goal, by markers directory.
+     */
+    private final Map<File, MarkerStore> markerStores = new HashMap<File, MarkerStore>();
+
+    /**
+     * The marker files listed by the last {@link #preloadMarkers()}.
+     */
+    private MarkerIndex markerIndex;
+
+    private FileCopier fileCopier;
+
+    /**
+     * Compiled include/exclude selectors, by includes and excludes.
+     */
+    private final Map<String, FileSelector[]> fileSelectors = new HashMap<String, FileSelector[]>();
+
     private Log log;
 
     /**
@@ -163,6 +353,181 @@ public abstract class AbstractDependencyMojo
         return this.log;
     }
 
+    /**
+     * @return the directory the markers of the goal are kept in, <code>null</code> if it has none.
+     */
+    protected File getMarkersDirectory()
+    {
+        return null;
+    }
+
+    /**
+     * A store that can't be read is replaced by an empty one, the artifacts are processed again.
+     *
+     * @return the store of the markers of {@link #getMarkersDirectory()}, <code>null</code> unless
+     *         <code>useMarkerStore</code> is set.
+     */
+    protected synchronized MarkerStore getMarkerStore()
+    {
+        File markersDirectory = getMarkersDirectory();
+        if ( !useMarkerStore || markersDirectory == null )
+        {
+            return null;
+        }
+        MarkerStore markerStore = markerStores.get( markersDirectory );
+        if ( markerStore == null )
+        {
+            markerStore = new MarkerStore( markersDirectory );
+            markerStores.put( markersDirectory, markerStore );
+            try
+            {
+                markerStore.load();
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Unable to read the markers of " + markersDirectory + ", ignoring them: "
+                    + e.getMessage() );
+            }
+        }
+        return markerStore;
+    }
+
+    /**
+     * Locks directories the goal writes to, if <code>useDirectoryLocks</code> and
+     * <code>locksDirectory</code> are set, waiting for the builds writing to them.
+     *
+     * @param directories the directories, <code>null</code> elements are skipped.
+     * @return the lock to give to {@link #unlockDirectories(DirectoryLock)}, <code>null</code> if nothing is locked.
+     * @throws MojoExecutionException if another build still holds a directory after
+     *             <code>directoryLockTimeout</code>.
+     */
+    protected DirectoryLock lockDirectories( File... directories )
+        throws MojoExecutionException
+    {
+        return lockDirectories( Arrays.asList( directories ) );
+    }
+
+    /**
+     * Locks directories the goal writes to, if <code>useDirectoryLocks</code> and
+     * <code>locksDirectory</code> are set, waiting for the builds writing to them.
+     *
+     * @param directories the directories, <code>null</code> elements are skipped.
+     * @return the lock to give to {@link #unlockDirectories(DirectoryLock)}, <code>null</code> if nothing is locked.
+     * @throws MojoExecutionException if another build still holds a directory after
+     *             <code>directoryLockTimeout</code>.
+     */
+    protected DirectoryLock lockDirectories( Collection<File> directories )
+        throws MojoExecutionException
+    {
+        if ( !useDirectoryLocks || locksDirectory == null )
+        {
+            return null;
+        }
+        List<File> locked = new ArrayList<File>( directories.size() );
+        for ( File directory : directories )
+        {
+            if ( directory != null )
+            {
+                locked.add( directory );
+            }
+        }
+        try
+        {
+            return DirectoryLock.lock( locked, locksDirectory, directoryLockTimeout * 1000L, getLog() );
+        }
+        catch ( DirectoryLock.LockTimeoutException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        catch ( InterruptedIOException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Unable to lock " + locked + ", going on without lock: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * @param lock the lock returned by {@link #lockDirectories(File...)}, may be <code>null</code>.
+     */
+    protected void unlockDirectories( DirectoryLock lock )
+    {
+        if ( lock == null )
+        {
+            return;
+        }
+        try
+        {
+            lock.release();
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Unable to release the lock of the output directories: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Lists the marker files of {@link #getMarkersDirectory()} once, for the handlers to look the
+     * markers up in memory. Called before the markers are checked, so that each execution sees the
+     * markers as they are. A directory that can't be listed is looked up file by file.
+     */
+    protected synchronized void preloadMarkers()
+    {
+        File markersDirectory = getMarkersDirectory();
+        markerIndex = null;
+        if ( useMarkerStore || markersDirectory == null )
+        {
+            return;
+        }
+        MarkerIndex index = new MarkerIndex( markersDirectory );
+        try
+        {
+            index.load();
+            markerIndex = index;
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Unable to list the markers of " + markersDirectory + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return the marker files listed by {@link #preloadMarkers()}, <code>null</code> if they were not listed
+     *         or the markers directory changed since.
+     */
+    protected synchronized MarkerIndex getMarkerIndex()
+    {
+        if ( markerIndex != null && !markerIndex.getDirectory().equals( getMarkersDirectory() ) )
+        {
+            return null;
+        }
+        return markerIndex;
+    }
+
+    /**
+     * Writes the markers set or cleared since the stores were read, if the markers are kept in stores.
+     *
+     * @throws MojoExecutionException if the markers can't be written.
+     */
+    protected synchronized void saveMarkerStores()
+        throws MojoExecutionException
+    {
+        for ( MarkerStore markerStore : markerStores.values() )
+        {
+            try
+            {
+                markerStore.save();
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Unable to write the markers to " + markerStore.getFile(), e );
+            }
+        }
+    }
+
     /**
      * @return Returns the archiverManager.
      */
@@ -182,15 +547,42 @@ public abstract class AbstractDependencyMojo
      */
     protected void copyFile( File artifact, File destFile )
         throws MojoExecutionException
+    {
+        logCopy( artifact, destFile );
+        copyFileContents( artifact, destFile );
+    }
+
+    /**
+     * Logs the copy of a file the same way {@link #copyFile(File, File)} does.
+     *
+     * @param artifact represents the file to copy.
+     * @param destFile file name of destination file.
+     */
+    protected void logCopy( File artifact, File destFile )
     {
         Log theLog = this.getLog();
+        theLog.info( "Copying "
+            + ( this.outputAbsoluteArtifactFilename ? artifact.getAbsolutePath() : artifact.getName() ) + " to "
+            + destFile );
+    }
+
+    /**
+     * Does the actual copy of the file without logging. This method only reads
+     * the mojo configuration and may be called from worker threads.
+     *
+     * @param artifact represents the file to copy.
+     * @param destFile file name of destination file.
+     *
+     * @throws MojoExecutionException with a message if an
+     *             error occurs.
+     */
+    protected void copyFileContents( File artifact, File destFile )
+        throws MojoExecutionException
+    {
+        FileCopier copier = getFileCopier();
         try
         {
-            theLog.info( "Copying "
-                + ( this.outputAbsoluteArtifactFilename ? artifact.getAbsolutePath() : artifact.getName() ) + " to "
-                + destFile );
-            FileUtils.copyFile( artifact, destFile );
-
+            copier.copy( artifact, destFile );
         }
         catch ( Exception e )
         {
@@ -198,6 +590,28 @@ public abstract class AbstractDependencyMojo
         }
     }
 
+    /**
+     * @return the copier for the configured <code>copyMode</code>.
+     * @throws MojoExecutionException if the copy mode is not supported.
+     */
+    protected synchronized FileCopier getFileCopier()
+        throws MojoExecutionException
+    {
+        String mode = StringUtils.isEmpty( copyMode ) ? FileCopier.COPY : copyMode;
+        if ( fileCopier == null || !fileCopier.getMode().equals( mode ) )
+        {
+            try
+            {
+                fileCopier = new FileCopier( mode );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                throw new MojoExecutionException( e.getMessage(), e );
+            }
+        }
+        return fileCopier;
+    }
+
     protected void unpack( File file, File location )
         throws MojoExecutionException
     {
@@ -217,37 +631,233 @@ public abstract class AbstractDependencyMojo
     protected void unpack( File file, File location, String includes, String excludes )
         throws MojoExecutionException
     {
+        logUnpack( file, location, includes, excludes );
+
+        if ( incrementalUnpack && !useUnpackCache && getMarkersDirectory() != null && ZipCentralDirectory.isZipFile( file ) )
+        {
+            extractIncrementally( file, location, includes, excludes );
+        }
+        else
+        {
+            extract( file, location, includes, excludes );
+        }
+    }
+
+    /**
+     * Unpacks the archive file into several locations, each with its own includes and
+     * excludes. A zip file is read and inflated once, every entry being written to each
+     * location that includes it. Other archives, zip files going through the unpack cache
+     * or unpacked incrementally, and zip files that would not be unpacked by the native
+     * engine into every location, are unpacked once per location.
+     *
+     * @param file File to be unpacked.
+     * @param locations Locations where to put the unpacked files.
+     * @param includes Comma separated list of file patterns to include, for each location.
+     * @param excludes Comma separated list of file patterns to exclude, for each location.
+     */
+    protected void unpack( File file, File[] locations, String[] includes, String[] excludes )
+        throws MojoExecutionException
+    {
+        if ( locations.length == 1 || useUnpackCache || incrementalUnpack || !useNativeEngine( includes, excludes )
+            || !ZipCentralDirectory.isZipFile( file ) )
+        {
+            for ( int i = 0; i < locations.length; i++ )
+            {
+                unpack( file, locations[i], includes[i], excludes[i] );
+            }
+            return;
+        }
+
+        List<ZipExtractor.Destination> destinations = new ArrayList<ZipExtractor.Destination>( locations.length );
+        for ( int i = 0; i < locations.length; i++ )
+        {
+            logUnpack( file, locations[i], includes[i], excludes[i] );
+            locations[i].mkdirs();
+            destinations.add( new ZipExtractor.Destination( locations[i], getFileSelectors( includes[i],
+                                                                                           excludes[i] ) ) );
+        }
         try
         {
-            logUnpack( file, location, includes, excludes );
+            new ZipExtractor( extractThreads ).extract( file, ZipCentralDirectory.read( file ), destinations );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error unpacking file: " + file + "\r\n" + e.toString(), e );
+        }
+    }
 
-            location.mkdirs();
+    /**
+     * Extracts the entries of a zip file that changed since it was last unpacked into the same location.
+     *
+     * @see #incrementalUnpack
+     */
+    private void extractIncrementally( File file, File location, String includes, String excludes )
+        throws MojoExecutionException
+    {
+        EntryManifest manifest =
+            new EntryManifest( EntryManifest.getManifestFile( getMarkersDirectory(), file, location, includes,
+                                                              excludes ) );
+        try
+        {
+            manifest.load();
+            // an unpack that fails half way leaves no manifest, the next one extracts everything
+            manifest.delete();
 
-            UnArchiver unArchiver;
+            location.mkdirs();
+            ZipExtractor extractor = new ZipExtractor( extractThreads );
+            extractor.setFileSelectors( getFileSelectors( includes, excludes ) );
+            extractor.setEntryManifest( manifest );
+            extractor.extract( file, location );
 
-            unArchiver = archiverManager.getUnArchiver( file );
+            manifest.save();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error unpacking file: " + file + " to: " + location + "\r\n"
+                + e.toString(), e );
+        }
+    }
 
-            unArchiver.setSourceFile( file );
+    /**
+     * Extracts the archive file without logging it.
+     *
+     * @see #unpack(File, File, String, String)
+     */
+    protected void extract( File file, File location, String includes, String excludes )
+        throws MojoExecutionException
+    {
+        if ( useUnpackCache )
+        {
+            extractFromCache( file, location, includes, excludes );
+        }
+        else
+        {
+            extractArchive( file, location, includes, excludes );
+        }
+    }
 
-            unArchiver.setDestDirectory( location );
+    /**
+     * Places the cached tree of the archive file into the location, extracting it into the
+     * cache first if it is not there yet.
+     *
+     * @see #useUnpackCache
+     */
+    private void extractFromCache( File file, File location, String includes, String excludes )
+        throws MojoExecutionException
+    {
+        if ( !FileCopier.COPY.equals( unpackCacheMode ) && !FileCopier.HARDLINK.equals( unpackCacheMode ) )
+        {
+            throw new MojoExecutionException( "Unknown unpackCacheMode: " + unpackCacheMode );
+        }
 
-            if ( StringUtils.isNotEmpty( excludes ) || StringUtils.isNotEmpty( includes ) )
+        UnpackCache cache = getUnpackCache();
+        File tree;
+        try
+        {
+            String key = UnpackCache.getKey( DigestUtil.getArtifactDigest( file ), includes, excludes );
+            tree = cache.getTree( key );
+            if ( tree == null )
             {
-                // Create the selectors that will filter
-                // based on include/exclude parameters
-                // MDEP-47
-                IncludeExcludeFileSelector[] selectors = new IncludeExcludeFileSelector[] { new IncludeExcludeFileSelector() };
-
-                if ( StringUtils.isNotEmpty( excludes ) )
+                getLog().debug( "Adding " + file + " to the unpack cache" );
+                File staging = cache.createStagingDirectory();
+                try
+                {
+                    extractArchive( file, staging, includes, excludes );
+                    tree = cache.add( key, staging );
+                }
+                finally
                 {
-                    selectors[0].setExcludes( excludes.split( "," ) );
+                    cache.discard( staging );
                 }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error using the unpack cache " + cache.getDirectory() + " for: " + file
+                + "\r\n" + e.toString(), e );
+        }
+
+        try
+        {
+            UnpackCache.materialize( tree, location, FileCopier.HARDLINK.equals( unpackCacheMode ) );
+        }
+        catch ( IOException e )
+        {
+            // evicted by another build in the meantime
+            getLog().debug( "Unable to use the unpack cache for " + file + ", extracting it: " + e.getMessage() );
+            extractArchive( file, location, includes, excludes );
+        }
+    }
+
+    private UnpackCache getUnpackCache()
+    {
+        File directory = unpackCacheDirectory;
+        if ( directory == null )
+        {
+            directory = new File( getLocal().getBasedir(), ".cache/maven-dependency-plugin/unpack" );
+        }
+        return new UnpackCache( directory, unpackCacheSize * 1024 * 1024 );
+    }
 
-                if ( StringUtils.isNotEmpty( includes ) )
+    /**
+     * Extracts the archive file with the plexus unarchiver, the {@link ZipExtractor} or the {@link TarExtractor}.
+     */
+    private void extractArchive( File file, File location, String includes, String excludes )
+        throws MojoExecutionException
+    {
+        try
+        {
+            location.mkdirs();
+
+            FileSelector[] selectors = getFileSelectors( includes, excludes );
+
+            // with includes/excludes, zip files are only opened by their central directory: those
+            // without a matching entry are skipped, the others extracted by random access
+            if ( useNativeEngine( selectors ) && ZipCentralDirectory.isZipFile( file ) )
+            {
+                ZipExtractor extractor = new ZipExtractor( extractThreads );
+                extractor.setFileSelectors( selectors );
+                List<ZipArchiveEntry> entries = ZipCentralDirectory.read( file );
+                if ( extractor.hasSelectedEntries( entries ) )
                 {
-                    selectors[0].setIncludes( includes.split( "," ) );
+                    extractor.extract( file, entries, location );
                 }
+                else
+                {
+                    getLog().debug( "No entry of " + file + " is included, skipping it" );
+                }
+                return;
+            }
+            boolean zstd = TarExtractor.isZstdFile( file );
+            if ( ( zstd || useNativeEngine( null ) ) && TarExtractor.isTarFile( file ) )
+            {
+                TarExtractor extractor = new TarExtractor( extractThreads );
+                extractor.setFileSelectors( selectors );
+                extractor.extract( file, location );
+                return;
+            }
+            if ( zstd )
+            {
+                TarExtractor extractor = new TarExtractor( extractThreads );
+                extractor.setFileSelectors( selectors );
+                extractor.decompress( file, location );
+                return;
+            }
+
+            UnArchiver unArchiver;
+
+            // the container is not meant to be used from several threads at once
+            synchronized ( archiverManager )
+            {
+                unArchiver = archiverManager.getUnArchiver( file );
+            }
+
+            unArchiver.setSourceFile( file );
+
+            unArchiver.setDestDirectory( location );
 
+            if ( selectors != null )
+            {
                 unArchiver.setFileSelectors( selectors );
             }
             if ( this.silent )
@@ -267,6 +877,59 @@ public abstract class AbstractDependencyMojo
             throw new MojoExecutionException( "Error unpacking file: " + file + " to: " + location + "\r\n"
                 + e.toString(), e );
         }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error unpacking file: " + file + " to: " + location + "\r\n"
+                + e.toString(), e );
+        }
+    }
+
+    private boolean useNativeEngine( String[] includes, String[] excludes )
+        throws MojoExecutionException
+    {
+        for ( int i = 0; i < includes.length; i++ )
+        {
+            if ( !useNativeEngine( getFileSelectors( includes[i], excludes[i] ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean useNativeEngine( FileSelector[] selectors )
+        throws MojoExecutionException
+    {
+        if ( NATIVE_ENGINE.equals( unpackEngine ) )
+        {
+            return true;
+        }
+        if ( PLEXUS_ENGINE.equals( unpackEngine ) )
+        {
+            return false;
+        }
+        if ( unpackEngine != null )
+        {
+            throw new MojoExecutionException( "Unknown unpackEngine: " + unpackEngine );
+        }
+        return extractThreads > 1 || selectors != null;
+    }
+
+    /**
+     * Creates the selectors that will filter based on include/exclude parameters (MDEP-47).
+     * The patterns are compiled once per distinct pair for the whole execution.
+     *
+     * @return the selectors or <code>null</code> if everything is included.
+     */
+    protected synchronized FileSelector[] getFileSelectors( String includes, String excludes )
+    {
+        String key = StringUtils.defaultString( includes ) + '\u0000' + StringUtils.defaultString( excludes );
+        if ( !fileSelectors.containsKey( key ) )
+        {
+            IncludeExcludeMatcher matcher = IncludeExcludeMatcher.compile( includes, excludes );
+            fileSelectors.put( key, matcher == null ? null : new FileSelector[] { matcher } );
+        }
+        return fileSelectors.get( key );
     }
 
     private void silenceUnarchiver( UnArchiver unArchiver )
@@ -398,7 +1061,7 @@ public abstract class AbstractDependencyMojo
         this.artifactMetadataSource = theArtifactMetadataSource;
     }
 
-    private void logUnpack( File file, File location, String includes, String excludes )
+    protected void logUnpack( File file, File location, String includes, String excludes )
     {
         if ( !getLog().isInfoEnabled() )
         {
@@ -20,6 +20,10 @@ package org.apache.maven.plugin.dependency;
  */
 
 import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.utils.StagedOutputDirectory;
 
 /**
  * Abstract Parent class used by mojos that get Artifact information from the
@@ -111,6 +115,98 @@ public abstract class AbstractFromDependenciesMojo
      */
     protected boolean failOnMissingClassifierArtifact = true;
 
+    /**
+     * Write the output into a staging directory next to <code>outputDirectory</code> and
+     * swap it in only when the goal succeeds, so a failed build never leaves a partial
+     * output behind. The files of the previous output are hard linked into the staging
+     * directory, unchanged files are not copied again.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.stageOutput}" default-value="false"
+     */
+    protected boolean stageOutput;
+
+    /**
+     * The staged output between {@link #beginStaging()} and
+     * {@link #endStaging(StagedOutputDirectory, boolean)}.
+     */
+    private StagedOutputDirectory stagedOutput;
+
+    /**
+     * Starts writing into a staging directory if <code>stageOutput</code> is set. Until
+     * {@link #endStaging(StagedOutputDirectory, boolean)} is called <code>outputDirectory</code>
+     * points to the staging directory.
+     *
+     * @return the staged output, <code>null</code> if the output is not staged.
+     * @throws MojoExecutionException if the staging directory can't be created.
+     */
+    protected StagedOutputDirectory beginStaging()
+        throws MojoExecutionException
+    {
+        if ( !stageOutput )
+        {
+            return null;
+        }
+
+        StagedOutputDirectory staged = new StagedOutputDirectory( outputDirectory );
+        try
+        {
+            outputDirectory = staged.begin();
+            stagedOutput = staged;
+        }
+        catch ( IOException e )
+        {
+            staged.rollback();
+            throw new MojoExecutionException( "Unable to create staging directory " + staged.getStagingDirectory(), e );
+        }
+        return staged;
+    }
+
+    /**
+     * Swaps the staging directory in if the goal succeeded, throws it away otherwise, and
+     * points <code>outputDirectory</code> back to the real output directory.
+     *
+     * @param staged the staged output, may be <code>null</code>.
+     * @param success whether the goal succeeded.
+     * @throws MojoExecutionException if the staging directory can't be swapped in.
+     */
+    protected void endStaging( StagedOutputDirectory staged, boolean success )
+        throws MojoExecutionException
+    {
+        if ( staged == null )
+        {
+            return;
+        }
+
+        outputDirectory = staged.getDirectory();
+        stagedOutput = null;
+        if ( !success )
+        {
+            staged.rollback();
+            return;
+        }
+        try
+        {
+            staged.commit();
+        }
+        catch ( IOException e )
+        {
+            staged.rollback();
+            throw new MojoExecutionException( "Unable to move " + staged.getStagingDirectory() + " to "
+                + staged.getDirectory(), e );
+        }
+    }
+
+    /**
+     * @return the directory the output ends up in: <code>outputDirectory</code>, or the real
+     *         output directory while <code>outputDirectory</code> points to the staging directory.
+     */
+    protected File getFinalOutputDirectory()
+    {
+        return stagedOutput != null ? stagedOutput.getDirectory() : outputDirectory;
+    }
+
     /**
      * @return Returns the outputDirectory.
      */
@@ -234,4 +330,20 @@ public abstract class AbstractFromDependenciesMojo
         this.copyPom = copyPom;
     }
 
+    /**
+     * @return true, if the output is staged and swapped in on success
+     */
+    public boolean isStageOutput()
+    {
+        return this.stageOutput;
+    }
+
+    /**
+     * @param stageOutput - true if the output must be staged and swapped in on success
+     */
+    public void setStageOutput( boolean stageOutput )
+    {
+        this.stageOutput = stageOutput;
+    }
+
 }
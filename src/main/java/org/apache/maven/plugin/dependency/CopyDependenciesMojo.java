@@ -19,22 +19,55 @@ package org.apache.maven.plugin.dependency;
  * under the License.
  */
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.installer.ArtifactInstallationException;
-import org.apache.maven.artifact.installer.ArtifactInstaller;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
 import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.utils.DependencyStatusSets;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
+import org.apache.maven.plugin.dependency.utils.OutputManifest;
+import org.apache.maven.plugin.dependency.utils.RepositoryLayoutInstaller;
+import org.apache.maven.plugin.dependency.utils.StagedOutputDirectory;
 import org.apache.maven.plugin.dependency.utils.filters.DestFileFilter;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.zip.AbstractZipArchiver;
+import org.codehaus.plexus.util.IOUtil;
+
+import com.github.luben.zstd.ZstdOutputStream;
 
 /**
  * Goal that copies the project dependencies from the repository to a defined
@@ -51,11 +84,6 @@ public class CopyDependenciesMojo
     extends AbstractFromDependenciesMojo
 {
 
-    /**
-     * @component
-     */
-    protected ArtifactInstaller installer;
-
     /**
      * @component
      */
@@ -74,6 +102,82 @@ public class CopyDependenciesMojo
      * @parameter
      */
     protected boolean stripClassifier = false;
+
+    /**
+     * Number of threads used to copy the artifacts. With more than one thread the
+     * artifacts are copied concurrently; the log output keeps the order of the
+     * sequential copy and every failed artifact is reported before the build fails.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.copyThreads}" default-value="1"
+     */
+    protected int copyThreads = 1;
+
+    /**
+     * Decide whether <code>overWriteIfNewer</code> replaces an existing file by comparing
+     * SHA-1 digests instead of modification times. The digest of an artifact is taken from
+     * the <code>.sha1</code> file in the local repository when there is one that is not older
+     * than the artifact. Useful when restored build caches give every file a new
+     * modification time.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.compareDigests}" default-value="false"
+     */
+    protected boolean compareDigests;
+
+    /**
+     * Keep a manifest of the copied artifacts in the markers directory: coordinate, path
+     * relative to the output directory, size, modification time and SHA-1 of every file.
+     * Up-to-date checks trust the manifest for artifacts whose file has not changed instead
+     * of looking at every copied file, which helps on network file systems.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.useOutputManifest}" default-value="false"
+     */
+    protected boolean useOutputManifest;
+
+    /**
+     * Delete the files of the output directory that don't belong to a resolved dependency
+     * any more, e.g. the jar of a previous version, and the directories left empty. Files
+     * and directories whose name starts with a dot are kept. Only use it with an output
+     * directory dedicated to this goal.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.sync}" default-value="false"
+     */
+    protected boolean sync;
+
+    /**
+     * Write the dependencies into this archive instead of copying them to <code>outputDirectory</code>.
+     * The format follows the extension: <code>zip</code> (or <code>jar</code>), <code>tar</code>,
+     * <code>tar.gz</code> (or <code>tgz</code>), <code>tar.bz2</code> and <code>tar.zst</code> (or
+     * <code>tzst</code>), the latter compressed by <code>copyThreads</code> zstd workers. Zip
+     * entries are stored uncompressed, so the jars are not compressed a second time. Entries are named after the path
+     * the file would have below <code>outputDirectory</code>. The archive is always written from
+     * scratch; <code>stageOutput</code>, <code>sync</code> and <code>useOutputManifest</code> don't
+     * apply and no repository metadata is written.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.outputArchive}"
+     */
+    protected File outputArchive;
+
+    /**
+     * The manifest of this execution, <code>null</code> unless <code>useOutputManifest</code> is set.
+     */
+    private OutputManifest outputManifest;
+
+    /**
+     * POM artifacts resolved during this execution, by <code>groupId:artifactId:version</code>.
+     * POMs that could not be resolved are kept as well so they are not looked up again.
+     */
+    private Map<String, Artifact> resolvedPoms = new HashMap<String, Artifact>();
+
     /**
      * Main entry into mojo. Gets the list of dependencies and iterates through
      * calling copyArtifact.
@@ -87,88 +191,604 @@ public class CopyDependenciesMojo
     public void execute()
         throws MojoExecutionException
     {
-        DependencyStatusSets dss = getDependencySets( this.failOnMissingClassifierArtifact );
-        Set<Artifact> artifacts = dss.getResolvedDependencies();
+        DirectoryLock lock;
+        if ( outputArchive != null )
+        {
+            // an archive is locked like a directory
+            lock = lockDirectories( outputArchive );
+        }
+        else
+        {
+            lock = lockDirectories( outputDirectory, useOutputManifest ? markersDirectory : null );
+        }
+        try
+        {
+            copyDependencies();
+        }
+        finally
+        {
+            unlockDirectories( lock );
+        }
+    }
+
+    private void copyDependencies()
+        throws MojoExecutionException
+    {
+        resolvedPoms.clear();
 
-        if ( !useRepositoryLayout )
+        if ( outputArchive != null )
         {
-            for ( Artifact artifact : artifacts )
+            archiveArtifacts( getDependencySets( this.failOnMissingClassifierArtifact ).getResolvedDependencies() );
+            return;
+        }
+
+        StagedOutputDirectory staged = beginStaging();
+        outputManifest = null;
+        if ( useOutputManifest )
+        {
+            File manifestDirectory = staged == null ? outputDirectory : staged.getDirectory();
+            outputManifest =
+                new OutputManifest( OutputManifest.getManifestFile( markersDirectory, manifestDirectory ), outputDirectory );
+            outputManifest.load();
+        }
+
+        boolean success = false;
+        try
+        {
+            DependencyStatusSets dss = getDependencySets( this.failOnMissingClassifierArtifact );
+            Set<Artifact> artifacts = dss.getResolvedDependencies();
+
+            ArtifactRepository targetRepository = null;
+            if ( !useRepositoryLayout )
             {
-	    		copyArtifact( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier );
+                copyArtifacts( artifacts );
             }
+            else
+            {
+                try
+                {
+                    targetRepository = repositoryFactory.createDeploymentArtifactRepository(
+                            "local",
+                            outputDirectory.toURL().toExternalForm(),
+                            (ArtifactRepositoryLayout) repositoryLayouts.get( "default" ),
+                            false /*uniqueVersion*/ );
+                    installArtifacts( artifacts, targetRepository );
+                }
+                catch ( MalformedURLException e )
+                {
+                    throw new MojoExecutionException( "Could not create outputDirectory repository", e );
+                }
+            }
+
+            Set<Artifact> skippedArtifacts = dss.getSkippedDependencies();
+            for ( Artifact artifact : skippedArtifacts )
+            {
+                getLog().info( artifact.getFile().getName() + " already exists in destination." );
+            }
+
+            if ( isCopyPom() )
+            {
+                copyPoms( getOutputDirectory(), artifacts, this.stripVersion );
+                copyPoms( getOutputDirectory(), skippedArtifacts, this.stripVersion );  // Artifacts that already exist may not already have poms.
+            }
+
+            if ( sync )
+            {
+                Set<Artifact> allArtifacts = new HashSet<Artifact>( artifacts );
+                allArtifacts.addAll( skippedArtifacts );
+                pruneOutputDirectory( getExpectedFiles( allArtifacts, targetRepository ) );
+            }
+
+            if ( outputManifest != null )
+            {
+                updateOutputManifest( artifacts, skippedArtifacts );
+            }
+
+            success = true;
         }
-        else
+        finally
+        {
+            endStaging( staged, success );
+        }
+
+        if ( outputManifest != null )
         {
             try
             {
-                ArtifactRepository targetRepository = repositoryFactory.createDeploymentArtifactRepository(
-                        "local",
-                        outputDirectory.toURL().toExternalForm(),
-                        (ArtifactRepositoryLayout) repositoryLayouts.get( "default" ),
-                        false /*uniqueVersion*/ );
-                for ( Artifact artifact : artifacts )
+                outputManifest.save();
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Unable to write " + outputManifest.getManifestFile(), e );
+            }
+        }
+    }
+
+    /**
+     * Records the copied artifacts in the manifest and drops the artifacts that are no
+     * longer dependencies.
+     */
+    private void updateOutputManifest( Set<Artifact> artifacts, Set<Artifact> skippedArtifacts )
+        throws MojoExecutionException
+    {
+        List<String> coordinates = new ArrayList<String>();
+        for ( Artifact artifact : artifacts )
+        {
+            File destFile = getDestFile( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier );
+            try
+            {
+                outputManifest.put( artifact.getId(), artifact.getFile(), destFile );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Unable to compute the digest of " + artifact.getFile(), e );
+            }
+            coordinates.add( artifact.getId() );
+        }
+        for ( Artifact artifact : skippedArtifacts )
+        {
+            coordinates.add( artifact.getId() );
+        }
+        outputManifest.retain( coordinates );
+    }
+
+    /**
+     * Writes the artifacts and, with <code>copyPom</code>, their poms into <code>outputArchive</code>.
+     * The archive is written to a temporary file first and renamed when complete.
+     */
+    private void archiveArtifacts( Set<Artifact> artifacts )
+        throws MojoExecutionException
+    {
+        File tmp = new File( outputArchive.getAbsoluteFile().getParentFile(), "." + outputArchive.getName() + ".tmp" );
+        tmp.getParentFile().mkdirs();
+        try
+        {
+            Archiver archiver = getOutputArchiver();
+            archiver.setDestFile( tmp );
+
+            Set<String> entries = new HashSet<String>();
+            for ( Artifact artifact : artifacts )
+            {
+                File destFile = getDestFile( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier );
+                addToArchive( archiver, entries, artifact.getFile(), destFile );
+
+                if ( isCopyPom() && !"pom".equals( artifact.getType() ) )
                 {
-                    installArtifact( artifact, targetRepository );
+                    Artifact pomArtifact = getResolvedPomArtifact( artifact );
+                    if ( pomArtifact.getFile() != null && pomArtifact.getFile().exists() )
+                    {
+                        addToArchive( archiver, entries, pomArtifact.getFile(),
+                                      getPomDestFile( outputDirectory, pomArtifact, this.stripVersion ) );
+                    }
                 }
             }
-            catch ( MalformedURLException e )
+
+            getLog().info( "Writing " + entries.size() + " files to " + outputArchive );
+            archiver.createArchive();
+            if ( isZstdArchive() )
             {
-                throw new MojoExecutionException( "Could not create outputDirectory repository", e );
+                compressZstd( tmp );
             }
+            Files.move( tmp.toPath(), outputArchive.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( ArchiverException e )
+        {
+            throw new MojoExecutionException( "Error creating " + outputArchive, e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error creating " + outputArchive, e );
         }
+        finally
+        {
+            tmp.delete();
+        }
+    }
 
-        Set<Artifact> skippedArtifacts = dss.getSkippedDependencies();
-        for ( Artifact artifact : skippedArtifacts )
+    private boolean isZstdArchive()
+    {
+        String name = outputArchive.getName().toLowerCase( Locale.ENGLISH );
+        return name.endsWith( ".tar.zst" ) || name.endsWith( ".tzst" );
+    }
+
+    /**
+     * Compresses the tar file in place with zstd, the tar archiver has no zstd compression.
+     */
+    private void compressZstd( File tar )
+        throws IOException
+    {
+        File compressed = new File( tar.getParentFile(), tar.getName() + ".zst" );
+        InputStream in = null;
+        ZstdOutputStream out = null;
+        try
+        {
+            in = new FileInputStream( tar );
+            out = new ZstdOutputStream( new BufferedOutputStream( new FileOutputStream( compressed ) ) );
+            if ( copyThreads > 1 )
+            {
+                out.setWorkers( copyThreads );
+            }
+            IOUtil.copy( in, out, 64 * 1024 );
+            out.close();
+            out = null;
+            Files.move( compressed.toPath(), tar.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
         {
-            getLog().info( artifact.getFile().getName() + " already exists in destination." );
+            IOUtil.close( in );
+            IOUtil.close( out );
+            compressed.delete();
         }
+    }
 
-        if ( isCopyPom() )
+    private void addToArchive( Archiver archiver, Set<String> entries, File file, File destFile )
+        throws ArchiverException
+    {
+        String entryName = outputDirectory.getAbsoluteFile().toPath().relativize( destFile.getAbsoluteFile().toPath() )
+            .toString().replace( File.separatorChar, '/' );
+        if ( entries.add( entryName ) )
         {
-            copyPoms( getOutputDirectory(), artifacts, this.stripVersion );
-            copyPoms( getOutputDirectory(), skippedArtifacts, this.stripVersion );  // Artifacts that already exist may not already have poms.
+            getLog().debug( "Adding " + file + " as " + entryName );
+            archiver.addFile( file, entryName );
         }
     }
 
-    private void installArtifact( Artifact artifact, ArtifactRepository targetRepository )
+    /**
+     * @return the archiver for the extension of <code>outputArchive</code>.
+     */
+    private Archiver getOutputArchiver()
+        throws MojoExecutionException, ArchiverException
     {
+        String name = outputArchive.getName().toLowerCase( Locale.ENGLISH );
+        String compression = null;
+        String format;
+        if ( name.endsWith( ".zip" ) || name.endsWith( ".jar" ) )
+        {
+            format = "zip";
+        }
+        else if ( name.endsWith( ".tar" ) )
+        {
+            format = "tar";
+        }
+        else if ( name.endsWith( ".tar.gz" ) || name.endsWith( ".tgz" ) )
+        {
+            format = "tar";
+            compression = "gzip";
+        }
+        else if ( name.endsWith( ".tar.bz2" ) )
+        {
+            format = "tar";
+            compression = "bzip2";
+        }
+        else if ( isZstdArchive() )
+        {
+            // compressed once the tar file is written
+            format = "tar";
+        }
+        else
+        {
+            throw new MojoExecutionException( "Unsupported archive format: " + outputArchive
+                + ", expected a zip, jar, tar, tar.gz, tgz, tar.bz2, tar.zst or tzst file" );
+        }
+
+        Archiver archiver;
         try
         {
-            if ( "pom".equals( artifact.getType() ) )
+            archiver = archiverManager.getArchiver( format );
+        }
+        catch ( NoSuchArchiverException e )
+        {
+            throw new MojoExecutionException( "Unknown archiver type", e );
+        }
+
+        if ( archiver instanceof AbstractZipArchiver )
+        {
+            // the entries are jars, compressing them again costs time and saves nothing
+            ( (AbstractZipArchiver) archiver ).setCompress( false );
+        }
+        if ( compression != null && archiver instanceof TarArchiver )
+        {
+            TarArchiver.TarCompressionMethod method = new TarArchiver.TarCompressionMethod();
+            method.setValue( compression );
+            ( (TarArchiver) archiver ).setCompression( method );
+        }
+        return archiver;
+    }
+
+    /**
+     * Copies the artifacts to the output directory, either one after the other
+     * or with a pool of <code>copyThreads</code> workers.
+     *
+     * @param artifacts the artifacts to copy.
+     * @throws MojoExecutionException if at least one artifact could not be copied.
+     */
+    private void copyArtifacts( Set<Artifact> artifacts )
+        throws MojoExecutionException
+    {
+        if ( copyThreads <= 1 || artifacts.size() <= 1 )
+        {
+            for ( Artifact artifact : artifacts )
             {
-                installer.install( artifact.getFile(), artifact, targetRepository );
-                installBaseSnapshot( artifact, targetRepository );
+                copyArtifact( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier );
             }
-            else
+            return;
+        }
+
+        // artifacts copied to the same file would be copied concurrently, the last one wins as in the sequential copy
+        Map<File, Artifact> artifactsByDestFile = new LinkedHashMap<File, Artifact>();
+        for ( Artifact artifact : artifacts )
+        {
+            File destFile = getDestFile( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier );
+            Artifact replaced = artifactsByDestFile.put( destFile.getAbsoluteFile(), artifact );
+            if ( replaced != null )
             {
-                installer.install( artifact.getFile(), artifact, targetRepository );
-                installBaseSnapshot( artifact, targetRepository );
+                getLog().debug( "Not copying " + replaced.getId() + ", " + artifact.getId() + " is copied to "
+                    + destFile );
+            }
+        }
 
-                if ( isCopyPom() )
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( copyThreads, artifactsByDestFile.size() ) );
+        try
+        {
+            List<PendingCopy> copies = new ArrayList<PendingCopy>( artifactsByDestFile.size() );
+            for ( Map.Entry<File, Artifact> entry : artifactsByDestFile.entrySet() )
+            {
+                Artifact artifact = entry.getValue();
+                final File srcFile = artifact.getFile();
+                final File destFile = entry.getKey();
+                Future<?> future = executor.submit( new Callable<Object>()
                 {
-                    Artifact pomArtifact = getResolvedPomArtifact( artifact );
-                    if ( pomArtifact.getFile() != null && pomArtifact.getFile().exists() )
+                    public Object call()
+                        throws MojoExecutionException
+                    {
+                        copyFileContents( srcFile, destFile );
+                        return null;
+                    }
+                } );
+                copies.add( new PendingCopy( artifact, destFile, future ) );
+            }
+
+            // wait in submission order so the log reads like the sequential copy
+            Throwable firstFailure = null;
+            int failures = 0;
+            for ( PendingCopy copy : copies )
+            {
+                logCopy( copy.artifact.getFile(), copy.destFile );
+                try
+                {
+                    copy.future.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    getLog().error( "Unable to copy " + copy.artifact.getId() + ": " + cause.getMessage() );
+                    if ( firstFailure == null )
                     {
-                        installer.install( pomArtifact.getFile(), pomArtifact, targetRepository );
-                        installBaseSnapshot( pomArtifact, targetRepository );
+                        firstFailure = cause;
                     }
+                    failures++;
                 }
             }
+
+            if ( firstFailure != null )
+            {
+                throw new MojoExecutionException( "Unable to copy " + failures + " of " + copies.size()
+                    + " artifacts, see the log for details.", firstFailure );
+            }
         }
-        catch ( ArtifactInstallationException e )
+        catch ( InterruptedException e )
         {
-            getLog().info( e.getMessage() );
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while copying artifacts.", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * An artifact copy that has been handed to the worker pool.
+     */
+    private static class PendingCopy
+    {
+        private final Artifact artifact;
+
+        private final File destFile;
+
+        private final Future<?> future;
+
+        PendingCopy( Artifact artifact, File destFile, Future<?> future )
+        {
+            this.artifact = artifact;
+            this.destFile = destFile;
+            this.future = future;
         }
     }
 
-    private void installBaseSnapshot( Artifact artifact, ArtifactRepository targetRepository )
-            throws ArtifactInstallationException
+    /**
+     * Installs the artifacts, their base snapshot versions and, with <code>copyPom</code>, their poms
+     * into the output directory as one batch. The repository metadata is written once per
+     * artifact and base snapshot versions are hard linked to the timestamped file.
+     */
+    private void installArtifacts( Set<Artifact> artifacts, ArtifactRepository targetRepository )
+        throws MojoExecutionException
+    {
+        RepositoryLayoutInstaller batch = new RepositoryLayoutInstaller( targetRepository, getFileCopier(), getLog() );
+        for ( Artifact artifact : artifacts )
+        {
+            addArtifact( batch, artifact.getFile(), artifact );
+
+            if ( isCopyPom() && !"pom".equals( artifact.getType() ) )
+            {
+                Artifact pomArtifact = getResolvedPomArtifact( artifact );
+                if ( pomArtifact.getFile() != null && pomArtifact.getFile().exists() )
+                {
+                    addArtifact( batch, pomArtifact.getFile(), pomArtifact );
+                }
+            }
+        }
+
+        try
+        {
+            batch.install();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error installing artifacts to " + outputDirectory, e );
+        }
+    }
+
+    private void addArtifact( RepositoryLayoutInstaller batch, File file, Artifact artifact )
+    {
+        batch.add( file, artifact );
+        Artifact baseArtifact = getBaseSnapshot( artifact );
+        if ( baseArtifact != null )
+        {
+            batch.add( file, baseArtifact );
+        }
+    }
+
+    /**
+     * @return the base version of a timestamped snapshot, <code>null</code> for other artifacts.
+     */
+    private Artifact getBaseSnapshot( Artifact artifact )
     {
         if ( artifact.isSnapshot() && !artifact.getBaseVersion().equals( artifact.getVersion() ) )
         {
-            Artifact baseArtifact = this.factory.createArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+            return this.factory.createArtifact( artifact.getGroupId(), artifact.getArtifactId(),
                     artifact.getBaseVersion(), artifact.getScope(), artifact.getType() );
-            installer.install( artifact.getFile(), baseArtifact, targetRepository );
+        }
+        return null;
+    }
+
+    /**
+     * Lists the files this goal places in the output directory for the artifacts.
+     *
+     * @param artifacts the resolved and skipped artifacts.
+     * @param targetRepository the output repository with <code>useRepositoryLayout</code>,
+     *            <code>null</code> otherwise.
+     */
+    private Set<File> getExpectedFiles( Set<Artifact> artifacts, ArtifactRepository targetRepository )
+    {
+        Set<File> expected = new HashSet<File>();
+        for ( Artifact artifact : artifacts )
+        {
+            Artifact pomArtifact = isCopyPom() ? getResolvedPomArtifact( artifact ) : null;
+            boolean hasPom = pomArtifact != null && pomArtifact.getFile() != null && pomArtifact.getFile().exists();
+
+            if ( targetRepository == null )
+            {
+                expected.add( getDestFile( artifact, this.stripVersion, this.prependGroupId, this.stripClassifier ) );
+            }
+            else
+            {
+                addRepositoryFiles( expected, artifact, targetRepository );
+                if ( hasPom && !"pom".equals( artifact.getType() ) )
+                {
+                    addRepositoryFiles( expected, pomArtifact, targetRepository );
+                }
+            }
+
+            if ( hasPom )
+            {
+                expected.add( getPomDestFile( getOutputDirectory(), pomArtifact, this.stripVersion ) );
+            }
+        }
+        return expected;
+    }
+
+    private void addRepositoryFiles( Set<File> expected, Artifact artifact, ArtifactRepository targetRepository )
+    {
+        expected.addAll( RepositoryLayoutInstaller.getFiles( targetRepository, artifact ) );
+        Artifact baseArtifact = getBaseSnapshot( artifact );
+        if ( baseArtifact != null )
+        {
+            expected.addAll( RepositoryLayoutInstaller.getFiles( targetRepository, baseArtifact ) );
+        }
+    }
+
+    /**
+     * Deletes the files of the output directory that are not expected, and the directories
+     * left empty. Hidden files are left alone.
+     */
+    private void pruneOutputDirectory( Set<File> expectedFiles )
+        throws MojoExecutionException
+    {
+        final Set<Path> expected = new HashSet<Path>();
+        for ( File file : expectedFiles )
+        {
+            expected.add( file.getAbsoluteFile().toPath().normalize() );
+        }
+        final Path root = outputDirectory.getAbsoluteFile().toPath().normalize();
+        final Path markers = markersDirectory.getAbsoluteFile().toPath().normalize();
+        if ( !Files.isDirectory( root ) )
+        {
+            return;
+        }
+
+        try
+        {
+            Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+            {
+                public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                {
+                    if ( !dir.equals( root ) && ( isHidden( dir ) || dir.equals( markers ) ) )
+                    {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                    throws IOException
+                {
+                    if ( !isHidden( file ) && !expected.contains( file ) )
+                    {
+                        getLog().info( "Deleting " + file + ", it is not a dependency any more." );
+                        Files.delete( file );
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult postVisitDirectory( Path dir, IOException e )
+                    throws IOException
+                {
+                    if ( e != null )
+                    {
+                        throw e;
+                    }
+                    if ( !dir.equals( root ) && isEmpty( dir ) )
+                    {
+                        Files.delete( dir );
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to delete stale files from " + outputDirectory, e );
+        }
+    }
+
+    private static boolean isHidden( Path path )
+    {
+        return path.getFileName().toString().startsWith( "." );
+    }
+
+    private static boolean isEmpty( Path dir )
+        throws IOException
+    {
+        DirectoryStream<Path> stream = Files.newDirectoryStream( dir );
+        try
+        {
+            return !stream.iterator().hasNext();
+        }
+        finally
+        {
+            stream.close();
         }
     }
 
@@ -221,16 +841,26 @@ public class CopyDependenciesMojo
     protected void copyArtifact( Artifact artifact, boolean removeVersion, boolean prependGroupId, boolean removeClassifier )
         throws MojoExecutionException
     {
+        File destFile = getDestFile( artifact, removeVersion, prependGroupId, removeClassifier );
 
+        copyFile( artifact.getFile(), destFile );
+    }
+
+    /**
+     * Builds the destination file of an artifact the same way
+     * {@link #copyArtifact(Artifact, boolean, boolean, boolean)} does.
+     *
+     * @return the destination file. The file is not guaranteed to exist.
+     */
+    protected File getDestFile( Artifact artifact, boolean removeVersion, boolean prependGroupId, boolean removeClassifier )
+    {
         String destFileName = DependencyUtil.getFormattedFileName( artifact, removeVersion, prependGroupId, removeClassifier);
 
         File destDir;
         destDir = DependencyUtil.getFormattedOutputDirectory( useSubDirectoryPerScope, useSubDirectoryPerType, useSubDirectoryPerArtifact,
                                                               useRepositoryLayout, stripVersion, outputDirectory,
                                                               artifact );
-        File destFile = new File( destDir, destFileName );
-
-        copyFile( artifact.getFile(), destFile );
+        return new File( destDir, destFileName );
     }
 
     /**
@@ -247,8 +877,7 @@ public class CopyDependenciesMojo
             // Copy the pom
             if ( pomArtifact.getFile() != null && pomArtifact.getFile().exists() )
             {
-                File pomDestFile = new File( destDir, DependencyUtil.getFormattedFileName( pomArtifact, removeVersion,
-                                                                                           prependGroupId) );
+                File pomDestFile = getPomDestFile( destDir, pomArtifact, removeVersion );
                 if ( ! pomDestFile.exists() )
                 {
                     copyFile( pomArtifact.getFile(), pomDestFile );
@@ -257,10 +886,26 @@ public class CopyDependenciesMojo
         }
     }
 
+    private File getPomDestFile( File destDir, Artifact pomArtifact, boolean removeVersion )
+    {
+        return new File( destDir, DependencyUtil.getFormattedFileName( pomArtifact, removeVersion, prependGroupId ) );
+    }
+
+    /**
+     * Resolves the pom of an artifact. Every pom is resolved once per execution, the
+     * result is reused whether or not the resolution succeeded.
+     */
     protected Artifact getResolvedPomArtifact( Artifact artifact )
     {
-        Artifact pomArtifact = this.factory.createArtifact( artifact.getGroupId(), artifact.getArtifactId(),
-                                                            artifact.getVersion(), "", "pom" );
+        String key = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+        Artifact pomArtifact = resolvedPoms.get( key );
+        if ( pomArtifact != null )
+        {
+            return pomArtifact;
+        }
+
+        pomArtifact = this.factory.createArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+                                                   artifact.getVersion(), "", "pom" );
         // Resolve the pom artifact using repos
         try
         {
@@ -270,13 +915,24 @@ public class CopyDependenciesMojo
         {
             getLog().info( e.getMessage() );
         }
+        resolvedPoms.put( key, pomArtifact );
         return pomArtifact;
     }
 
     protected ArtifactsFilter getMarkedArtifactFilter()
     {
-        return new DestFileFilter( this.overWriteReleases, this.overWriteSnapshots, this.overWriteIfNewer,
-                                   this.useSubDirectoryPerArtifact, this.useSubDirectoryPerType, this.useSubDirectoryPerScope,
-                                   this.useRepositoryLayout, this.stripVersion, this.outputDirectory );
+        if ( outputArchive != null )
+        {
+            // the archive is written from scratch, everything goes in
+            return null;
+        }
+
+        DestFileFilter filter =
+            new DestFileFilter( this.overWriteReleases, this.overWriteSnapshots, this.overWriteIfNewer,
+                                this.useSubDirectoryPerArtifact, this.useSubDirectoryPerType, this.useSubDirectoryPerScope,
+                                this.useRepositoryLayout, this.stripVersion, this.outputDirectory );
+        filter.setCompareDigests( this.compareDigests );
+        filter.setOutputManifest( this.outputManifest );
+        return filter;
     }
 }
@@ -0,0 +1,198 @@
+package org.apache.maven.plugin.dependency;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.archives.ZipCentralDirectory;
+import org.apache.maven.plugin.dependency.utils.archives.ZipRepacker;
+import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
+
+/**
+ * Goal that merges the zip archives (jar, war, zip...) of the project dependencies into a
+ * single archive, the way <code>unpack-dependencies</code> followed by zipping the output
+ * directory would, without inflating and deflating the entries again: their compressed
+ * data is copied as is.
+ *
+ * @goal repack
+ * @requiresDependencyResolution test
+ * @phase package
+ * @version $Id$
+ * @since 2.4
+ */
+public class RepackDependenciesMojo
+    extends AbstractDependencyFilterMojo
+{
+    /**
+     * The archive to write. It is always written from scratch.
+     *
+     * @parameter expression="${mdep.repack.outputFile}"
+     *            default-value="${project.build.directory}/${project.build.finalName}-dependencies.jar"
+     * @required
+     * @since 2.4
+     */
+    protected File outputFile;
+
+    /**
+     * What to do with an entry found in several dependencies: <code>first</code> keeps the one of
+     * the first dependency, <code>last</code> the one of the last dependency, like unpacking them
+     * all into one directory would, and <code>fail</code> fails the build. The dependencies are
+     * taken in the order of the project classpath, so the result is the same on every build.
+     * Directory entries are always written once.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.repack.duplicates}" default-value="first"
+     */
+    protected String duplicates = ZipRepacker.FIRST;
+
+    /**
+     * A comma separated list of file patterns to include when repacking the
+     * artifacts.  i.e. <code>**\/*.class,**\/*.properties</code>
+     * NOTE: Excludes patterns override the includes.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.repack.includes}"
+     */
+    protected String includes;
+
+    /**
+     * A comma separated list of file patterns to exclude when repacking the
+     * artifacts.  i.e. <code>META-INF/*.SF,META-INF/*.RSA</code>
+     * NOTE: Excludes patterns override the includes.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.repack.excludes}"
+     */
+    protected String excludes;
+
+    /**
+     * Main entry into mojo. Reads the central directory of every dependency and writes the
+     * selected entries into <code>outputFile</code>. Dependencies that are not zip archives are
+     * skipped.
+     *
+     * @throws MojoExecutionException with a message if an error occurs.
+     */
+    public void execute()
+        throws MojoExecutionException
+    {
+        ZipRepacker repacker;
+        try
+        {
+            repacker = new ZipRepacker( duplicates );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        repacker.setFileSelectors( getFileSelectors( DependencyUtil.cleanToBeTokenizedString( includes ),
+                                                     DependencyUtil.cleanToBeTokenizedString( excludes ) ) );
+
+        for ( Artifact artifact : getClasspathOrder( getResolvedDependencies( true ) ) )
+        {
+            File file = artifact.getFile();
+            if ( !ZipCentralDirectory.isZipFile( file ) )
+            {
+                getLog().warn( artifact.getId() + " is not a zip archive, it is not repacked." );
+                continue;
+            }
+            try
+            {
+                repacker.add( file );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Error repacking " + artifact.getId() + ": " + e.getMessage(), e );
+            }
+        }
+
+        File tmp = new File( outputFile.getAbsoluteFile().getParentFile(), "." + outputFile.getName() + ".tmp" );
+        tmp.getParentFile().mkdirs();
+        try
+        {
+            getLog().info( "Writing " + repacker.size() + " entries to " + outputFile );
+            repacker.write( tmp );
+            Files.move( tmp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error creating " + outputFile, e );
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Sorts the artifacts in the order of the project artifacts, the filters don't keep it.
+     */
+    private List<Artifact> getClasspathOrder( Set<Artifact> artifacts )
+    {
+        final Map<String, Integer> positions = new HashMap<String, Integer>();
+        Set<Artifact> projectArtifacts = project.getArtifacts();
+        for ( Artifact artifact : projectArtifacts )
+        {
+            String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            if ( !positions.containsKey( key ) )
+            {
+                positions.put( key, Integer.valueOf( positions.size() ) );
+            }
+        }
+
+        List<Artifact> sorted = new ArrayList<Artifact>( artifacts );
+        Collections.sort( sorted, new Comparator<Artifact>()
+        {
+            public int compare( Artifact a, Artifact b )
+            {
+                int result = getPosition( a ) - getPosition( b );
+                return result != 0 ? result : a.getId().compareTo( b.getId() );
+            }
+
+            private int getPosition( Artifact artifact )
+            {
+                Integer position = positions.get( artifact.getGroupId() + ":" + artifact.getArtifactId() );
+                return position != null ? position.intValue() : Integer.MAX_VALUE / 2;
+            }
+        } );
+        return sorted;
+    }
+
+    protected ArtifactsFilter getMarkedArtifactFilter()
+    {
+        // the archive is written from scratch, everything goes in
+        return null;
+    }
+}
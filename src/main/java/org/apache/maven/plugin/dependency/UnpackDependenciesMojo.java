@@ -20,14 +20,28 @@ package org.apache.maven.plugin.dependency;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.utils.DependencyStatusSets;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
+import org.apache.maven.plugin.dependency.utils.StagedOutputDirectory;
 import org.apache.maven.plugin.dependency.utils.filters.MarkerFileFilter;
 import org.apache.maven.plugin.dependency.utils.markers.DefaultFileMarkerHandler;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Goal that unpacks the project dependencies from the repository to a defined
@@ -63,6 +77,32 @@ public class UnpackDependenciesMojo
      */
     private String excludes;
 
+    /**
+     * Number of threads used to unpack the artifacts. With more than one thread every
+     * artifact is extracted into a scratch directory next to the output directory and
+     * moved into place in the usual order, so an archive unpacked later still overwrites
+     * the files of an earlier one. Markers are only written for artifacts that were
+     * unpacked successfully, and every failed artifact is reported before the build fails.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackThreads}" default-value="1"
+     */
+    protected int unpackThreads = 1;
+
+    /**
+     * Upper bound, in megabytes, for the total size of the archive files extracted at the
+     * same time when <code>unpackThreads</code> is greater than one, so that several big
+     * archives don't compete for the disk at once. It throttles I/O, not memory: the workers
+     * stream the archives through buffers of a fixed size. An archive bigger than the budget
+     * is extracted on its own.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.unpackSizeBudget}" default-value="512"
+     */
+    protected int unpackSizeBudget = 512;
+
     /**
      * Main entry into mojo. This method gets the dependencies and iterates
      * through each one passing it to DependencyUtil.unpackFile().
@@ -77,29 +117,312 @@ public class UnpackDependenciesMojo
     public void execute()
         throws MojoExecutionException
     {
-        DependencyStatusSets dss = getDependencySets( this.failOnMissingClassifierArtifact );
+        DirectoryLock lock = lockDirectories( outputDirectory, markersDirectory );
+        try
+        {
+            unpackDependencies();
+        }
+        finally
+        {
+            try
+            {
+                saveMarkerStores();
+            }
+            finally
+            {
+                unlockDirectories( lock );
+            }
+        }
+    }
+
+    private void unpackDependencies()
+        throws MojoExecutionException
+    {
+        StagedOutputDirectory staged = beginStaging();
+        // with a staged output the markers are only valid once the output has been swapped in
+        List<DefaultFileMarkerHandler> pendingMarkers = new ArrayList<DefaultFileMarkerHandler>();
+        boolean success = false;
+        try
+        {
+            DependencyStatusSets dss = getDependencySets( this.failOnMissingClassifierArtifact );
 
-        for ( Artifact artifact : dss.getResolvedDependencies() )
+            if ( unpackThreads > 1 && dss.getResolvedDependencies().size() > 1 )
+            {
+                unpackConcurrently( dss.getResolvedDependencies(), staged != null, pendingMarkers );
+            }
+            else
+            {
+                for ( Artifact artifact : dss.getResolvedDependencies() )
+                {
+                    File destDir = getDestDir( artifact );
+                    DefaultFileMarkerHandler handler = getMarkerHandler( artifact );
+                    if ( staged == null )
+                    {
+                        unpack( artifact.getFile(), destDir, getIncludes(), getExcludes() );
+                        handler.setMarker();
+                    }
+                    else
+                    {
+                        unpackStaged( staged, artifact.getFile(), destDir );
+                        pendingMarkers.add( handler );
+                    }
+                }
+            }
+
+            for ( Artifact artifact : dss.getSkippedDependencies() )
+            {
+                getLog().info( artifact.getFile().getName() + " already exists in destination." );
+            }
+
+            success = true;
+        }
+        finally
+        {
+            endStaging( staged, success );
+        }
+
+        for ( DefaultFileMarkerHandler handler : pendingMarkers )
         {
-            File destDir;
-            destDir = DependencyUtil.getFormattedOutputDirectory( useSubDirectoryPerScope, useSubDirectoryPerType, useSubDirectoryPerArtifact,
-                                                                  useRepositoryLayout, stripVersion, outputDirectory,
-                                                                  artifact );
-            unpack( artifact.getFile(), destDir, getIncludes(), getExcludes() );
-            DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( artifact, this.markersDirectory );
             handler.setMarker();
         }
+    }
+
+    private DefaultFileMarkerHandler getMarkerHandler( Artifact artifact )
+    {
+        // the markers record how each artifact is unpacked, so that changing it unpacks again
+        DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( artifact, this.markersDirectory )
+        {
+            protected String getIncludes()
+            {
+                return UnpackDependenciesMojo.this.getIncludes();
+            }
+
+            protected String getExcludes()
+            {
+                return UnpackDependenciesMojo.this.getExcludes();
+            }
+
+            protected File getDestination()
+            {
+                // the real output, the markers outlive the staging directory
+                return getDestDir( getArtifact(), getFinalOutputDirectory() );
+            }
+        };
+        handler.setMarkerStore( getMarkerStore() );
+        handler.setMarkerIndex( getMarkerIndex() );
+        return handler;
+    }
+
+    private File getDestDir( Artifact artifact )
+    {
+        return getDestDir( artifact, outputDirectory );
+    }
 
-        for ( Artifact artifact : dss.getSkippedDependencies() )
+    private File getDestDir( Artifact artifact, File directory )
+    {
+        return DependencyUtil.getFormattedOutputDirectory( useSubDirectoryPerScope, useSubDirectoryPerType,
+                                                           useSubDirectoryPerArtifact, useRepositoryLayout,
+                                                           stripVersion, directory, artifact );
+    }
+
+    /**
+     * Extracts the artifacts with a pool of <code>unpackThreads</code> workers, each into its
+     * own scratch directory, and moves the results into the output directory in order.
+     *
+     * @param artifacts the artifacts to unpack.
+     * @param deferMarkers whether the markers are set by the caller, after the staged output is swapped in.
+     * @param pendingMarkers receives the markers to set when <code>deferMarkers</code> is set.
+     * @throws MojoExecutionException if at least one artifact could not be unpacked.
+     */
+    private void unpackConcurrently( Set<Artifact> artifacts, boolean deferMarkers,
+                                     List<DefaultFileMarkerHandler> pendingMarkers )
+        throws MojoExecutionException
+    {
+        final String includes = getIncludes();
+        final String excludes = getExcludes();
+        final int budget = Math.max( 1, unpackSizeBudget );
+        final Semaphore archiveSize = new Semaphore( budget );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( unpackThreads, artifacts.size() ) );
+        List<PendingUnpack> unpacks = new ArrayList<PendingUnpack>( artifacts.size() );
+        try
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                final File file = artifact.getFile();
+                final File scratch = createScratchDirectory( artifact );
+                final int permits = (int) Math.min( budget, Math.max( 1, file.length() >> 20 ) );
+                Future<?> future = executor.submit( new Callable<Object>()
+                {
+                    public Object call()
+                        throws Exception
+                    {
+                        archiveSize.acquire( permits );
+                        try
+                        {
+                            extract( file, scratch, includes, excludes );
+                        }
+                        finally
+                        {
+                            archiveSize.release( permits );
+                        }
+                        return null;
+                    }
+                } );
+                unpacks.add( new PendingUnpack( artifact, getDestDir( artifact ), scratch, future ) );
+            }
+
+            // move in submission order, later archives overwrite the files of earlier ones as they always did
+            Throwable firstFailure = null;
+            int failures = 0;
+            for ( PendingUnpack unpack : unpacks )
+            {
+                logUnpack( unpack.artifact.getFile(), unpack.destDir, includes, excludes );
+                try
+                {
+                    unpack.future.get();
+                    StagedOutputDirectory.moveTree( unpack.scratch, unpack.destDir );
+
+                    DefaultFileMarkerHandler handler = getMarkerHandler( unpack.artifact );
+                    if ( deferMarkers )
+                    {
+                        pendingMarkers.add( handler );
+                    }
+                    else
+                    {
+                        handler.setMarker();
+                    }
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    getLog().error( "Unable to unpack " + unpack.artifact.getId() + ": " + cause.getMessage() );
+                    if ( firstFailure == null )
+                    {
+                        firstFailure = cause;
+                    }
+                    failures++;
+                }
+                catch ( IOException e )
+                {
+                    getLog().error( "Unable to move the files of " + unpack.artifact.getId() + " to "
+                        + unpack.destDir + ": " + e.getMessage() );
+                    if ( firstFailure == null )
+                    {
+                        firstFailure = e;
+                    }
+                    failures++;
+                }
+            }
+
+            if ( firstFailure != null )
+            {
+                throw new MojoExecutionException( "Unable to unpack " + failures + " of " + unpacks.size()
+                    + " artifacts, see the log for details.", firstFailure );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while unpacking artifacts.", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            try
+            {
+                executor.awaitTermination( 1, TimeUnit.MINUTES );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            for ( PendingUnpack unpack : unpacks )
+            {
+                deleteQuietly( unpack.scratch );
+            }
+        }
+    }
+
+    private File createScratchDirectory( Artifact artifact )
+        throws MojoExecutionException
+    {
+        try
+        {
+            return StagedOutputDirectory.createScratchDirectory( outputDirectory );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to create a directory to unpack " + artifact.getId(), e );
+        }
+    }
+
+    private static void deleteQuietly( File dir )
+    {
+        try
+        {
+            FileUtils.deleteDirectory( dir );
+        }
+        catch ( IOException e )
+        {
+            // leftovers are hidden and do no harm
+        }
+    }
+
+    /**
+     * An artifact extraction that has been handed to the worker pool.
+     */
+    private static class PendingUnpack
+    {
+        private final Artifact artifact;
+
+        private final File destDir;
+
+        private final File scratch;
+
+        private final Future<?> future;
+
+        PendingUnpack( Artifact artifact, File destDir, File scratch, Future<?> future )
+        {
+            this.artifact = artifact;
+            this.destDir = destDir;
+            this.scratch = scratch;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Unpacks into a scratch directory first and moves the files into the staging directory,
+     * the unarchiver would otherwise write through the links to the previous output.
+     */
+    private void unpackStaged( StagedOutputDirectory staged, File file, File destDir )
+        throws MojoExecutionException
+    {
+        logUnpack( file, destDir, getIncludes(), getExcludes() );
+        try
+        {
+            File scratch = staged.createScratchDirectory();
+            try
+            {
+                extract( file, scratch, getIncludes(), getExcludes() );
+                staged.moveInto( scratch, destDir );
+            }
+            finally
+            {
+                FileUtils.deleteDirectory( scratch );
+            }
+        }
+        catch ( IOException e )
         {
-            getLog().info( artifact.getFile().getName() + " already exists in destination." );
+            throw new MojoExecutionException( "Error unpacking file: " + file + " to: " + destDir, e );
         }
     }
 
     protected ArtifactsFilter getMarkedArtifactFilter()
     {
+        preloadMarkers();
         return new MarkerFileFilter( this.overWriteReleases, this.overWriteSnapshots, this.overWriteIfNewer,
-                                     new DefaultFileMarkerHandler( this.markersDirectory ) );
+                                     getMarkerHandler( null ) );
     }
 
     /**
@@ -20,6 +20,7 @@ package org.apache.maven.plugin.dependency.fromConfiguration;
  */
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -194,6 +195,27 @@ public abstract class AbstractFromConfigurationMojo
         return artifactItems;
     }
 
+    /**
+     * @return the directories the artifact items go to, the default output directory for the items without one.
+     */
+    protected List<File> getOutputDirectories()
+    {
+        List<File> directories = new ArrayList<File>();
+        if ( artifactItems != null )
+        {
+            for ( ArtifactItem artifactItem : artifactItems )
+            {
+                File directory =
+                    artifactItem.getOutputDirectory() != null ? artifactItem.getOutputDirectory() : this.outputDirectory;
+                if ( !directories.contains( directory ) )
+                {
+                    directories.add( directory );
+                }
+            }
+        }
+        return directories;
+    }
+
     private boolean checkIfProcessingNeeded( ArtifactItem item )
         throws MojoExecutionException, ArtifactFilterException
     {
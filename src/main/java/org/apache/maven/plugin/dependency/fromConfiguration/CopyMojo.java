@@ -23,6 +23,7 @@ import java.io.File;
 import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
 import org.apache.maven.plugin.dependency.utils.filters.ArtifactItemFilter;
 import org.apache.maven.plugin.dependency.utils.filters.DestFileFilter;
 
@@ -47,6 +48,18 @@ public class CopyMojo
      */
     private boolean stripVersion = false;
 
+    /**
+     * Decide whether <code>overWriteIfNewer</code> replaces an existing file by comparing
+     * SHA-1 digests instead of modification times. The digest of an artifact is taken from
+     * the <code>.sha1</code> file in the local repository when there is one that is not older
+     * than the artifact.
+     *
+     * @optional
+     * @since 2.4
+     * @parameter expression="${mdep.compareDigests}" default-value="false"
+     */
+    private boolean compareDigests;
+
     /**
      * Main entry into mojo. This method gets the ArtifactItems and iterates through each one passing it to
      * copyArtifact.
@@ -64,18 +77,26 @@ public class CopyMojo
             return;
         }
 
-        List<ArtifactItem> theArtifactItems = getProcessedArtifactItems( this.stripVersion );
-        for ( ArtifactItem artifactItem : theArtifactItems )
+        DirectoryLock lock = lockDirectories( getOutputDirectories() );
+        try
         {
-            if ( artifactItem.isNeedsProcessing() )
-            {
-                copyArtifact( artifactItem );
-            }
-            else
+            List<ArtifactItem> theArtifactItems = getProcessedArtifactItems( this.stripVersion );
+            for ( ArtifactItem artifactItem : theArtifactItems )
             {
-                this.getLog().info( artifactItem + " already exists in " + artifactItem.getOutputDirectory() );
+                if ( artifactItem.isNeedsProcessing() )
+                {
+                    copyArtifact( artifactItem );
+                }
+                else
+                {
+                    this.getLog().info( artifactItem + " already exists in " + artifactItem.getOutputDirectory() );
+                }
             }
         }
+        finally
+        {
+            unlockDirectories( lock );
+        }
     }
 
     /**
@@ -96,9 +117,10 @@ public class CopyMojo
 
     protected ArtifactItemFilter getMarkedArtifactFilter( ArtifactItem item )
     {
-        ArtifactItemFilter destinationNameOverrideFilter =
+        DestFileFilter destinationNameOverrideFilter =
             new DestFileFilter( this.isOverWriteReleases(), this.isOverWriteSnapshots(), this.isOverWriteIfNewer(),
                                 false, false, false, false, this.stripVersion, item.getOutputDirectory() );
+        destinationNameOverrideFilter.setCompareDigests( this.compareDigests );
         return destinationNameOverrideFilter;
     }
 
@@ -118,4 +140,20 @@ public class CopyMojo
         this.stripVersion = stripVersion;
     }
 
+    /**
+     * @return Returns the compareDigests.
+     */
+    public boolean isCompareDigests()
+    {
+        return this.compareDigests;
+    }
+
+    /**
+     * @param compareDigests The compareDigests to set.
+     */
+    public void setCompareDigests( boolean compareDigests )
+    {
+        this.compareDigests = compareDigests;
+    }
+
 }
@@ -20,9 +20,11 @@ package org.apache.maven.plugin.dependency.fromConfiguration;
  */
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
 import org.apache.maven.plugin.dependency.utils.filters.ArtifactItemFilter;
 import org.apache.maven.plugin.dependency.utils.filters.MarkerFileFilter;
 import org.apache.maven.plugin.dependency.utils.markers.MarkerHandler;
@@ -71,12 +73,13 @@ public final class UnpackMojo
 
     /**
      * Main entry into mojo. This method gets the ArtifactItems and iterates through each one passing it to
-     * unpackArtifact.
+     * unpackArtifacts. Items of the same artifact are unpacked together, so the archive is read only once
+     * whatever the number of includes, excludes and output directories it is unpacked with.
      * 
      * @throws MojoExecutionException with a message if an error occurs.
      * @see ArtifactItem
      * @see #getArtifactItems
-     * @see #unpackArtifact(ArtifactItem)
+     * @see #unpackArtifacts(List)
      */
     public void execute()
         throws MojoExecutionException
@@ -86,49 +89,146 @@ public final class UnpackMojo
             return;
         }
 
-        List<ArtifactItem> processedItems = getProcessedArtifactItems( false );
-        for ( ArtifactItem artifactItem : processedItems )
+        List<File> directories = getOutputDirectories();
+        directories.add( this.markersDirectory );
+        DirectoryLock lock = lockDirectories( directories );
+        try
         {
-            if ( artifactItem.isNeedsProcessing() )
+            List<ArtifactItem> neededItems = new ArrayList<ArtifactItem>();
+            List<ArtifactItem> processedItems = getProcessedArtifactItems( false );
+            for ( ArtifactItem artifactItem : processedItems )
             {
-                unpackArtifact( artifactItem );
+                if ( artifactItem.isNeedsProcessing() )
+                {
+                    neededItems.add( artifactItem );
+                }
+                else
+                {
+                    this.getLog().info( artifactItem.getArtifact().getFile().getName() + " already unpacked." );
+                }
             }
-            else
+
+            for ( List<ArtifactItem> items : groupByFile( neededItems ) )
+            {
+                unpackArtifacts( items );
+            }
+        }
+        finally
+        {
+            try
+            {
+                saveMarkerStores();
+            }
+            finally
+            {
+                unlockDirectories( lock );
+            }
+        }
+    }
+
+    /**
+     * Groups the items by artifact file, so that each group is unpacked in one pass where its first item is.
+     * An item joins the last group of its file only if no item of the groups after it has an output directory
+     * within or around its own: items unpacked into the same place overlay each other in declaration order.
+     * 
+     * @param artifactItems the items to unpack, in declaration order.
+     * @return the groups, in the order to unpack them.
+     */
+    static List<List<ArtifactItem>> groupByFile( List<ArtifactItem> artifactItems )
+    {
+        List<List<ArtifactItem>> groups = new ArrayList<List<ArtifactItem>>();
+        for ( ArtifactItem artifactItem : artifactItems )
+        {
+            File file = artifactItem.getArtifact().getFile().getAbsoluteFile();
+            List<ArtifactItem> group = null;
+            for ( int i = groups.size() - 1; i >= 0 && group == null; i-- )
             {
-                this.getLog().info( artifactItem.getArtifact().getFile().getName() + " already unpacked." );
+                List<ArtifactItem> candidate = groups.get( i );
+                if ( file.equals( candidate.get( 0 ).getArtifact().getFile().getAbsoluteFile() ) )
+                {
+                    group = candidate;
+                }
+                else if ( overlaps( candidate, artifactItem.getOutputDirectory() ) )
+                {
+                    break;
+                }
+            }
+            if ( group == null )
+            {
+                group = new ArrayList<ArtifactItem>();
+                groups.add( group );
+            }
+            group.add( artifactItem );
+        }
+        return groups;
+    }
+
+    private static boolean overlaps( List<ArtifactItem> group, File directory )
+    {
+        String path = directory.getAbsolutePath() + File.separator;
+        for ( ArtifactItem artifactItem : group )
+        {
+            String other = artifactItem.getOutputDirectory().getAbsolutePath() + File.separator;
+            if ( path.startsWith( other ) || other.startsWith( path ) )
+            {
+                return true;
             }
         }
+        return false;
     }
 
     /**
-     * This method gets the Artifact object and calls DependencyUtil.unpackFile.
+     * Unpacks the artifact of the items into the output directory of each item, with its includes and excludes,
+     * and sets their markers.
      * 
-     * @param artifactItem containing the information about the Artifact to unpack.
+     * @param artifactItems items of the same Artifact to unpack.
      * @throws MojoExecutionException with a message if an error occurs.
-     * @see #getArtifact
-     * @see DependencyUtil#unpackFile(Artifact, File, File, ArchiverManager, Log)
+     * @see #unpack(File, File[], String[], String[])
      */
-    private void unpackArtifact( ArtifactItem artifactItem )
+    private void unpackArtifacts( List<ArtifactItem> artifactItems )
         throws MojoExecutionException
     {
-        MarkerHandler handler = new UnpackFileMarkerHandler( artifactItem, this.markersDirectory );
+        File[] locations = new File[artifactItems.size()];
+        String[] includes = new String[locations.length];
+        String[] excludes = new String[locations.length];
+        for ( int i = 0; i < locations.length; i++ )
+        {
+            ArtifactItem artifactItem = artifactItems.get( i );
+            locations[i] = artifactItem.getOutputDirectory();
+            includes[i] = artifactItem.getIncludes();
+            excludes[i] = artifactItem.getExcludes();
+        }
 
-        unpack( artifactItem.getArtifact().getFile(), artifactItem.getOutputDirectory(), artifactItem.getIncludes(),
-                artifactItem.getExcludes() );
-        handler.setMarker();
+        unpack( artifactItems.get( 0 ).getArtifact().getFile(), locations, includes, excludes );
+
+        for ( ArtifactItem artifactItem : artifactItems )
+        {
+            MarkerHandler handler = getMarkerHandler( artifactItem );
+            handler.setMarker();
+        }
     }
 
     ArtifactItemFilter getMarkedArtifactFilter( ArtifactItem item )
     {
-        MarkerHandler handler = new UnpackFileMarkerHandler( item, this.markersDirectory );
+        MarkerHandler handler = getMarkerHandler( item );
 
         return new MarkerFileFilter( this.isOverWriteReleases(), this.isOverWriteSnapshots(),
                                      this.isOverWriteIfNewer(), handler );
     }
 
+    private MarkerHandler getMarkerHandler( ArtifactItem item )
+    {
+        UnpackFileMarkerHandler handler = new UnpackFileMarkerHandler( item, this.markersDirectory );
+        handler.setMarkerStore( getMarkerStore() );
+        handler.setMarkerIndex( getMarkerIndex() );
+        return handler;
+    }
+
     protected List<ArtifactItem> getProcessedArtifactItems( boolean removeVersion )
         throws MojoExecutionException
     {
+        // the items are checked against the markers as they are processed
+        preloadMarkers();
         List<ArtifactItem> items = super.getProcessedArtifactItems( removeVersion );
         for ( ArtifactItem artifactItem : items )
         {
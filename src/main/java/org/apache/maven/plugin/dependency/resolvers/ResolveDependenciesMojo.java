@@ -95,6 +95,10 @@ public class ResolveDependenciesMojo
 
     protected ArtifactsFilter getMarkedArtifactFilter()
     {
-        return new ResolveFileFilter( new SourcesFileMarkerHandler( this.markersDirectory ) );
+        preloadMarkers();
+        SourcesFileMarkerHandler handler = new SourcesFileMarkerHandler( this.markersDirectory );
+        handler.setMarkerStore( getMarkerStore() );
+        handler.setMarkerIndex( getMarkerIndex() );
+        return new ResolveFileFilter( handler );
     }
 }
@@ -69,20 +69,27 @@ public class ResolveDependencySourcesMojo
         // get sets of dependencies
         results = this.getDependencySets( false );
 
-        SourcesFileMarkerHandler handler = new SourcesFileMarkerHandler( this.markersDirectory );
-        handler.setResolved( true );
-
-        for ( Artifact artifact : results.getResolvedDependencies() )
+        SourcesFileMarkerHandler handler = getMarkerHandler();
+        try
         {
-            handler.setArtifact( artifact );
-            handler.setMarker();
-        }
+            handler.setResolved( true );
+
+            for ( Artifact artifact : results.getResolvedDependencies() )
+            {
+                handler.setArtifact( artifact );
+                handler.setMarker();
+            }
 
-        handler.setResolved( false );
-        for ( Artifact artifact : results.getUnResolvedDependencies() )
+            handler.setResolved( false );
+            for ( Artifact artifact : results.getUnResolvedDependencies() )
+            {
+                handler.setArtifact( artifact );
+                handler.setMarker();
+            }
+        }
+        finally
         {
-            handler.setArtifact( artifact );
-            handler.setMarker();
+            saveMarkerStores();
         }
 
         String output = results.getOutput( outputAbsoluteArtifactFilename, false );
@@ -103,8 +110,17 @@ public class ResolveDependencySourcesMojo
         }
     }
 
+    private SourcesFileMarkerHandler getMarkerHandler()
+    {
+        SourcesFileMarkerHandler handler = new SourcesFileMarkerHandler( this.markersDirectory );
+        handler.setMarkerStore( getMarkerStore() );
+        handler.setMarkerIndex( getMarkerIndex() );
+        return handler;
+    }
+
     protected ArtifactsFilter getMarkedArtifactFilter()
     {
-        return new ResolveFileFilter( new SourcesFileMarkerHandler( this.markersDirectory ) );
+        preloadMarkers();
+        return new ResolveFileFilter( getMarkerHandler() );
     }
 }
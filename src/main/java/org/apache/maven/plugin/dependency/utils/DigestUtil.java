@@ -0,0 +1,275 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Utility class with static helper methods to compute file digests.
+ *
+ * @version $Id$
+ */
+public final class DigestUtil
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int MAX_CACHED_DIGESTS = 10000;
+
+    /**
+     * Digests computed so far, by absolute path. An entry is only valid as long as
+     * the length, modification time and file key (inode) of the file are unchanged.
+     */
+    private static final Map<String, CachedDigest> CACHE = new LinkedHashMap<String, CachedDigest>( 256, 0.75f, true )
+    {
+        protected boolean removeEldestEntry( Map.Entry<String, CachedDigest> eldest )
+        {
+            return size() > MAX_CACHED_DIGESTS;
+        }
+    };
+
+    private DigestUtil()
+    {
+        // utility class
+    }
+
+    /**
+     * Computes the SHA-1 digest of a file.
+     *
+     * @param file the file to digest.
+     * @return the digest as lower case hex string.
+     * @throws IOException if the file can't be read.
+     */
+    public static String sha1( File file )
+        throws IOException
+    {
+        MessageDigest digest = newSha1();
+        FileInputStream in = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate( 64 * 1024 );
+            while ( channel.read( buffer ) != -1 )
+            {
+                buffer.flip();
+                digest.update( buffer );
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Returns the SHA-1 digest of a file, reusing the result of an earlier call as long
+     * as the file has not been modified since.
+     *
+     * @param file the file to digest.
+     * @return the digest as lower case hex string.
+     * @throws IOException if the file can't be read.
+     */
+    public static String getDigest( File file )
+        throws IOException
+    {
+        return getDigest( file, false );
+    }
+
+    /**
+     * Returns the SHA-1 digest of an artifact file. The digest is read from the
+     * <code>.sha1</code> file the repository keeps next to the artifact when there is
+     * one and it was written after the artifact, otherwise it is computed: a snapshot
+     * installed again leaves the checksum file of the previous one behind. Results are memoized like {@link #getDigest(File)}.
+     *
+     * @param file the artifact file.
+     * @return the digest as lower case hex string.
+     * @throws IOException if the file can't be read.
+     */
+    public static String getArtifactDigest( File file )
+        throws IOException
+    {
+        return getDigest( file, true );
+    }
+
+    private static String getDigest( File file, boolean useChecksumFile )
+        throws IOException
+    {
+        String key = file.getAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes( file.toPath(), BasicFileAttributes.class );
+
+        synchronized ( CACHE )
+        {
+            CachedDigest cached = CACHE.get( key );
+            if ( cached != null && cached.matches( attributes ) )
+            {
+                return cached.digest;
+            }
+        }
+
+        String digest = null;
+        if ( useChecksumFile )
+        {
+            digest = readChecksumFile( new File( file.getPath() + ".sha1" ), attributes );
+        }
+        if ( digest == null )
+        {
+            digest = sha1( file );
+        }
+
+        synchronized ( CACHE )
+        {
+            CACHE.put( key, new CachedDigest( attributes, digest ) );
+        }
+        return digest;
+    }
+
+    /**
+     * Reads a checksum file as written by Maven: the hex digest, optionally followed by the file name.
+     *
+     * @return the digest or <code>null</code> if there is no usable checksum file, or if it is older than the file.
+     */
+    private static String readChecksumFile( File checksumFile, BasicFileAttributes attributes )
+    {
+        if ( !checksumFile.isFile() || checksumFile.lastModified() < attributes.lastModifiedTime().toMillis() )
+        {
+            return null;
+        }
+        try
+        {
+            String[] tokens = StringUtils.split( FileUtils.fileRead( checksumFile, "US-ASCII" ) );
+            if ( tokens.length > 0 && tokens[0].matches( "[0-9a-fA-F]{40}" ) )
+            {
+                return tokens[0].toLowerCase( Locale.ENGLISH );
+            }
+        }
+        catch ( IOException e )
+        {
+            // fall back to computing the digest
+        }
+        return null;
+    }
+
+    /**
+     * Computes the SHA-1 digest of a string in UTF-8 encoding.
+     *
+     * @param value the string to digest.
+     * @return the digest as lower case hex string.
+     */
+    public static String sha1( String value )
+    {
+        try
+        {
+            return toHex( newSha1().digest( value.getBytes( "UTF-8" ) ) );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "UTF-8 is not supported", e );
+        }
+    }
+
+    /**
+     * Tells whether two files have the same length and SHA-1 digest.
+     *
+     * @return <code>true</code> if both files exist and have the same content.
+     * @throws IOException if one of the files can't be read.
+     */
+    public static boolean isSameContent( File file1, File file2 )
+        throws IOException
+    {
+        return file1.isFile() && file2.isFile() && file1.length() == file2.length()
+            && getDigest( file1 ).equals( getDigest( file2 ) );
+    }
+
+    /**
+     * Discards all memoized digests.
+     */
+    public static void clearCache()
+    {
+        synchronized ( CACHE )
+        {
+            CACHE.clear();
+        }
+    }
+
+    static String toHex( byte[] bytes )
+    {
+        char[] chars = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            chars[i * 2] = HEX[( bytes[i] >> 4 ) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String( chars );
+    }
+
+    private static MessageDigest newSha1()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is not supported by this JVM", e );
+        }
+    }
+
+    private static class CachedDigest
+    {
+        private final long length;
+
+        private final FileTime lastModified;
+
+        private final Object fileKey;
+
+        private final String digest;
+
+        CachedDigest( BasicFileAttributes attributes, String digest )
+        {
+            this.length = attributes.size();
+            this.lastModified = attributes.lastModifiedTime();
+            this.fileKey = attributes.fileKey();
+            this.digest = digest;
+        }
+
+        boolean matches( BasicFileAttributes attributes )
+        {
+            return length == attributes.size() && lastModified.equals( attributes.lastModifiedTime() )
+                && ( fileKey == null ? attributes.fileKey() == null : fileKey.equals( attributes.fileKey() ) );
+        }
+    }
+}
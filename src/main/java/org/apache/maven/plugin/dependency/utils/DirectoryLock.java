@@ -0,0 +1,317 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * An exclusive lock on a set of directories, held by one build at a time, whether the
+ * other builds are threads of the same JVM (<code>mvn -T</code>) or other processes.
+ * <p>
+ * Each directory is locked through a lock file of a locks directory, named after the SHA-1
+ * of the canonical path of the directory, so nothing is added to the directory itself nor
+ * next to it: a {@link FileLock} keeps other processes out and, because a JVM can hold a
+ * file lock only once, a {@link ReentrantLock} per directory keeps the other threads of this
+ * JVM out. Builds using different locks directories only keep each other out within a JVM.
+ * The same thread may lock a directory again. The directories are always locked in the same
+ * order, two builds locking some of the same directories can't deadlock. The wait for a lock
+ * is bounded, a file lock that is never granted, on some network file systems, ends in a
+ * {@link LockTimeoutException} rather than a hung build. The lock files are left behind: deleting them would let a
+ * waiting build lock a file that is no longer the one the next build locks.
+ *
+ * @version $Id$
+ */
+public class DirectoryLock
+{
+    /**
+     * The time between two attempts to lock a file held by another process.
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    private static final Map<File, Holder> HOLDERS = new HashMap<File, Holder>();
+
+    private final List<Holder> holders;
+
+    private DirectoryLock( List<Holder> holders )
+    {
+        this.holders = holders;
+    }
+
+    /**
+     * Locks directories, waiting for the builds holding them to release them.
+     *
+     * @param directories the directories to lock, they don't need to exist.
+     * @param locksDirectory the directory of the lock files, created if needed.
+     * @param timeout the time to wait for the directories, in milliseconds.
+     * @param log told about the directories held by another build, before waiting for them.
+     * @return the lock, to {@link #release()} when done.
+     * @throws LockTimeoutException if the directories are still held by another build after
+     *             <code>timeout</code>.
+     * @throws IOException if a lock file can't be created or locked.
+     */
+    public static DirectoryLock lock( Collection<File> directories, File locksDirectory, long timeout, Log log )
+        throws IOException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        TreeSet<File> sorted = new TreeSet<File>();
+        for ( File directory : directories )
+        {
+            sorted.add( directory.getCanonicalFile() );
+        }
+
+        List<Holder> locked = new ArrayList<Holder>( sorted.size() );
+        try
+        {
+            for ( File directory : sorted )
+            {
+                Holder holder = getHolder( directory );
+                holder.lock( locksDirectory, deadline, log );
+                locked.add( holder );
+            }
+        }
+        catch ( IOException e )
+        {
+            new DirectoryLock( locked ).release();
+            throw e;
+        }
+        return new DirectoryLock( locked );
+    }
+
+    private static Holder getHolder( File directory )
+    {
+        synchronized ( HOLDERS )
+        {
+            Holder holder = HOLDERS.get( directory );
+            if ( holder == null )
+            {
+                holder = new Holder( directory );
+                HOLDERS.put( directory, holder );
+            }
+            return holder;
+        }
+    }
+
+    /**
+     * @param locksDirectory the directory of the lock files.
+     * @param directory a directory.
+     * @return the file locking the directory.
+     * @throws IOException if the canonical path of the directory can't be resolved.
+     */
+    public static File getLockFile( File locksDirectory, File directory )
+        throws IOException
+    {
+        return new File( locksDirectory, DigestUtil.sha1( directory.getCanonicalPath() ) + ".lock" );
+    }
+
+    /**
+     * Releases the directories, in the reverse order they were locked. Only the thread that
+     * locked them may release them.
+     *
+     * @throws IOException if a file lock can't be released, the other locks are released anyway.
+     */
+    public void release()
+        throws IOException
+    {
+        IOException failure = null;
+        for ( int i = holders.size() - 1; i >= 0; i-- )
+        {
+            try
+            {
+                holders.get( i ).unlock();
+            }
+            catch ( IOException e )
+            {
+                failure = e;
+            }
+        }
+        holders.clear();
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * The locks of a directory in this JVM.
+     */
+    private static class Holder
+    {
+        private final File directory;
+
+        private final ReentrantLock threadLock = new ReentrantLock();
+
+        private RandomAccessFile file;
+
+        private FileLock fileLock;
+
+        Holder( File directory )
+        {
+            this.directory = directory;
+        }
+
+        void lock( File locksDirectory, long deadline, Log log )
+            throws IOException
+        {
+            try
+            {
+                if ( !threadLock.tryLock() )
+                {
+                    log.info( "Waiting for another build writing to " + directory );
+                    if ( !threadLock.tryLock( deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS ) )
+                    {
+                        throw new LockTimeoutException( "Timed out waiting for another build writing to "
+                            + directory );
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                throw new InterruptedIOException( "Interrupted waiting for the lock of " + directory );
+            }
+            if ( threadLock.getHoldCount() > 1 )
+            {
+                // the file is already locked by this thread
+                return;
+            }
+
+            try
+            {
+                File lockFile = getLockFile( locksDirectory, directory );
+                lockFile.getParentFile().mkdirs();
+                file = new RandomAccessFile( lockFile, "rw" );
+                fileLock = tryLock( file.getChannel() );
+                if ( fileLock == null )
+                {
+                    log.info( "Waiting for another build writing to " + directory );
+                }
+                while ( fileLock == null )
+                {
+                    if ( System.currentTimeMillis() >= deadline )
+                    {
+                        throw new LockTimeoutException( "Timed out waiting for another build writing to "
+                            + directory + ", locked by " + lockFile );
+                    }
+                    Thread.sleep( RETRY_MILLIS );
+                    fileLock = tryLock( file.getChannel() );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                closeFile();
+                threadLock.unlock();
+                throw new InterruptedIOException( "Interrupted waiting for the lock of " + directory );
+            }
+            catch ( IOException e )
+            {
+                closeFile();
+                threadLock.unlock();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the lock, or <code>null</code> if another process, or another copy of this class in
+         *         this JVM, holds it.
+         */
+        private static FileLock tryLock( FileChannel channel )
+            throws IOException
+        {
+            try
+            {
+                return channel.tryLock();
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                return null;
+            }
+        }
+
+        void unlock()
+            throws IOException
+        {
+            try
+            {
+                if ( threadLock.getHoldCount() == 1 )
+                {
+                    try
+                    {
+                        fileLock.release();
+                    }
+                    finally
+                    {
+                        closeFile();
+                    }
+                }
+            }
+            finally
+            {
+                threadLock.unlock();
+            }
+        }
+
+        private void closeFile()
+        {
+            fileLock = null;
+            if ( file != null )
+            {
+                try
+                {
+                    file.close();
+                }
+                catch ( IOException e )
+                {
+                    // the lock is released with the file
+                }
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * Thrown when a directory is still held by another build once the time to wait for it is over,
+     * unlike the other failures to lock, which tell that the file system can't lock files.
+     */
+    public static class LockTimeoutException
+        extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        LockTimeoutException( String message )
+        {
+            super( message );
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.Os;
+
+/**
+ * Places a file at its destination according to a copy mode. The link modes
+ * fall back to a plain copy when the file system can't create the link, e.g.
+ * when source and destination are on different devices.
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ *
+ * @version $Id$
+ */
+public class FileCopier
+{
+    /**
+     * Copy the bytes of the file. The copy is skipped when the destination already
+     * has the same content.
+     */
+    public static final String COPY = "copy";
+
+    /**
+     * Create a hard link to the source file.
+     */
+    public static final String HARDLINK = "hardlink";
+
+    /**
+     * Create a copy-on-write clone of the source file (btrfs, xfs, apfs...).
+     */
+    public static final String REFLINK = "reflink";
+
+    /**
+     * Create a symbolic link pointing to the absolute path of the source file.
+     */
+    public static final String SYMLINK = "symlink";
+
+    private final String mode;
+
+    /**
+     * @param mode one of {@link #COPY}, {@link #HARDLINK}, {@link #REFLINK} or {@link #SYMLINK}.
+     * @throws IllegalArgumentException if the mode is unknown.
+     */
+    public FileCopier( String mode )
+    {
+        if ( !COPY.equals( mode ) && !HARDLINK.equals( mode ) && !REFLINK.equals( mode ) && !SYMLINK.equals( mode ) )
+        {
+            throw new IllegalArgumentException( "Unknown copy mode '" + mode + "', expected one of " + COPY + ", "
+                + HARDLINK + ", " + REFLINK + " or " + SYMLINK );
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * @return Returns the mode.
+     */
+    public String getMode()
+    {
+        return this.mode;
+    }
+
+    /**
+     * Places <code>src</code> at <code>dest</code>, replacing whatever was there before.
+     *
+     * @param src the file to copy.
+     * @param dest the destination file.
+     * @throws IOException if the file can't be copied.
+     */
+    public void copy( File src, File dest )
+        throws IOException
+    {
+        if ( !src.isFile() )
+        {
+            throw new IOException( "File " + src + " does not exist" );
+        }
+        if ( dest.getParentFile() != null )
+        {
+            dest.getParentFile().mkdirs();
+        }
+
+        if ( HARDLINK.equals( mode ) && link( src, dest, false ) )
+        {
+            return;
+        }
+        if ( SYMLINK.equals( mode ) && link( src, dest, true ) )
+        {
+            return;
+        }
+        if ( REFLINK.equals( mode ) && reflink( src, dest ) )
+        {
+            return;
+        }
+
+        copyContents( src, dest );
+    }
+
+    /**
+     * Copies the bytes of <code>src</code> through a temporary file that is renamed over
+     * <code>dest</code>, so an interrupted copy never leaves a truncated destination behind.
+     * When the destination already holds the same bytes it is only touched, as if it had
+     * been rewritten.
+     */
+    private void copyContents( File src, File dest )
+        throws IOException
+    {
+        Path target = dest.toPath();
+        if ( isCopyOf( src, target ) && DigestUtil.isSameContent( src, dest ) )
+        {
+            dest.setLastModified( System.currentTimeMillis() );
+            return;
+        }
+
+        Path tmp = createTempPath( dest );
+        try
+        {
+            FileInputStream in = new FileInputStream( src );
+            FileOutputStream out = null;
+            try
+            {
+                out = new FileOutputStream( tmp.toFile() );
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                long position = 0;
+                while ( position < size )
+                {
+                    long n = inChannel.transferTo( position, size - position, outChannel );
+                    if ( n <= 0 )
+                    {
+                        // truncated while copying
+                        throw new IOException( "Unexpected end of " + src + " after " + position + " of " + size
+                            + " bytes" );
+                    }
+                    position += n;
+                }
+            }
+            finally
+            {
+                IOUtil.close( out );
+                IOUtil.close( in );
+            }
+
+            // never write through a link left behind by a previous execution, replace it
+            replace( tmp, target );
+        }
+        finally
+        {
+            deleteQuietly( tmp );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the target is a regular file that is not a link to the source.
+     */
+    private static boolean isCopyOf( File src, Path target )
+        throws IOException
+    {
+        return Files.isRegularFile( target, LinkOption.NOFOLLOW_LINKS ) && !Files.isSameFile( src.toPath(), target );
+    }
+
+    private boolean link( File src, File dest, boolean symbolic )
+    {
+        Path target = dest.toPath();
+        Path tmp = null;
+        try
+        {
+            if ( !symbolic && Files.exists( target ) && Files.isSameFile( src.toPath(), target ) )
+            {
+                return true;
+            }
+
+            tmp = createTempPath( dest );
+            // the link takes the unique name
+            Files.delete( tmp );
+            if ( symbolic )
+            {
+                Files.createSymbolicLink( tmp, src.getAbsoluteFile().toPath() );
+            }
+            else
+            {
+                Files.createLink( tmp, src.toPath() );
+            }
+            replace( tmp, target );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            return false;
+        }
+        catch ( SecurityException e )
+        {
+            return false;
+        }
+        finally
+        {
+            deleteQuietly( tmp );
+        }
+    }
+
+    private boolean reflink( File src, File dest )
+    {
+        // there is no Java API for clones, cp does the ioctl for us where the file system supports it
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) )
+        {
+            return false;
+        }
+
+        Path tmp = null;
+        try
+        {
+            tmp = createTempPath( dest );
+            Files.delete( tmp );
+            String reflinkOption = Os.isFamily( Os.FAMILY_MAC ) ? "-c" : "--reflink=always";
+            Process process =
+                new ProcessBuilder( "cp", reflinkOption, src.getAbsolutePath(), tmp.toString() ).redirectErrorStream(
+                    true ).start();
+            process.getOutputStream().close();
+            while ( process.getInputStream().read() != -1 )
+            {
+                // drain the output so the process can't block
+            }
+            if ( process.waitFor() != 0 )
+            {
+                Files.deleteIfExists( tmp );
+                return false;
+            }
+            replace( tmp, dest.toPath() );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            deleteQuietly( tmp );
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            deleteQuietly( tmp );
+            return false;
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to <code>dest</code>, with a name of its own so
+     * that concurrent copies to the same destination don't write through each other.
+     */
+    private static Path createTempPath( File dest )
+        throws IOException
+    {
+        return Files.createTempFile( dest.getAbsoluteFile().getParentFile().toPath(), "." + dest.getName(), ".tmp" );
+    }
+
+    private static void replace( Path tmp, Path target )
+        throws IOException
+    {
+        try
+        {
+            Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    private static void deleteQuietly( Path path )
+    {
+        if ( path == null )
+        {
+            return;
+        }
+        try
+        {
+            Files.deleteIfExists( path );
+        }
+        catch ( IOException e )
+        {
+            // nothing left to clean up
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Index of the files copied to an output directory, kept in the markers directory.
+ * Every line of the manifest describes one artifact, tab separated:
+ * <pre>
+ * coordinate  path  size  lastModified  sha1  sourceSize  sourceLastModified
+ * </pre>
+ * The path is relative to the output directory and uses <code>/</code> as separator.
+ * An entry is trusted without looking at the copied file as long as the source file
+ * has the recorded size and modification time and the destination directory still
+ * lists the file, which costs one directory listing per destination directory instead
+ * of a few stats per artifact.
+ *
+ * @version $Id$
+ */
+public class OutputManifest
+{
+    private static final String HEADER = "# output manifest 1";
+
+    private final File manifestFile;
+
+    private final File baseDirectory;
+
+    private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+    private final Map<File, Set<String>> listings = new HashMap<File, Set<String>>();
+
+    /**
+     * @param manifestFile the file the manifest is stored in.
+     * @param baseDirectory the directory the paths of the manifest are relative to.
+     */
+    public OutputManifest( File manifestFile, File baseDirectory )
+    {
+        this.manifestFile = manifestFile;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * @param markersDirectory the markers directory.
+     * @param outputDirectory the output directory described by the manifest.
+     * @return the manifest file for the output directory.
+     */
+    public static File getManifestFile( File markersDirectory, File outputDirectory )
+    {
+        String id = DigestUtil.sha1( outputDirectory.getAbsolutePath() ).substring( 0, 12 );
+        return new File( markersDirectory, "output-" + id + ".manifest" );
+    }
+
+    /**
+     * @return Returns the manifestFile.
+     */
+    public File getManifestFile()
+    {
+        return this.manifestFile;
+    }
+
+    /**
+     * Reads the manifest file. A missing or unreadable manifest leaves the index empty.
+     */
+    public void load()
+    {
+        entries.clear();
+        listings.clear();
+        if ( !manifestFile.isFile() )
+        {
+            return;
+        }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( ReaderFactory.newReader( manifestFile, "UTF-8" ) );
+            String line = reader.readLine();
+            if ( !HEADER.equals( line ) )
+            {
+                return;
+            }
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String[] fields = StringUtils.split( line, "\t" );
+                if ( fields.length == 7 )
+                {
+                    Entry entry =
+                        new Entry( fields[0], fields[1], Long.parseLong( fields[2] ), Long.parseLong( fields[3] ),
+                                   fields[4], Long.parseLong( fields[5] ), Long.parseLong( fields[6] ) );
+                    entries.put( entry.getCoordinate(), entry );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // start over
+            entries.clear();
+        }
+        catch ( NumberFormatException e )
+        {
+            // start over
+            entries.clear();
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * @param coordinate the artifact id.
+     * @return the entry or <code>null</code> if the artifact is not in the manifest.
+     */
+    public Entry getEntry( String coordinate )
+    {
+        return entries.get( coordinate );
+    }
+
+    /**
+     * @return all entries, sorted by coordinate.
+     */
+    public Collection<Entry> getEntries()
+    {
+        return entries.values();
+    }
+
+    /**
+     * Looks up the entry of an artifact and checks that it still describes the destination file.
+     *
+     * @param coordinate the artifact id.
+     * @param source the artifact file.
+     * @param destFile the file the artifact is expected to be copied to.
+     * @return the entry or <code>null</code> if the manifest can't be trusted for this artifact.
+     */
+    public Entry getUpToDateEntry( String coordinate, File source, File destFile )
+    {
+        Entry entry = entries.get( coordinate );
+        if ( entry == null || !entry.getPath().equals( getRelativePath( destFile ) ) )
+        {
+            return null;
+        }
+        if ( source == null || source.length() != entry.getSourceSize()
+            || source.lastModified() != entry.getSourceLastModified() )
+        {
+            return null;
+        }
+        return isListed( destFile ) ? entry : null;
+    }
+
+    private synchronized boolean isListed( File file )
+    {
+        File dir = file.getParentFile();
+        Set<String> names = listings.get( dir );
+        if ( names == null )
+        {
+            String[] list = dir.list();
+            names = list == null ? new HashSet<String>() : new HashSet<String>( Arrays.asList( list ) );
+            listings.put( dir, names );
+        }
+        return names.contains( file.getName() );
+    }
+
+    /**
+     * Records that an artifact has been copied.
+     *
+     * @param coordinate the artifact id.
+     * @param source the artifact file.
+     * @param destFile the copy.
+     * @throws IOException if the digest of the artifact can't be computed.
+     */
+    public void put( String coordinate, File source, File destFile )
+        throws IOException
+    {
+        if ( !destFile.isFile() )
+        {
+            entries.remove( coordinate );
+            return;
+        }
+        entries.put( coordinate, new Entry( coordinate, getRelativePath( destFile ), destFile.length(),
+                                            destFile.lastModified(), DigestUtil.getArtifactDigest( source ),
+                                            source.length(), source.lastModified() ) );
+    }
+
+    /**
+     * Drops the entries of all artifacts not in <code>coordinates</code>.
+     *
+     * @param coordinates the ids of the artifacts to keep.
+     */
+    public void retain( Collection<String> coordinates )
+    {
+        entries.keySet().retainAll( coordinates );
+    }
+
+    /**
+     * Writes the manifest file, replacing the previous one.
+     *
+     * @throws IOException if the manifest can't be written.
+     */
+    public void save()
+        throws IOException
+    {
+        manifestFile.getParentFile().mkdirs();
+        Path tmp = Files.createTempFile( manifestFile.getParentFile().toPath(), "." + manifestFile.getName(), ".tmp" );
+        try
+        {
+            Writer writer = WriterFactory.newWriter( tmp.toFile(), "UTF-8" );
+            try
+            {
+                writer.write( HEADER + "\n" );
+                for ( Entry entry : entries.values() )
+                {
+                    writer.write( entry.getCoordinate() + "\t" + entry.getPath() + "\t" + entry.getSize() + "\t"
+                        + entry.getLastModified() + "\t" + entry.getDigest() + "\t" + entry.getSourceSize() + "\t"
+                        + entry.getSourceLastModified() + "\n" );
+                }
+            }
+            finally
+            {
+                IOUtil.close( writer );
+            }
+            Files.move( tmp, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    private String getRelativePath( File file )
+    {
+        Path path = baseDirectory.getAbsoluteFile().toPath().relativize( file.getAbsoluteFile().toPath() );
+        return path.toString().replace( File.separatorChar, '/' );
+    }
+
+    /**
+     * A copied artifact.
+     */
+    public static class Entry
+    {
+        private final String coordinate;
+
+        private final String path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String digest;
+
+        private final long sourceSize;
+
+        private final long sourceLastModified;
+
+        Entry( String coordinate, String path, long size, long lastModified, String digest, long sourceSize,
+               long sourceLastModified )
+        {
+            this.coordinate = coordinate;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.sourceSize = sourceSize;
+            this.sourceLastModified = sourceLastModified;
+        }
+
+        public String getCoordinate()
+        {
+            return this.coordinate;
+        }
+
+        public String getPath()
+        {
+            return this.path;
+        }
+
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        public long getLastModified()
+        {
+            return this.lastModified;
+        }
+
+        public String getDigest()
+        {
+            return this.digest;
+        }
+
+        public long getSourceSize()
+        {
+            return this.sourceSize;
+        }
+
+        public long getSourceLastModified()
+        {
+            return this.sourceLastModified;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.metadata.ArtifactRepositoryMetadata;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotArtifactRepositoryMetadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.WriterFactory;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Installs artifacts into a directory with repository layout in one batch. All files
+ * are placed first, then every <code>maven-metadata-&lt;id&gt;.xml</code> is written once,
+ * instead of once per installed file as the <code>ArtifactInstaller</code> does. When the
+ * same source file is added more than once (e.g. a timestamped snapshot and its base
+ * version), the duplicates are hard linked to the first copy.
+ *
+ * @version $Id$
+ */
+public class RepositoryLayoutInstaller
+{
+    private final ArtifactRepository repository;
+
+    private final FileCopier copier;
+
+    private final FileCopier linker = new FileCopier( FileCopier.HARDLINK );
+
+    private final Log log;
+
+    /**
+     * Destination files by source file, in the order they were added.
+     */
+    private final Map<File, List<File>> destinations = new LinkedHashMap<File, List<File>>();
+
+    /**
+     * Metadata to write, by relative path of the metadata file.
+     */
+    private final Map<String, Metadata> metadata = new LinkedHashMap<String, Metadata>();
+
+    /**
+     * @param repository the repository to install into. Only local file repositories are supported.
+     * @param copier places the first copy of every source file.
+     * @param log the log to report installed files to.
+     */
+    public RepositoryLayoutInstaller( ArtifactRepository repository, FileCopier copier, Log log )
+    {
+        this.repository = repository;
+        this.copier = copier;
+        this.log = log;
+    }
+
+    /**
+     * Adds an artifact to the batch. Nothing is written before {@link #install()}.
+     *
+     * @param source the file to install.
+     * @param artifact the artifact the file is installed as.
+     */
+    public void add( File source, Artifact artifact )
+    {
+        File destFile = new File( repository.getBasedir(), repository.pathOf( artifact ) );
+        List<File> dests = destinations.get( source );
+        if ( dests == null )
+        {
+            dests = new ArrayList<File>();
+            destinations.put( source, dests );
+        }
+        if ( !dests.contains( destFile ) )
+        {
+            dests.add( destFile );
+        }
+
+        Versioning versioning = new Versioning();
+        // the versions of the artifact level metadata are the base versions, never the timestamped ones
+        versioning.addVersion( artifact.getBaseVersion() );
+        addMetadata( getMetadataPath( repository, new ArtifactRepositoryMetadata( artifact ) ), artifact, versioning );
+
+        if ( artifact.isSnapshot() )
+        {
+            Snapshot snapshot = new Snapshot();
+            snapshot.setLocalCopy( true );
+            versioning = new Versioning();
+            versioning.setSnapshot( snapshot );
+            addMetadata( getMetadataPath( repository, new SnapshotArtifactRepositoryMetadata( artifact ) ), artifact,
+                         versioning );
+        }
+    }
+
+    /**
+     * Lists the files installing an artifact writes: the artifact itself and its metadata.
+     *
+     * @param repository the repository the artifact is installed into.
+     * @param artifact the artifact.
+     * @return the files.
+     */
+    public static List<File> getFiles( ArtifactRepository repository, Artifact artifact )
+    {
+        List<File> files = new ArrayList<File>();
+        files.add( new File( repository.getBasedir(), repository.pathOf( artifact ) ) );
+        files.add( new File( repository.getBasedir(),
+                             getMetadataPath( repository, new ArtifactRepositoryMetadata( artifact ) ) ) );
+        if ( artifact.isSnapshot() )
+        {
+            files.add( new File( repository.getBasedir(),
+                                 getMetadataPath( repository, new SnapshotArtifactRepositoryMetadata( artifact ) ) ) );
+        }
+        return files;
+    }
+
+    private static String getMetadataPath( ArtifactRepository repository, RepositoryMetadata repositoryMetadata )
+    {
+        return repository.pathOfLocalRepositoryMetadata( repositoryMetadata, repository );
+    }
+
+    private void addMetadata( String path, Artifact artifact, Versioning versioning )
+    {
+        Metadata update = metadata.get( path );
+        if ( update == null )
+        {
+            update = new Metadata();
+            update.setGroupId( artifact.getGroupId() );
+            update.setArtifactId( artifact.getArtifactId() );
+            update.setVersion( artifact.getBaseVersion() );
+            update.setVersioning( new Versioning() );
+            metadata.put( path, update );
+        }
+
+        Metadata source = new Metadata();
+        source.setVersioning( versioning );
+        update.merge( source );
+    }
+
+    /**
+     * Places all added files and writes the repository metadata.
+     *
+     * @return the files that were written, artifacts and metadata.
+     * @throws IOException if a file can't be written.
+     */
+    public List<File> install()
+        throws IOException
+    {
+        List<File> installed = new ArrayList<File>();
+
+        for ( Map.Entry<File, List<File>> entry : destinations.entrySet() )
+        {
+            File source = entry.getKey();
+            File first = null;
+            for ( File destFile : entry.getValue() )
+            {
+                log.info( "Installing " + source.getPath() + " to " + destFile );
+                if ( first == null )
+                {
+                    copier.copy( source, destFile );
+                    first = destFile;
+                }
+                else
+                {
+                    linker.copy( first, destFile );
+                }
+                installed.add( destFile );
+            }
+        }
+
+        String timestamp = null;
+        for ( Map.Entry<String, Metadata> entry : metadata.entrySet() )
+        {
+            File metadataFile = new File( repository.getBasedir(), entry.getKey() );
+            Metadata update = entry.getValue();
+            if ( timestamp == null )
+            {
+                update.getVersioning().updateTimestamp();
+                timestamp = update.getVersioning().getLastUpdated();
+            }
+            else
+            {
+                // one timestamp for the whole batch
+                update.getVersioning().setLastUpdated( timestamp );
+            }
+
+            Metadata existing = readMetadata( metadataFile );
+            if ( existing == null )
+            {
+                writeMetadata( metadataFile, update );
+            }
+            else if ( existing.merge( update ) )
+            {
+                writeMetadata( metadataFile, existing );
+            }
+            installed.add( metadataFile );
+        }
+
+        destinations.clear();
+        metadata.clear();
+        return installed;
+    }
+
+    private static Metadata readMetadata( File metadataFile )
+        throws IOException
+    {
+        if ( !metadataFile.isFile() )
+        {
+            return null;
+        }
+
+        Reader reader = ReaderFactory.newXmlReader( metadataFile );
+        try
+        {
+            return new MetadataXpp3Reader().read( reader, false );
+        }
+        catch ( XmlPullParserException e )
+        {
+            // same as the installer, a broken file is replaced
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private static void writeMetadata( File metadataFile, Metadata metadata )
+        throws IOException
+    {
+        metadataFile.getParentFile().mkdirs();
+        // replace the file rather than writing into it, it may be linked to a previous output
+        Path tmp = Files.createTempFile( metadataFile.getParentFile().toPath(), "." + metadataFile.getName(), ".tmp" );
+        try
+        {
+            Writer writer = WriterFactory.newXmlWriter( tmp.toFile() );
+            try
+            {
+                new MetadataXpp3Writer().write( writer, metadata );
+            }
+            finally
+            {
+                IOUtil.close( writer );
+            }
+            Files.move( tmp, metadataFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmp );
+        }
+    }
+}
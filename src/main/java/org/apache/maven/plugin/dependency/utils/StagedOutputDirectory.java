@@ -0,0 +1,271 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * An output directory that is built in a sibling staging directory and swapped in
+ * when the build succeeds, so a failed build never leaves a partial output behind.
+ * <p>
+ * The staging directory starts as a copy of the previous output made of hard links,
+ * which keeps {@link #begin()} cheap and lets the usual up-to-date checks work against
+ * the staging directory. Files must therefore never be written in place in the staging
+ * directory, they have to be replaced (see {@link FileCopier} and {@link #moveInto(File, File)}).
+ * <p>
+ * The swap renames the output directory aside and the staging directory into its place.
+ * Each rename is atomic; should the build die in between, the next {@link #begin()}
+ * puts the previous output back.
+ *
+ * @version $Id$
+ */
+public class StagedOutputDirectory
+{
+    private final File directory;
+
+    private final File stagingDirectory;
+
+    private final File previousDirectory;
+
+    /**
+     * @param directory the output directory.
+     */
+    public StagedOutputDirectory( File directory )
+    {
+        this.directory = directory.getAbsoluteFile();
+        this.stagingDirectory = new File( this.directory.getParentFile(), "." + this.directory.getName() + ".staging" );
+        this.previousDirectory = new File( this.directory.getParentFile(), "." + this.directory.getName() + ".old" );
+    }
+
+    /**
+     * @return Returns the output directory.
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    /**
+     * @return Returns the staging directory.
+     */
+    public File getStagingDirectory()
+    {
+        return this.stagingDirectory;
+    }
+
+    /**
+     * Creates the staging directory, linking in the files of the previous output.
+     *
+     * @return the staging directory.
+     * @throws IOException if the staging directory can't be created.
+     */
+    public File begin()
+        throws IOException
+    {
+        // a previous swap was interrupted half way
+        if ( previousDirectory.exists() )
+        {
+            if ( directory.exists() )
+            {
+                FileUtils.deleteDirectory( previousDirectory );
+            }
+            else
+            {
+                Files.move( previousDirectory.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+        }
+
+        FileUtils.deleteDirectory( stagingDirectory );
+        stagingDirectory.mkdirs();
+        if ( directory.isDirectory() )
+        {
+            linkTree( directory.toPath(), stagingDirectory.toPath() );
+        }
+        return stagingDirectory;
+    }
+
+    /**
+     * Creates an empty scratch directory next to the staging directory, on the same file system.
+     *
+     * @return the scratch directory.
+     * @throws IOException if the directory can't be created.
+     */
+    public File createScratchDirectory()
+        throws IOException
+    {
+        return createScratchDirectory( directory );
+    }
+
+    /**
+     * Creates an empty scratch directory next to a directory, on the same file system.
+     *
+     * @param directory the directory the scratch directory is for.
+     * @return the scratch directory.
+     * @throws IOException if the directory can't be created.
+     */
+    public static File createScratchDirectory( File directory )
+        throws IOException
+    {
+        File parent = directory.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        return Files.createTempDirectory( parent.toPath(), "." + directory.getName() + ".scratch" ).toFile();
+    }
+
+    /**
+     * Moves the content of a scratch directory into the staging directory, replacing
+     * existing files instead of writing into them. The scratch directory is deleted.
+     *
+     * @param scratchDirectory the directory to move the files from.
+     * @param target the directory inside the staging directory to move the files to.
+     * @throws IOException if a file can't be moved.
+     */
+    public void moveInto( File scratchDirectory, File target )
+        throws IOException
+    {
+        moveTree( scratchDirectory, target );
+    }
+
+    /**
+     * Moves the content of a directory into another one, replacing existing files instead
+     * of writing into them. The source directory is deleted.
+     *
+     * @param scratchDirectory the directory to move the files from.
+     * @param target the directory to move the files to.
+     * @throws IOException if a file can't be moved.
+     */
+    public static void moveTree( File scratchDirectory, File target )
+        throws IOException
+    {
+        final Path source = scratchDirectory.toPath();
+        final Path dest = target.toPath();
+        Files.walkFileTree( source, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Files.createDirectories( dest.resolve( source.relativize( dir ) ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Path targetFile = dest.resolve( source.relativize( file ) );
+                if ( Files.isDirectory( targetFile, LinkOption.NOFOLLOW_LINKS ) )
+                {
+                    FileUtils.deleteDirectory( targetFile.toFile() );
+                }
+                Files.move( file, targetFile, StandardCopyOption.REPLACE_EXISTING );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+        FileUtils.deleteDirectory( scratchDirectory );
+    }
+
+    /**
+     * Swaps the staging directory in as the output directory and deletes the previous output.
+     *
+     * @throws IOException if the directories can't be renamed.
+     */
+    public void commit()
+        throws IOException
+    {
+        if ( directory.exists() )
+        {
+            Files.move( directory.toPath(), previousDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        try
+        {
+            Files.move( stagingDirectory.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            if ( previousDirectory.exists() )
+            {
+                Files.move( previousDirectory.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+            throw e;
+        }
+        FileUtils.deleteDirectory( previousDirectory );
+    }
+
+    /**
+     * Throws the staging directory away, leaving the previous output untouched.
+     */
+    public void rollback()
+    {
+        try
+        {
+            FileUtils.deleteDirectory( stagingDirectory );
+        }
+        catch ( IOException e )
+        {
+            // begin() cleans up whatever is left
+        }
+    }
+
+    private static void linkTree( final Path source, final Path dest )
+        throws IOException
+    {
+        Files.walkFileTree( source, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Files.createDirectories( dest.resolve( source.relativize( dir ) ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Path target = dest.resolve( source.relativize( file ) );
+                if ( attrs.isRegularFile() )
+                {
+                    try
+                    {
+                        Files.createLink( target, file );
+                        return FileVisitResult.CONTINUE;
+                    }
+                    catch ( IOException e )
+                    {
+                        // no hard links here, fall through to a copy
+                    }
+                    catch ( UnsupportedOperationException e )
+                    {
+                        // no hard links here, fall through to a copy
+                    }
+                }
+                Files.copy( file, target, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+}
@@ -0,0 +1,491 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.codehaus.plexus.archiver.bzip2.CBZip2InputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Decompresses a stream on a thread of its own, so that decompressing overlaps with
+ * whatever reads the result. The decompressed data is handed over in chunks through a
+ * bounded queue, and the chunks are recycled, so memory use does not depend on the size
+ * of the stream.
+ * <p>
+ * Gzip streams made of independent members that declare their compressed size, as the
+ * BGZF blocks written by <code>bgzip</code>, are inflated in parallel: the reading thread
+ * only splits the members and every member is inflated by a pool of threads, the chunks
+ * being handed over in order. Other gzip streams and zstd streams can't be split without
+ * decompressing them, they are decompressed by the reading thread. So are bzip2 streams,
+ * though their blocks could be found by the 48-bit magic <code>0x314159265359</code>: the
+ * blocks are not byte aligned and the magic may also appear inside a block, decoding them
+ * in parallel would need a bzip2 block decoder of our own, which was left out of scope.
+ *
+ * @version $Id$
+ */
+final class DecompressionPipeline
+    extends InputStream
+{
+    static final int NONE = 0;
+
+    static final int GZIP = 1;
+
+    static final int BZIP2 = 2;
+
+    static final int ZSTD = 3;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * BGZF members hold at most 64k of data.
+     */
+    private static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    private final Queue<byte[]> free = new ConcurrentLinkedQueue<byte[]>();
+
+    private final ExecutorService inflaters;
+
+    private final Thread reader;
+
+    private byte[] chunk;
+
+    private int position;
+
+    private int limit;
+
+    private boolean ended;
+
+    /**
+     * Starts decompressing.
+     *
+     * @param raw the compressed stream, closed when this stream is closed.
+     * @param compression {@link #NONE}, {@link #GZIP}, {@link #BZIP2} or {@link #ZSTD}.
+     * @param threads the number of threads inflating gzip members in parallel.
+     */
+    DecompressionPipeline( final InputStream raw, final int compression, int threads )
+    {
+        this.queue = new ArrayBlockingQueue<Object>( 2 * Math.max( 2, threads ) );
+        this.inflaters = compression == GZIP && threads > 1 ? Executors.newFixedThreadPool( threads ) : null;
+        this.reader = new Thread( "decompress" )
+        {
+            public void run()
+            {
+                try
+                {
+                    try
+                    {
+                        if ( inflaters != null )
+                        {
+                            splitGzipMembers( raw );
+                        }
+                        else
+                        {
+                            copyChunks( decompress( raw, compression ) );
+                        }
+                        queue.put( END );
+                    }
+                    catch ( IOException e )
+                    {
+                        queue.put( e );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        queue.put( e );
+                    }
+                    catch ( Error e )
+                    {
+                        // as a missing native zstd library, the reader waits for the end all the same
+                        queue.put( e );
+                    }
+                    finally
+                    {
+                        try
+                        {
+                            raw.close();
+                        }
+                        catch ( IOException e )
+                        {
+                            // nothing left to read
+                        }
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    // closed while decompressing
+                }
+            }
+        };
+        this.reader.setDaemon( true );
+        this.reader.start();
+    }
+
+    /**
+     * Opens the decompressing stream, the way the plexus tar unarchiver does. Zstandard
+     * streams are decoded by the native zstd library.
+     */
+    static InputStream decompress( InputStream raw, int compression )
+        throws IOException
+    {
+        if ( compression == GZIP )
+        {
+            return new GZIPInputStream( raw, CHUNK_SIZE );
+        }
+        if ( compression == BZIP2 )
+        {
+            if ( raw.read() != 'B' || raw.read() != 'Z' )
+            {
+                throw new IOException( "Invalid bz2 stream" );
+            }
+            return new CBZip2InputStream( raw );
+        }
+        if ( compression == ZSTD )
+        {
+            return new ZstdInputStream( raw );
+        }
+        return raw;
+    }
+
+    private void copyChunks( InputStream in )
+        throws IOException, InterruptedException
+    {
+        while ( true )
+        {
+            byte[] data = newChunk();
+            int length = 0;
+            int n;
+            while ( length < data.length && ( n = in.read( data, length, data.length - length ) ) != -1 )
+            {
+                length += n;
+            }
+            if ( length == 0 )
+            {
+                return;
+            }
+            queue.put( new Chunk( data, length ) );
+            if ( length < data.length )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads BGZF members and hands them to the inflaters. Falls back to plain decompression
+     * from the first member that is not one.
+     */
+    private void splitGzipMembers( InputStream raw )
+        throws IOException, InterruptedException
+    {
+        while ( true )
+        {
+            // ID1 ID2 CM FLG MTIME(4) XFL OS XLEN(2)
+            byte[] header = new byte[12];
+            int length = readFully( raw, header, 0, header.length );
+            if ( length == 0 )
+            {
+                return;
+            }
+            int xlen = length == header.length ? getShort( header, 10 ) : 0;
+            if ( length < header.length || ( header[0] & 0xff ) != 0x1f || ( header[1] & 0xff ) != 0x8b
+                || header[2] != 8 || header[3] != 4 )
+            {
+                copyChunks( decompress( new SequenceInputStream( new ByteArrayInputStream( header, 0, length ), raw ),
+                                        GZIP ) );
+                return;
+            }
+
+            byte[] extra = new byte[xlen];
+            if ( readFully( raw, extra, 0, xlen ) < xlen )
+            {
+                throw new IOException( "Unexpected end of gzip stream" );
+            }
+            int blockSize = getBlockSize( extra );
+            if ( blockSize < 0 )
+            {
+                byte[] read = new byte[header.length + xlen];
+                System.arraycopy( header, 0, read, 0, header.length );
+                System.arraycopy( extra, 0, read, header.length, xlen );
+                copyChunks( decompress( new SequenceInputStream( new ByteArrayInputStream( read ), raw ), GZIP ) );
+                return;
+            }
+
+            // the block size counts the whole member minus one, the data is followed by CRC32 and ISIZE
+            int dataLength = blockSize + 1 - header.length - xlen - 8;
+            if ( dataLength < 0 )
+            {
+                throw new IOException( "Broken BGZF block" );
+            }
+            final byte[] data = new byte[dataLength + 8];
+            if ( readFully( raw, data, 0, data.length ) < data.length )
+            {
+                throw new IOException( "Unexpected end of gzip stream" );
+            }
+            queue.put( inflaters.submit( new Callable<Chunk>()
+            {
+                public Chunk call()
+                    throws IOException
+                {
+                    return inflate( data );
+                }
+            } ) );
+        }
+    }
+
+    /**
+     * @return the BSIZE of the BC subfield, or <code>-1</code> if there is none.
+     */
+    private static int getBlockSize( byte[] extra )
+    {
+        int pos = 0;
+        while ( pos + 4 <= extra.length )
+        {
+            int length = getShort( extra, pos + 2 );
+            if ( extra[pos] == 'B' && extra[pos + 1] == 'C' && length == 2 && pos + 6 <= extra.length )
+            {
+                return getShort( extra, pos + 4 );
+            }
+            pos += 4 + length;
+        }
+        return -1;
+    }
+
+    private Chunk inflate( byte[] data )
+        throws IOException
+    {
+        int dataLength = data.length - 8;
+        long crc = getInt( data, dataLength ) & 0xffffffffL;
+        int size = getInt( data, dataLength + 4 );
+        if ( size < 0 || size > MAX_BLOCK_SIZE )
+        {
+            throw new IOException( "Broken BGZF block" );
+        }
+
+        byte[] output = newChunk();
+        Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( data, 0, dataLength );
+            int length = 0;
+            while ( length < size && !inflater.finished() )
+            {
+                int n = inflater.inflate( output, length, size - length );
+                if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    break;
+                }
+                length += n;
+            }
+            CRC32 check = new CRC32();
+            check.update( output, 0, length );
+            if ( length != size || check.getValue() != crc )
+            {
+                throw new IOException( "Corrupt gzip member: size or CRC does not match" );
+            }
+            return new Chunk( output, length );
+        }
+        catch ( DataFormatException e )
+        {
+            IOException ioe = new IOException( "Corrupt gzip member: " + e.getMessage() );
+            ioe.initCause( e );
+            throw ioe;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private byte[] newChunk()
+    {
+        byte[] data = free.poll();
+        return data != null ? data : new byte[CHUNK_SIZE];
+    }
+
+    private static int readFully( InputStream in, byte[] buffer, int offset, int length )
+        throws IOException
+    {
+        int read = 0;
+        int n;
+        while ( read < length && ( n = in.read( buffer, offset + read, length - read ) ) != -1 )
+        {
+            read += n;
+        }
+        return read;
+    }
+
+    private static int getShort( byte[] buffer, int pos )
+    {
+        return ( buffer[pos] & 0xff ) | ( ( buffer[pos + 1] & 0xff ) << 8 );
+    }
+
+    private static int getInt( byte[] buffer, int pos )
+    {
+        return getShort( buffer, pos ) | ( getShort( buffer, pos + 2 ) << 16 );
+    }
+
+    public int read()
+        throws IOException
+    {
+        if ( !fill() )
+        {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    public int read( byte[] buffer, int offset, int length )
+        throws IOException
+    {
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        if ( !fill() )
+        {
+            return -1;
+        }
+        int n = Math.min( length, limit - position );
+        System.arraycopy( chunk, position, buffer, offset, n );
+        position += n;
+        return n;
+    }
+
+    /**
+     * Makes sure there is data left in the current chunk, taking the next one if needed.
+     *
+     * @return <code>false</code> at the end of the stream.
+     */
+    private boolean fill()
+        throws IOException
+    {
+        while ( !ended && position == limit )
+        {
+            if ( chunk != null )
+            {
+                free.offer( chunk );
+                chunk = null;
+            }
+            Object next;
+            try
+            {
+                next = queue.take();
+                if ( next instanceof Future )
+                {
+                    next = ( (Future<?>) next ).get();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while decompressing" );
+            }
+            catch ( ExecutionException e )
+            {
+                next = e.getCause();
+            }
+
+            if ( next == END )
+            {
+                ended = true;
+            }
+            else if ( next instanceof Chunk )
+            {
+                chunk = ( (Chunk) next ).data;
+                position = 0;
+                limit = ( (Chunk) next ).length;
+            }
+            else
+            {
+                ended = true;
+                if ( next instanceof IOException )
+                {
+                    IOException e = new IOException( ( (IOException) next ).getMessage() );
+                    e.initCause( (IOException) next );
+                    throw e;
+                }
+                if ( next instanceof RuntimeException )
+                {
+                    throw (RuntimeException) next;
+                }
+                if ( next instanceof Error )
+                {
+                    throw (Error) next;
+                }
+                IOException e = new IOException( "Error decompressing: " + next );
+                e.initCause( (Throwable) next );
+                throw e;
+            }
+        }
+        return position < limit;
+    }
+
+    /**
+     * Stops decompressing, whether the end of the stream was reached or not.
+     */
+    public void close()
+    {
+        ended = true;
+        reader.interrupt();
+        if ( inflaters != null )
+        {
+            inflaters.shutdownNow();
+        }
+        queue.clear();
+    }
+
+    /**
+     * Decompressed data.
+     */
+    private static final class Chunk
+    {
+        private final byte[] data;
+
+        private final int length;
+
+        Chunk( byte[] data, int length )
+        {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
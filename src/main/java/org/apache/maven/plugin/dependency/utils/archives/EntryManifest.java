@@ -0,0 +1,264 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * The entries of an archive that were unpacked into a directory, kept in the markers
+ * directory. Every line describes one entry, tab separated:
+ * <pre>
+ * name  crc  size  path
+ * </pre>
+ * The CRC is the one of the zip central directory in hex and the path is relative to the
+ * destination directory, with <code>/</code> as separator. When the archive is unpacked
+ * again, entries with the same CRC and size whose file is still there are skipped, and
+ * the files of entries that are gone are deleted.
+ *
+ * @version $Id$
+ */
+public class EntryManifest
+{
+    private static final String HEADER = "# entry manifest 1";
+
+    private final File manifestFile;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * @param manifestFile the file the manifest is stored in.
+     */
+    public EntryManifest( File manifestFile )
+    {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * @param markersDirectory the markers directory.
+     * @param archive the archive.
+     * @param location the directory the archive is unpacked into.
+     * @param includes the include patterns the archive is unpacked with.
+     * @param excludes the exclude patterns the archive is unpacked with.
+     * @return the manifest file for the archive, destination and patterns.
+     */
+    public static File getManifestFile( File markersDirectory, File archive, File location, String includes,
+                                        String excludes )
+    {
+        String key = archive.getAbsolutePath() + '\u0000' + location.getAbsolutePath() + '\u0000'
+            + StringUtils.defaultString( includes ) + '\u0000' + StringUtils.defaultString( excludes );
+        return new File( markersDirectory, "entries-" + DigestUtil.sha1( key ).substring( 0, 12 ) + ".manifest" );
+    }
+
+    /**
+     * @return Returns the manifestFile.
+     */
+    public File getManifestFile()
+    {
+        return this.manifestFile;
+    }
+
+    /**
+     * Reads the manifest file. A missing or unreadable manifest leaves the manifest empty.
+     */
+    public void load()
+    {
+        entries.clear();
+        if ( !manifestFile.isFile() )
+        {
+            return;
+        }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( ReaderFactory.newReader( manifestFile, "UTF-8" ) );
+            String line = reader.readLine();
+            if ( !HEADER.equals( line ) )
+            {
+                return;
+            }
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String[] fields = StringUtils.split( line, "\t" );
+                if ( fields.length != 4 )
+                {
+                    // start over
+                    entries.clear();
+                    return;
+                }
+                put( fields[0], Long.parseLong( fields[1], 16 ), Long.parseLong( fields[2] ), fields[3] );
+            }
+        }
+        catch ( IOException e )
+        {
+            // start over
+            entries.clear();
+        }
+        catch ( NumberFormatException e )
+        {
+            // start over
+            entries.clear();
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * @param name the entry name.
+     * @return the entry or <code>null</code> if it was not unpacked.
+     */
+    public Entry getEntry( String name )
+    {
+        return entries.get( name );
+    }
+
+    /**
+     * @return all entries, in the order they were added.
+     */
+    public Collection<Entry> getEntries()
+    {
+        return entries.values();
+    }
+
+    /**
+     * Records an unpacked entry.
+     *
+     * @param name the entry name.
+     * @param crc the CRC-32 of the entry.
+     * @param size the uncompressed size.
+     * @param path the path of the file, relative to the destination directory.
+     */
+    public void put( String name, long crc, long size, String path )
+    {
+        entries.put( name, new Entry( name, crc, size, path ) );
+    }
+
+    /**
+     * Forgets all entries.
+     */
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Writes the manifest file, replacing the previous one.
+     *
+     * @throws IOException if the manifest can't be written.
+     */
+    public void save()
+        throws IOException
+    {
+        manifestFile.getParentFile().mkdirs();
+        Path tmp = Files.createTempFile( manifestFile.getParentFile().toPath(), "." + manifestFile.getName(), ".tmp" );
+        try
+        {
+            Writer writer = WriterFactory.newWriter( tmp.toFile(), "UTF-8" );
+            try
+            {
+                writer.write( HEADER + "\n" );
+                for ( Entry entry : entries.values() )
+                {
+                    writer.write( entry.getName() + "\t" + Long.toHexString( entry.getCrc() ) + "\t" + entry.getSize()
+                        + "\t" + entry.getPath() + "\n" );
+                }
+            }
+            finally
+            {
+                IOUtil.close( writer );
+            }
+            Files.move( tmp, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    /**
+     * Deletes the manifest file, the entries in memory are kept.
+     *
+     * @throws IOException if the file can't be deleted.
+     */
+    public void delete()
+        throws IOException
+    {
+        Files.deleteIfExists( manifestFile.toPath() );
+    }
+
+    /**
+     * An unpacked entry.
+     */
+    public static class Entry
+    {
+        private final String name;
+
+        private final long crc;
+
+        private final long size;
+
+        private final String path;
+
+        Entry( String name, long crc, long size, String path )
+        {
+            this.name = name;
+            this.crc = crc;
+            this.size = size;
+            this.path = path;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        public long getCrc()
+        {
+            return this.crc;
+        }
+
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        public String getPath()
+        {
+            return this.path;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Calendar;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+/**
+ * Everything a worker needs to extract entries: the read and inflate buffers, the
+ * inflater and the checksum. They are pooled and reused for every entry and every
+ * archive, so extracting allocates nothing per entry and the heap used does not depend on
+ * the size of the archives.
+ *
+ * @version $Id$
+ */
+final class ExtractionBuffers
+{
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Idle instances kept for reuse, more are released.
+     */
+    private static final int MAX_IDLE = Math.max( 4, 2 * Runtime.getRuntime().availableProcessors() );
+
+    private static final Queue<ExtractionBuffers> IDLE = new ConcurrentLinkedQueue<ExtractionBuffers>();
+
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    final byte[] input = new byte[BUFFER_SIZE];
+
+    final ByteBuffer in = ByteBuffer.wrap( input );
+
+    final byte[] output = new byte[BUFFER_SIZE];
+
+    final ByteBuffer header =
+        ByteBuffer.allocate( ZipCentralDirectory.LOCAL_HEADER_LENGTH ).order( ByteOrder.LITTLE_ENDIAN );
+
+    final Inflater inflater = new Inflater( true );
+
+    final CRC32 crc = new CRC32();
+
+    final Calendar calendar = Calendar.getInstance();
+
+    private ExtractionBuffers()
+    {
+        // see acquire()
+    }
+
+    /**
+     * @return idle buffers, or new ones if none is idle.
+     */
+    static ExtractionBuffers acquire()
+    {
+        ExtractionBuffers buffers = IDLE.poll();
+        if ( buffers == null )
+        {
+            return new ExtractionBuffers();
+        }
+        IDLE_COUNT.decrementAndGet();
+        return buffers;
+    }
+
+    /**
+     * Gives buffers back to the pool, or frees them if the pool is full.
+     *
+     * @param buffers buffers obtained from {@link #acquire()}, not used any more by the caller.
+     */
+    static void release( ExtractionBuffers buffers )
+    {
+        if ( IDLE_COUNT.incrementAndGet() <= MAX_IDLE )
+        {
+            buffers.inflater.reset();
+            IDLE.offer( buffers );
+        }
+        else
+        {
+            IDLE_COUNT.decrementAndGet();
+            buffers.inflater.end();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Selects archive entries by include and exclude patterns, like the
+ * <code>IncludeExcludeFileSelector</code> the unarchivers are configured with, but with
+ * the patterns compiled once into a trie of path segments. Literal segments are looked up
+ * in a hash map and <code>**</code> becomes a loop in the automaton, so matching an entry
+ * costs about one step per segment of its name however many patterns there are.
+ * <p>
+ * The semantics are the ones of the plexus selector: no includes means everything,
+ * excludes come with the default excludes, a pattern ending with a separator matches
+ * everything below it and <code>%regex[...]</code> patterns are supported. Instances are
+ * immutable and may be shared between threads.
+ *
+ * @version $Id$
+ */
+public final class IncludeExcludeMatcher
+    implements FileSelector
+{
+    private static final String REGEX_PREFIX = "%regex[";
+
+    private static final String ANT_PREFIX = "%ant[";
+
+    private static final String PATTERN_SUFFIX = "]";
+
+    /**
+     * Stands for the leading separator of absolute names, which no wildcard matches.
+     */
+    private static final String ROOT = "/";
+
+    private final PatternSet includes;
+
+    private final PatternSet excludes;
+
+    /**
+     * @param includes the include patterns, <code>null</code> to include everything.
+     * @param excludes the exclude patterns, <code>null</code> to exclude nothing. When set, the default
+     *            excludes are added.
+     */
+    public IncludeExcludeMatcher( String[] includes, String[] excludes )
+    {
+        this.includes = new PatternSet();
+        if ( includes == null )
+        {
+            this.includes.add( "**/*" );
+        }
+        else
+        {
+            for ( int i = 0; i < includes.length; i++ )
+            {
+                this.includes.add( includes[i] );
+            }
+        }
+
+        this.excludes = new PatternSet();
+        if ( excludes != null )
+        {
+            String[] defaults = FileUtils.getDefaultExcludes();
+            for ( int i = 0; i < defaults.length; i++ )
+            {
+                this.excludes.add( defaults[i] );
+            }
+            for ( int i = 0; i < excludes.length; i++ )
+            {
+                this.excludes.add( excludes[i] );
+            }
+        }
+    }
+
+    /**
+     * Compiles comma separated include and exclude lists as given to the unpack goals.
+     *
+     * @param includes the include patterns, may be empty.
+     * @param excludes the exclude patterns, may be empty.
+     * @return the matcher, or <code>null</code> if both lists are empty and everything is selected.
+     */
+    public static IncludeExcludeMatcher compile( String includes, String excludes )
+    {
+        if ( StringUtils.isEmpty( includes ) && StringUtils.isEmpty( excludes ) )
+        {
+            return null;
+        }
+        return new IncludeExcludeMatcher( StringUtils.isNotEmpty( includes ) ? includes.split( "," ) : null,
+                                          StringUtils.isNotEmpty( excludes ) ? excludes.split( "," ) : null );
+    }
+
+    /**
+     * @param name the name of an archive entry, with <code>/</code> or <code>\</code> as separator.
+     * @return <code>true</code> if the entry is included and not excluded.
+     */
+    public boolean matches( String name )
+    {
+        String path = name.replace( '\\', '/' );
+        String[] tokens = tokenize( path );
+        return includes.matches( path, tokens ) && !excludes.matches( path, tokens );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isSelected( FileInfo fileInfo )
+    {
+        return matches( fileInfo.getName() );
+    }
+
+    private static String[] tokenize( String path )
+    {
+        String[] segments = StringUtils.split( path, "/" );
+        if ( !path.startsWith( "/" ) )
+        {
+            return segments;
+        }
+        String[] tokens = new String[segments.length + 1];
+        tokens[0] = ROOT;
+        System.arraycopy( segments, 0, tokens, 1, segments.length );
+        return tokens;
+    }
+
+    /**
+     * A set of patterns: the ant style ones in a trie, the regular expressions on the side.
+     */
+    private static final class PatternSet
+    {
+        private final Node root = new Node( null, false );
+
+        private final List<Pattern> regexes = new ArrayList<Pattern>();
+
+        void add( String pattern )
+        {
+            // same canonical form as the selector, also applied to regular expressions
+            String p = pattern.trim().replace( '\\', '/' );
+            if ( p.endsWith( "/" ) )
+            {
+                p += "**";
+            }
+
+            if ( isWrapped( p, REGEX_PREFIX ) )
+            {
+                // the selector matches regular expressions against the platform dependent name
+                String regex = p.substring( REGEX_PREFIX.length(), p.length() - PATTERN_SUFFIX.length() );
+                regexes.add( Pattern.compile( regex.replace( '/', File.separatorChar ) ) );
+                return;
+            }
+            if ( isWrapped( p, ANT_PREFIX ) )
+            {
+                p = p.substring( ANT_PREFIX.length(), p.length() - PATTERN_SUFFIX.length() );
+            }
+
+            Node node = root;
+            String[] tokens = tokenize( p );
+            for ( int i = 0; i < tokens.length; i++ )
+            {
+                node = node.child( tokens[i] );
+            }
+            node.terminal = true;
+        }
+
+        private static boolean isWrapped( String pattern, String prefix )
+        {
+            return pattern.length() > prefix.length() + PATTERN_SUFFIX.length() + 1 && pattern.startsWith( prefix )
+                && pattern.endsWith( PATTERN_SUFFIX );
+        }
+
+        boolean matches( String path, String[] tokens )
+        {
+            for ( Pattern regex : regexes )
+            {
+                if ( regex.matcher( path.replace( '/', File.separatorChar ) ).matches() )
+                {
+                    return true;
+                }
+            }
+
+            List<Node> current = new ArrayList<Node>();
+            root.addTo( current );
+            List<Node> next = new ArrayList<Node>();
+            for ( int i = 0; i < tokens.length && !current.isEmpty(); i++ )
+            {
+                String token = tokens[i];
+                boolean wildcards = token != ROOT;
+                for ( Node node : current )
+                {
+                    node.step( token, wildcards, next );
+                }
+                List<Node> swap = current;
+                current = next;
+                next = swap;
+                next.clear();
+            }
+
+            for ( Node node : current )
+            {
+                if ( node.terminal )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A state of the automaton: the position after a pattern segment.
+     */
+    private static final class Node
+    {
+        /**
+         * The segment glob leading to this node, <code>null</code> for any segment.
+         */
+        private final Pattern glob;
+
+        /**
+         * Whether this node follows a <code>**</code> and consumes any number of segments.
+         */
+        private final boolean loop;
+
+        private Map<String, Node> literals;
+
+        private List<Node> globs;
+
+        private Node anySegments;
+
+        private boolean terminal;
+
+        Node( Pattern glob, boolean loop )
+        {
+            this.glob = glob;
+            this.loop = loop;
+        }
+
+        Node child( String segment )
+        {
+            if ( "**".equals( segment ) )
+            {
+                if ( anySegments == null )
+                {
+                    anySegments = new Node( null, true );
+                }
+                return anySegments;
+            }
+            if ( segment.indexOf( '*' ) < 0 && segment.indexOf( '?' ) < 0 )
+            {
+                if ( literals == null )
+                {
+                    literals = new HashMap<String, Node>();
+                }
+                Node node = literals.get( segment );
+                if ( node == null )
+                {
+                    node = new Node( null, false );
+                    literals.put( segment, node );
+                }
+                return node;
+            }
+
+            String regex = toRegex( segment );
+            if ( globs == null )
+            {
+                globs = new ArrayList<Node>();
+            }
+            for ( Node node : globs )
+            {
+                if ( ( node.glob == null ? ".*" : node.glob.pattern() ).equals( regex ) )
+                {
+                    return node;
+                }
+            }
+            Node node = new Node( ".*".equals( regex ) ? null : Pattern.compile( regex, Pattern.DOTALL ), false );
+            globs.add( node );
+            return node;
+        }
+
+        /**
+         * Adds this node and the nodes reachable without consuming a segment.
+         */
+        void addTo( List<Node> states )
+        {
+            if ( !states.contains( this ) )
+            {
+                states.add( this );
+                if ( anySegments != null )
+                {
+                    anySegments.addTo( states );
+                }
+            }
+        }
+
+        void step( String token, boolean wildcards, List<Node> next )
+        {
+            if ( literals != null )
+            {
+                Node node = literals.get( token );
+                if ( node != null )
+                {
+                    node.addTo( next );
+                }
+            }
+            if ( !wildcards )
+            {
+                return;
+            }
+            if ( loop )
+            {
+                addTo( next );
+            }
+            if ( globs != null )
+            {
+                for ( Node node : globs )
+                {
+                    if ( node.glob == null || node.glob.matcher( token ).matches() )
+                    {
+                        node.addTo( next );
+                    }
+                }
+            }
+        }
+
+        private static String toRegex( String segment )
+        {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for ( int i = 0; i < segment.length(); i++ )
+            {
+                char c = segment.charAt( i );
+                if ( c == '*' || c == '?' )
+                {
+                    if ( literal.length() > 0 )
+                    {
+                        regex.append( Pattern.quote( literal.toString() ) );
+                        literal.setLength( 0 );
+                    }
+                    regex.append( c == '*' ? ".*" : "." );
+                }
+                else
+                {
+                    literal.append( c );
+                }
+            }
+            if ( literal.length() > 0 )
+            {
+                regex.append( Pattern.quote( literal.toString() ) );
+            }
+            return regex.toString();
+        }
+    }
+}
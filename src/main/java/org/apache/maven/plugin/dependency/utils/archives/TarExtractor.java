@@ -0,0 +1,542 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.archiver.tar.TarEntry;
+import org.codehaus.plexus.archiver.tar.TarInputStream;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Extracts tar files, plain or compressed with gzip, bzip2 or zstd. With one thread it
+ * works like the plexus tar unarchivers. With more, decompressing, parsing the tar stream
+ * and writing the files run as a pipeline on three threads, and gzip files made of BGZF
+ * blocks are also inflated by several threads, see {@link DecompressionPipeline}. The
+ * result is the same as the one of the plexus unarchivers: same files, modification times
+ * and permissions. Plexus has no zstd support, zstd files are only unpacked by this
+ * extractor, including single files compressed with zstd.
+ *
+ * @version $Id$
+ */
+public class TarExtractor
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes handed to the writer thread and not done yet.
+     */
+    private static final int QUEUE_SIZE = 32;
+
+    private final int threads;
+
+    private FileSelector[] fileSelectors;
+
+    /**
+     * @param threads the number of threads extracting one archive.
+     */
+    public TarExtractor( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    /**
+     * @param fileSelectors the selectors an entry must pass to be extracted, or <code>null</code> for all entries.
+     */
+    public void setFileSelectors( FileSelector[] fileSelectors )
+    {
+        this.fileSelectors = fileSelectors;
+    }
+
+    /**
+     * Tells whether a file is a tar file by its extension, the way the archiver manager chooses
+     * a tar unarchiver.
+     *
+     * @param file the file to check.
+     * @return <code>true</code> for <code>.tar</code>, <code>.tar.gz</code>, <code>.tgz</code>,
+     *         <code>.tar.bz2</code>, <code>.tbz2</code>, <code>.tar.zst</code> and <code>.tzst</code> files.
+     */
+    public static boolean isTarFile( File file )
+    {
+        String name = file.getName().toLowerCase( Locale.ENGLISH );
+        return name.endsWith( ".tar" ) || name.endsWith( ".tar.gz" ) || name.endsWith( ".tgz" )
+            || name.endsWith( ".tar.bz2" ) || name.endsWith( ".tbz2" ) || name.endsWith( ".tar.zst" )
+            || name.endsWith( ".tzst" );
+    }
+
+    /**
+     * Tells whether a file is compressed with zstd by its extension. The archiver manager
+     * knows no unarchiver for these files.
+     *
+     * @param file the file to check.
+     * @return <code>true</code> for <code>.zst</code> and <code>.tzst</code> files.
+     */
+    public static boolean isZstdFile( File file )
+    {
+        String name = file.getName().toLowerCase( Locale.ENGLISH );
+        return name.endsWith( ".zst" ) || name.endsWith( ".tzst" );
+    }
+
+    /**
+     * Decompresses a file that is not an archive, like <code>data.json.zst</code>, to a file
+     * of the destination directory named after it without the compression extension. The
+     * file selectors apply to that name.
+     *
+     * @param file the compressed file.
+     * @param destDirectory the directory to decompress to.
+     * @throws IOException if the file can't be read or written.
+     */
+    public void decompress( File file, File destDirectory )
+        throws IOException
+    {
+        String name = file.getName();
+        int dot = name.lastIndexOf( '.' );
+        if ( dot > 0 )
+        {
+            name = name.substring( 0, dot );
+        }
+        if ( !ZipExtractor.isSelected( name, false, fileSelectors ) )
+        {
+            return;
+        }
+
+        InputStream raw = new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE );
+        InputStream in = raw;
+        OutputStream out = null;
+        try
+        {
+            int compression = getCompression( raw );
+            in = threads > 1 ? new DecompressionPipeline( raw, compression, threads )
+                            : DecompressionPipeline.decompress( raw, compression );
+
+            File target = new File( destDirectory, name );
+            target.getParentFile().mkdirs();
+            Files.deleteIfExists( target.toPath() );
+            out = new FileOutputStream( target );
+            IOUtil.copy( in, out, BUFFER_SIZE );
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( out );
+            IOUtil.close( in );
+            IOUtil.close( raw );
+        }
+    }
+
+    /**
+     * Extracts the selected entries of a tar file.
+     *
+     * @param archive the tar file, compressed or not.
+     * @param destDirectory the directory to extract to.
+     * @throws IOException if the archive can't be read or a file can't be written.
+     */
+    public void extract( File archive, File destDirectory )
+        throws IOException
+    {
+        Path root = destDirectory.getAbsoluteFile().toPath().normalize();
+
+        InputStream raw = new BufferedInputStream( new FileInputStream( archive ), BUFFER_SIZE );
+        InputStream in = raw;
+        Writer writer = new Writer( threads > 1 );
+        try
+        {
+            int compression = getCompression( raw );
+            in = threads > 1 ? new DecompressionPipeline( raw, compression, threads )
+                            : DecompressionPipeline.decompress( raw, compression );
+
+            TarInputStream tar = new TarInputStream( in );
+            TarEntry entry;
+            while ( ( entry = tar.getNextEntry() ) != null )
+            {
+                String name = entry.getName();
+                if ( !ZipExtractor.isSelected( name, entry.isDirectory(), fileSelectors ) )
+                {
+                    continue;
+                }
+                File target = ZipExtractor.resolve( root, name ).toFile();
+                long time = entry.getModTime().getTime();
+                if ( entry.isDirectory() )
+                {
+                    writer.submit( Command.directory( target, time, entry.getMode() ) );
+                    continue;
+                }
+
+                writer.submit( Command.open( target ) );
+                while ( true )
+                {
+                    byte[] buffer = writer.getBuffer();
+                    int length = 0;
+                    int n;
+                    while ( length < buffer.length && ( n = tar.read( buffer, length, buffer.length - length ) ) > 0 )
+                    {
+                        length += n;
+                    }
+                    writer.submit( Command.write( buffer, length ) );
+                    if ( length < buffer.length )
+                    {
+                        break;
+                    }
+                }
+                writer.submit( Command.close( target, time, entry.getMode() ) );
+            }
+            writer.finish();
+        }
+        finally
+        {
+            writer.abort();
+            IOUtil.close( in );
+            IOUtil.close( raw );
+        }
+    }
+
+    /**
+     * Recognizes the compression by the magic bytes of the stream, leaving the stream where it was.
+     */
+    private static int getCompression( InputStream in )
+        throws IOException
+    {
+        in.mark( 4 );
+        int b1 = in.read();
+        int b2 = in.read();
+        int b3 = in.read();
+        int b4 = in.read();
+        in.reset();
+        if ( b1 == 0x1f && b2 == 0x8b )
+        {
+            return DecompressionPipeline.GZIP;
+        }
+        if ( b1 == 'B' && b2 == 'Z' && b3 == 'h' )
+        {
+            return DecompressionPipeline.BZIP2;
+        }
+        if ( b1 == 0x28 && b2 == 0xb5 && b3 == 0x2f && b4 == 0xfd )
+        {
+            return DecompressionPipeline.ZSTD;
+        }
+        return DecompressionPipeline.NONE;
+    }
+
+    /**
+     * Something to do to a file of the destination.
+     */
+    private static final class Command
+    {
+        static final int DIRECTORY = 0;
+
+        static final int OPEN = 1;
+
+        static final int WRITE = 2;
+
+        static final int CLOSE = 3;
+
+        static final int END = 4;
+
+        static final Command END_COMMAND = new Command( END, null, null, 0, 0, 0 );
+
+        final int type;
+
+        final File file;
+
+        final byte[] data;
+
+        final int length;
+
+        final long time;
+
+        final int mode;
+
+        private Command( int type, File file, byte[] data, int length, long time, int mode )
+        {
+            this.type = type;
+            this.file = file;
+            this.data = data;
+            this.length = length;
+            this.time = time;
+            this.mode = mode;
+        }
+
+        static Command directory( File file, long time, int mode )
+        {
+            return new Command( DIRECTORY, file, null, 0, time, mode );
+        }
+
+        static Command open( File file )
+        {
+            return new Command( OPEN, file, null, 0, 0, 0 );
+        }
+
+        static Command write( byte[] data, int length )
+        {
+            return new Command( WRITE, null, data, length, 0, 0 );
+        }
+
+        static Command close( File file, long time, int mode )
+        {
+            return new Command( CLOSE, file, null, 0, time, mode );
+        }
+    }
+
+    /**
+     * Creates the files, either right away or on a thread of its own reading the commands
+     * from a bounded queue.
+     */
+    private static final class Writer
+        implements Callable<Object>
+    {
+        private final BlockingQueue<Command> queue;
+
+        private final ExecutorService executor;
+
+        private final Future<Object> result;
+
+        private final Queue<byte[]> free = new ConcurrentLinkedQueue<byte[]>();
+
+        private final Set<File> directories = new HashSet<File>();
+
+        private volatile boolean failed;
+
+        private OutputStream out;
+
+        Writer( boolean threaded )
+        {
+            if ( threaded )
+            {
+                queue = new ArrayBlockingQueue<Command>( QUEUE_SIZE );
+                executor = Executors.newSingleThreadExecutor();
+                result = executor.submit( this );
+            }
+            else
+            {
+                queue = null;
+                executor = null;
+                result = null;
+            }
+        }
+
+        byte[] getBuffer()
+        {
+            byte[] buffer = free.poll();
+            return buffer != null ? buffer : new byte[BUFFER_SIZE];
+        }
+
+        void submit( Command command )
+            throws IOException
+        {
+            if ( queue == null )
+            {
+                execute( command );
+                return;
+            }
+            if ( failed )
+            {
+                getResult();
+            }
+            put( command );
+        }
+
+        /**
+         * Queues a command, waiting for room as long as the writer thread runs: once it has
+         * stopped, on a failure, nothing takes the commands any more.
+         */
+        private void put( Command command )
+            throws IOException
+        {
+            try
+            {
+                while ( !queue.offer( command, 100, TimeUnit.MILLISECONDS ) )
+                {
+                    if ( result.isDone() )
+                    {
+                        getResult();
+                        throw new IOException( "The writer thread stopped before the end of the archive" );
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while extracting" );
+            }
+        }
+
+        /**
+         * Waits until all files are written.
+         */
+        void finish()
+            throws IOException
+        {
+            if ( queue == null )
+            {
+                return;
+            }
+            put( Command.END_COMMAND );
+            getResult();
+        }
+
+        /**
+         * Waits for the writer thread to end and throws its failure, if any.
+         */
+        private void getResult()
+            throws IOException
+        {
+            try
+            {
+                result.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while extracting" );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof IOException )
+                {
+                    throw (IOException) cause;
+                }
+                IOException ioe = new IOException( "Error extracting: " + cause );
+                ioe.initCause( cause );
+                throw ioe;
+            }
+        }
+
+        /**
+         * Stops the writer thread, if still running, and closes the file being written.
+         */
+        void abort()
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+            else
+            {
+                IOUtil.close( out );
+            }
+        }
+
+        public Object call()
+            throws IOException, InterruptedException
+        {
+            try
+            {
+                while ( true )
+                {
+                    Command command = queue.take();
+                    if ( command.type == Command.END )
+                    {
+                        return null;
+                    }
+                    execute( command );
+                }
+            }
+            catch ( IOException e )
+            {
+                failed = true;
+                throw e;
+            }
+            catch ( RuntimeException e )
+            {
+                failed = true;
+                throw e;
+            }
+            catch ( Error e )
+            {
+                failed = true;
+                throw e;
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+
+        private void execute( Command command )
+            throws IOException
+        {
+            switch ( command.type )
+            {
+                case Command.DIRECTORY:
+                    createParent( command.file );
+                    command.file.mkdirs();
+                    setAttributes( command );
+                    break;
+                case Command.OPEN:
+                    createParent( command.file );
+                    // replace rather than overwrite, the file may be a hard link into the unpack cache
+                    Files.deleteIfExists( command.file.toPath() );
+                    out = new FileOutputStream( command.file );
+                    break;
+                case Command.WRITE:
+                    out.write( command.data, 0, command.length );
+                    free.offer( command.data );
+                    break;
+                case Command.CLOSE:
+                    out.close();
+                    out = null;
+                    setAttributes( command );
+                    break;
+                default:
+                    throw new IllegalStateException( "Unknown command " + command.type );
+            }
+        }
+
+        private void createParent( File file )
+        {
+            File parent = file.getParentFile();
+            if ( directories.add( parent ) )
+            {
+                parent.mkdirs();
+            }
+        }
+
+        private static void setAttributes( Command command )
+        {
+            command.file.setLastModified( command.time );
+            ZipExtractor.setPermissions( command.file, command.mode );
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * A directory of unpacked archives shared by all modules and builds using it. Every tree
+ * is stored under a key made of the digest of the archive and of the include/exclude
+ * patterns, so an archive is inflated once and then copied or linked into each
+ * destination.
+ * <p>
+ * Trees are extracted into a temporary directory and renamed into place, so concurrent
+ * builds never see a partial tree. Each tree has a <code>&lt;key&gt;.size</code> file next
+ * to it holding its size, which is touched whenever the tree is used; when the cache grows
+ * beyond its maximum size the least recently used trees are deleted.
+ *
+ * @version $Id$
+ */
+public class UnpackCache
+{
+    private static final String SIZE_SUFFIX = ".size";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /**
+     * @param directory the cache directory.
+     * @param maxSize the size in bytes the cache is trimmed to after a tree was added.
+     */
+    public UnpackCache( File directory, long maxSize )
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return Returns the directory.
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    /**
+     * @param archiveDigest the SHA-1 digest of the archive.
+     * @param includes the include patterns the archive is unpacked with.
+     * @param excludes the exclude patterns the archive is unpacked with.
+     * @return the cache key.
+     */
+    public static String getKey( String archiveDigest, String includes, String excludes )
+    {
+        String patterns = StringUtils.defaultString( includes ) + '\u0000' + StringUtils.defaultString( excludes );
+        return archiveDigest + "-" + DigestUtil.sha1( patterns ).substring( 0, 12 );
+    }
+
+    /**
+     * Looks a tree up and marks it as used.
+     *
+     * @param key the cache key.
+     * @return the tree or <code>null</code> if it is not cached.
+     */
+    public File getTree( String key )
+    {
+        File tree = new File( directory, key );
+        if ( !tree.isDirectory() )
+        {
+            return null;
+        }
+        new File( directory, key + SIZE_SUFFIX ).setLastModified( System.currentTimeMillis() );
+        return tree;
+    }
+
+    /**
+     * @return a new empty directory inside the cache to extract a tree into.
+     * @throws IOException if the directory can't be created.
+     */
+    public File createStagingDirectory()
+        throws IOException
+    {
+        directory.mkdirs();
+        return Files.createTempDirectory( directory.toPath(), ".tmp-" ).toFile();
+    }
+
+    /**
+     * Adds an extracted tree to the cache and evicts the least recently used trees if the
+     * cache got too big. If another build added the same tree in the meantime, that one is
+     * kept and the staging directory is deleted.
+     *
+     * @param key the cache key.
+     * @param staging the directory created by {@link #createStagingDirectory()} holding the tree.
+     * @return the cached tree.
+     * @throws IOException if the tree can't be added.
+     */
+    public File add( String key, File staging )
+        throws IOException
+    {
+        File tree = new File( directory, key );
+        File sizeFile = new File( directory, key + SIZE_SUFFIX );
+        FileUtils.fileWrite( sizeFile.getPath(), "US-ASCII", Long.toString( getSize( staging.toPath() ) ) );
+        try
+        {
+            Files.move( staging.toPath(), tree.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( FileAlreadyExistsException e )
+        {
+            discard( staging );
+        }
+        catch ( IOException e )
+        {
+            if ( !tree.isDirectory() )
+            {
+                throw e;
+            }
+            // renaming onto a non empty directory fails differently depending on the platform
+            discard( staging );
+        }
+
+        evict( key );
+        return tree;
+    }
+
+    /**
+     * Deletes a staging directory that was not added.
+     *
+     * @param staging the directory created by {@link #createStagingDirectory()}.
+     */
+    public void discard( File staging )
+    {
+        try
+        {
+            FileUtils.deleteDirectory( staging );
+        }
+        catch ( IOException e )
+        {
+            // a leftover in the cache directory, evict() doesn't count it
+        }
+    }
+
+    /**
+     * Deletes the least recently used trees until the cache fits its maximum size.
+     *
+     * @param keep the key of a tree that must not be deleted.
+     */
+    private void evict( String keep )
+    {
+        File[] sizeFiles = directory.listFiles();
+        if ( sizeFiles == null )
+        {
+            return;
+        }
+
+        long total = 0;
+        List<File> candidates = new ArrayList<File>();
+        for ( File sizeFile : sizeFiles )
+        {
+            if ( sizeFile.getName().endsWith( SIZE_SUFFIX ) )
+            {
+                total += readSize( sizeFile );
+                candidates.add( sizeFile );
+            }
+        }
+        if ( total <= maxSize )
+        {
+            return;
+        }
+
+        File[] byLastUse = candidates.toArray( new File[candidates.size()] );
+        Arrays.sort( byLastUse, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long t1 = f1.lastModified();
+                long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : ( t1 == t2 ? 0 : 1 );
+            }
+        } );
+
+        for ( int i = 0; i < byLastUse.length && total > maxSize; i++ )
+        {
+            File sizeFile = byLastUse[i];
+            String key = sizeFile.getName().substring( 0, sizeFile.getName().length() - SIZE_SUFFIX.length() );
+            if ( key.equals( keep ) )
+            {
+                continue;
+            }
+            long size = readSize( sizeFile );
+            File tree = new File( directory, key );
+            try
+            {
+                // move it out of the way first, so nobody starts using a half deleted tree
+                if ( tree.exists() )
+                {
+                    Path trash = Files.createTempDirectory( directory.toPath(), ".trash-" );
+                    Files.move( tree.toPath(), trash.resolve( key ), StandardCopyOption.ATOMIC_MOVE );
+                    FileUtils.deleteDirectory( trash.toFile() );
+                }
+                Files.deleteIfExists( sizeFile.toPath() );
+                total -= size;
+            }
+            catch ( IOException e )
+            {
+                // in use on a platform that doesn't allow it, try the next one
+            }
+        }
+    }
+
+    private static long readSize( File sizeFile )
+    {
+        try
+        {
+            return Long.parseLong( FileUtils.fileRead( sizeFile, "US-ASCII" ).trim() );
+        }
+        catch ( IOException e )
+        {
+            return 0;
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    private static long getSize( Path root )
+        throws IOException
+    {
+        final long[] size = new long[1];
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+            {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+        return size[0];
+    }
+
+    /**
+     * Places the files of a cached tree into a directory. Existing files are replaced, never
+     * written into, and files that already are links to the cached ones are left alone.
+     * Copies keep the modification time and permissions of the cached files.
+     *
+     * @param tree the cached tree.
+     * @param destination the directory to place the files into.
+     * @param link whether to create hard links instead of copies. Falls back to copies when
+     *            the file system can't link.
+     * @throws IOException if the tree can't be placed, e.g. because it was evicted meanwhile.
+     */
+    public static void materialize( File tree, File destination, final boolean link )
+        throws IOException
+    {
+        final Path source = tree.toPath();
+        final Path dest = destination.toPath();
+        Files.walkFileTree( source, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Files.createDirectories( dest.resolve( source.relativize( dir ).toString() ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Path target = dest.resolve( source.relativize( file ).toString() );
+                if ( Files.isDirectory( target, LinkOption.NOFOLLOW_LINKS ) )
+                {
+                    FileUtils.deleteDirectory( target.toFile() );
+                }
+                else if ( Files.exists( target, LinkOption.NOFOLLOW_LINKS ) && Files.isSameFile( file, target ) )
+                {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                Path tmp =
+                    target.resolveSibling( "." + target.getFileName() + "." + Long.toHexString( System.nanoTime() )
+                        + ".tmp" );
+                try
+                {
+                    if ( !link || !createLink( tmp, file ) )
+                    {
+                        Files.copy( file, tmp, StandardCopyOption.COPY_ATTRIBUTES );
+                    }
+                    Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING );
+                }
+                finally
+                {
+                    Files.deleteIfExists( tmp );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult postVisitDirectory( Path dir, IOException e )
+                throws IOException
+            {
+                if ( e != null )
+                {
+                    throw e;
+                }
+                Path target = dest.resolve( source.relativize( dir ).toString() );
+                Files.setLastModifiedTime( target, Files.getLastModifiedTime( dir ) );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private static boolean createLink( Path link, Path existing )
+    {
+        try
+        {
+            Files.createLink( link, existing );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            return false;
+        }
+    }
+}
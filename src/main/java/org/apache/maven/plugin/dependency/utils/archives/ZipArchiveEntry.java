@@ -0,0 +1,213 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Calendar;
+
+/**
+ * An entry of a zip central directory.
+ *
+ * @version $Id$
+ */
+public class ZipArchiveEntry
+{
+    /**
+     * Compression method of entries that are stored as is.
+     */
+    public static final int STORED = 0;
+
+    /**
+     * Compression method of deflated entries.
+     */
+    public static final int DEFLATED = 8;
+
+    private static final int PLATFORM_UNIX = 3;
+
+    private final String name;
+
+    private final byte[] rawName;
+
+    private final int versionMadeBy;
+
+    private final int flags;
+
+    private final int method;
+
+    private final long dosTime;
+
+    private final long crc;
+
+    private final long compressedSize;
+
+    private final long size;
+
+    private final long externalAttributes;
+
+    private final long localHeaderOffset;
+
+    ZipArchiveEntry( String name, byte[] rawName, int versionMadeBy, int flags, int method, long dosTime, long crc,
+                     long compressedSize, long size, long externalAttributes, long localHeaderOffset )
+    {
+        this.name = name;
+        this.rawName = rawName;
+        this.versionMadeBy = versionMadeBy;
+        this.flags = flags;
+        this.method = method;
+        this.dosTime = dosTime;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.externalAttributes = externalAttributes;
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    /**
+     * @return Returns the name, with <code>/</code> as separator.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return Returns the name as stored in the archive, in the encoding told by the flags.
+     */
+    byte[] getRawName()
+    {
+        return this.rawName;
+    }
+
+    /**
+     * @return <code>true</code> if the entry is a directory.
+     */
+    public boolean isDirectory()
+    {
+        return name.endsWith( "/" );
+    }
+
+    /**
+     * @return <code>true</code> if the entry is encrypted.
+     */
+    public boolean isEncrypted()
+    {
+        return ( flags & 1 ) != 0;
+    }
+
+    /**
+     * @return Returns the version made by field, the platform in the upper byte.
+     */
+    int getVersionMadeBy()
+    {
+        return this.versionMadeBy;
+    }
+
+    /**
+     * @return Returns the general purpose bit flags.
+     */
+    int getFlags()
+    {
+        return this.flags;
+    }
+
+    /**
+     * @return Returns the modification time and date in MS-DOS format.
+     */
+    long getDosTime()
+    {
+        return this.dosTime;
+    }
+
+    /**
+     * @return Returns the external file attributes.
+     */
+    long getExternalAttributes()
+    {
+        return this.externalAttributes;
+    }
+
+    /**
+     * @return Returns the compression method.
+     */
+    public int getMethod()
+    {
+        return this.method;
+    }
+
+    /**
+     * @return Returns the CRC-32 of the uncompressed data.
+     */
+    public long getCrc()
+    {
+        return this.crc;
+    }
+
+    /**
+     * @return Returns the compressed size.
+     */
+    public long getCompressedSize()
+    {
+        return this.compressedSize;
+    }
+
+    /**
+     * @return Returns the uncompressed size.
+     */
+    public long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return Returns the offset of the local file header in the archive.
+     */
+    public long getLocalHeaderOffset()
+    {
+        return this.localHeaderOffset;
+    }
+
+    /**
+     * @return the unix permission bits, or <code>0</code> if the archive was not made on unix.
+     */
+    public int getUnixMode()
+    {
+        if ( ( versionMadeBy >> 8 ) != PLATFORM_UNIX )
+        {
+            return 0;
+        }
+        return (int) ( ( externalAttributes >> 16 ) & 07777 );
+    }
+
+    /**
+     * Converts the MS-DOS modification time of the entry the same way <code>java.util.zip</code> does,
+     * in the default time zone.
+     *
+     * @param calendar a calendar to reuse, see {@link Calendar#getInstance()}.
+     * @return the modification time in milliseconds.
+     */
+    public long getTime( Calendar calendar )
+    {
+        int date = (int) ( dosTime >> 16 );
+        int time = (int) ( dosTime & 0xffff );
+        calendar.clear();
+        calendar.set( ( ( date >> 9 ) & 0x7f ) + 1980, ( ( date >> 5 ) & 0x0f ) - 1, date & 0x1f,
+                      ( time >> 11 ) & 0x1f, ( time >> 5 ) & 0x3f, ( time << 1 ) & 0x3e );
+        return calendar.getTimeInMillis();
+    }
+}
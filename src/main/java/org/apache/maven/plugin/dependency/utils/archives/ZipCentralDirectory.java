@@ -0,0 +1,342 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the central directory of a zip file, including Zip64 archives. Only the end of
+ * the file and the central directory itself are read, the entry data is left alone. Large
+ * central directories are memory mapped rather than copied onto the heap.
+ *
+ * @version $Id$
+ */
+public final class ZipCentralDirectory
+{
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    static final int LOCAL_HEADER_LENGTH = 30;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int END_LENGTH = 22;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_END_LENGTH = 56;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final long MAGIC_32 = 0xffffffffL;
+
+    private static final int MAGIC_16 = 0xffff;
+
+    /**
+     * The encoding of the entry names, whatever the UTF-8 flag says: plexus reads the names as
+     * UTF-8 and writes them so without setting the flag, as the jars built by Maven hold them.
+     */
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    /**
+     * Central directories smaller than this are read, mapping them costs more than it saves.
+     */
+    private static final int MIN_MAPPED_LENGTH = 64 * 1024;
+
+    private ZipCentralDirectory()
+    {
+        // utility class
+    }
+
+    /**
+     * Tells whether a file starts like a zip file, whatever its extension.
+     *
+     * @param file the file to check.
+     * @return <code>true</code> for zip files, including empty ones.
+     */
+    public static boolean isZipFile( File file )
+    {
+        if ( !file.isFile() || file.length() < END_LENGTH )
+        {
+            return false;
+        }
+        RandomAccessFile raf = null;
+        try
+        {
+            raf = new RandomAccessFile( file, "r" );
+            int signature = Integer.reverseBytes( raf.readInt() );
+            return signature == LOCAL_HEADER_SIGNATURE || signature == END_SIGNATURE;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+        finally
+        {
+            close( raf );
+        }
+    }
+
+    /**
+     * Reads the entries of a zip file in central directory order.
+     *
+     * @param file the zip file.
+     * @return the entries.
+     * @throws IOException if the file can't be read or is not a zip file.
+     */
+    public static List<ZipArchiveEntry> read( File file )
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+
+            // the end record is followed by a comment of up to 64k
+            int tailLength = (int) Math.min( length, END_LENGTH + MAGIC_16 );
+            ByteBuffer tail = readFully( channel, length - tailLength, tailLength );
+            int end = -1;
+            for ( int i = tailLength - END_LENGTH; i >= 0; i-- )
+            {
+                if ( tail.getInt( i ) == END_SIGNATURE )
+                {
+                    end = i;
+                    break;
+                }
+            }
+            if ( end < 0 )
+            {
+                throw new IOException( file + " is not a zip file" );
+            }
+            long endOffset = length - tailLength + end;
+
+            long entries = tail.getShort( end + 10 ) & MAGIC_16;
+            long size = tail.getInt( end + 12 ) & MAGIC_32;
+            long offset = tail.getInt( end + 16 ) & MAGIC_32;
+            long shift = 0;
+
+            if ( entries == MAGIC_16 || size == MAGIC_32 || offset == MAGIC_32 )
+            {
+                ByteBuffer locator =
+                    readFully( channel, endOffset - ZIP64_LOCATOR_LENGTH, ZIP64_LOCATOR_LENGTH );
+                if ( locator.getInt( 0 ) != ZIP64_LOCATOR_SIGNATURE )
+                {
+                    throw new IOException( file + " has a broken Zip64 end of central directory" );
+                }
+                ByteBuffer end64 = readFully( channel, locator.getLong( 8 ), ZIP64_END_LENGTH );
+                if ( end64.getInt( 0 ) != ZIP64_END_SIGNATURE )
+                {
+                    throw new IOException( file + " has a broken Zip64 end of central directory" );
+                }
+                entries = end64.getLong( 32 );
+                size = end64.getLong( 40 );
+                offset = end64.getLong( 48 );
+            }
+            else
+            {
+                // data prepended to the archive, e.g. a self extracting stub
+                shift = endOffset - size - offset;
+            }
+
+            if ( size > Integer.MAX_VALUE || offset + shift + size > length )
+            {
+                throw new IOException( file + " has a broken central directory" );
+            }
+            ByteBuffer directory;
+            if ( size < MIN_MAPPED_LENGTH )
+            {
+                directory = readFully( channel, offset + shift, (int) size );
+            }
+            else
+            {
+                directory = channel.map( FileChannel.MapMode.READ_ONLY, offset + shift, size );
+                directory.order( ByteOrder.LITTLE_ENDIAN );
+            }
+            return parse( file, directory, entries, shift );
+        }
+        finally
+        {
+            close( raf );
+        }
+    }
+
+    private static List<ZipArchiveEntry> parse( File file, ByteBuffer buffer, long count, long shift )
+        throws IOException
+    {
+        List<ZipArchiveEntry> entries = new ArrayList<ZipArchiveEntry>( (int) Math.min( count, 1 << 16 ) );
+        int pos = 0;
+        while ( pos + CENTRAL_HEADER_LENGTH <= buffer.limit() && buffer.getInt( pos ) == CENTRAL_HEADER_SIGNATURE )
+        {
+            int versionMadeBy = buffer.getShort( pos + 4 ) & MAGIC_16;
+            int flags = buffer.getShort( pos + 8 ) & MAGIC_16;
+            int method = buffer.getShort( pos + 10 ) & MAGIC_16;
+            long dosTime = buffer.getInt( pos + 12 ) & MAGIC_32;
+            long crc = buffer.getInt( pos + 16 ) & MAGIC_32;
+            long compressedSize = buffer.getInt( pos + 20 ) & MAGIC_32;
+            long size = buffer.getInt( pos + 24 ) & MAGIC_32;
+            int nameLength = buffer.getShort( pos + 28 ) & MAGIC_16;
+            int extraLength = buffer.getShort( pos + 30 ) & MAGIC_16;
+            int commentLength = buffer.getShort( pos + 32 ) & MAGIC_16;
+            long externalAttributes = buffer.getInt( pos + 38 ) & MAGIC_32;
+            long localHeaderOffset = buffer.getInt( pos + 42 ) & MAGIC_32;
+
+            int namePos = pos + CENTRAL_HEADER_LENGTH;
+            if ( namePos + nameLength + extraLength > buffer.limit() )
+            {
+                throw new IOException( file + " has a broken central directory" );
+            }
+            byte[] nameBytes = new byte[nameLength];
+            buffer.position( namePos );
+            buffer.get( nameBytes );
+            String name = new String( nameBytes, UTF_8 );
+
+            if ( size == MAGIC_32 || compressedSize == MAGIC_32 || localHeaderOffset == MAGIC_32 )
+            {
+                int extra = findExtra( buffer, namePos + nameLength, extraLength, ZIP64_EXTRA_ID );
+                if ( extra < 0 )
+                {
+                    throw new IOException( file + ": missing Zip64 sizes of " + name );
+                }
+                // the fields are only present when the 32 bit ones overflow, in this order
+                if ( size == MAGIC_32 )
+                {
+                    size = buffer.getLong( extra );
+                    extra += 8;
+                }
+                if ( compressedSize == MAGIC_32 )
+                {
+                    compressedSize = buffer.getLong( extra );
+                    extra += 8;
+                }
+                if ( localHeaderOffset == MAGIC_32 )
+                {
+                    localHeaderOffset = buffer.getLong( extra );
+                }
+            }
+
+            entries.add( new ZipArchiveEntry( name, nameBytes, versionMadeBy, flags, method, dosTime, crc,
+                                              compressedSize, size, externalAttributes, localHeaderOffset + shift ) );
+            pos = namePos + nameLength + extraLength + commentLength;
+        }
+
+        if ( entries.size() < count && count != MAGIC_16 )
+        {
+            throw new IOException( file + " has a broken central directory: expected " + count + " entries, found "
+                + entries.size() );
+        }
+        return entries;
+    }
+
+    /**
+     * @return the position of the data of the extra field or <code>-1</code> if there is none.
+     */
+    private static int findExtra( ByteBuffer buffer, int pos, int length, int id )
+    {
+        int end = pos + length;
+        while ( pos + 4 <= end )
+        {
+            int headerId = buffer.getShort( pos ) & MAGIC_16;
+            int dataLength = buffer.getShort( pos + 2 ) & MAGIC_16;
+            if ( headerId == id )
+            {
+                return pos + 4;
+            }
+            pos += 4 + dataLength;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds where the data of an entry starts, after its local file header.
+     *
+     * @param channel the archive.
+     * @param entry the entry.
+     * @param header a buffer of at least {@link #LOCAL_HEADER_LENGTH} bytes, little endian.
+     * @return the offset of the data.
+     * @throws IOException if the local header can't be read.
+     */
+    static long getDataOffset( FileChannel channel, ZipArchiveEntry entry, ByteBuffer header )
+        throws IOException
+    {
+        header.clear();
+        header.limit( LOCAL_HEADER_LENGTH );
+        long offset = entry.getLocalHeaderOffset();
+        while ( header.hasRemaining() )
+        {
+            if ( channel.read( header, offset + header.position() ) < 0 )
+            {
+                throw new IOException( "Unexpected end of archive reading " + entry.getName() );
+            }
+        }
+        if ( header.getInt( 0 ) != LOCAL_HEADER_SIGNATURE )
+        {
+            throw new IOException( "Broken local header for " + entry.getName() );
+        }
+        int nameLength = header.getShort( 26 ) & MAGIC_16;
+        int extraLength = header.getShort( 28 ) & MAGIC_16;
+        return offset + LOCAL_HEADER_LENGTH + nameLength + extraLength;
+    }
+
+    private static ByteBuffer readFully( FileChannel channel, long position, int length )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length ).order( ByteOrder.LITTLE_ENDIAN );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                throw new IOException( "Unexpected end of archive" );
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void close( RandomAccessFile raf )
+    {
+        if ( raf != null )
+        {
+            try
+            {
+                raf.close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,872 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+
+/**
+ * Extracts zip files with several threads. The central directory is read once, the
+ * selected entries are sorted by their position in the archive and split into ranges of
+ * about the same compressed size, and every range is extracted by its own worker through
+ * its own channel. The result is the same as the one of the plexus zip unarchiver: same
+ * files, modification times and permissions, and later duplicates of an entry win.
+ *
+ * @version $Id$
+ */
+public class ZipExtractor
+{
+    /**
+     * Archives smaller than this per worker are not worth another thread.
+     */
+    private static final long MIN_BYTES_PER_WORKER = 1024 * 1024;
+
+    private static final byte[] DUMMY_BYTE = new byte[1];
+
+    private final int threads;
+
+    private FileSelector[] fileSelectors;
+
+    private EntryManifest entryManifest;
+
+    /**
+     * @param threads the maximum number of threads extracting one archive.
+     */
+    public ZipExtractor( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    /**
+     * @param fileSelectors the selectors an entry must pass to be extracted, or <code>null</code> for all entries.
+     */
+    public void setFileSelectors( FileSelector[] fileSelectors )
+    {
+        this.fileSelectors = fileSelectors;
+    }
+
+    /**
+     * Makes the extraction incremental: entries the manifest lists with the same CRC and
+     * size are skipped as long as their file is still there, and the files of listed entries
+     * that are not in the archive any more are deleted, unless their content changed since
+     * they were unpacked. The manifest is updated to describe
+     * the new content of the destination, saving it is up to the caller.
+     *
+     * @param entryManifest the entries unpacked last time into the same destination.
+     */
+    public void setEntryManifest( EntryManifest entryManifest )
+    {
+        this.entryManifest = entryManifest;
+    }
+
+    /**
+     * Extracts the selected entries of a zip file.
+     *
+     * @param archive the zip file.
+     * @param destDirectory the directory to extract to.
+     * @throws IOException if the archive can't be read or a file can't be written.
+     */
+    public void extract( File archive, File destDirectory )
+        throws IOException
+    {
+        extract( archive, ZipCentralDirectory.read( archive ), destDirectory );
+    }
+
+    /**
+     * Tells whether any of the entries passes the selectors, so archives without a single
+     * one can be skipped after reading their central directory only.
+     *
+     * @param entries the entries of a zip file, as read by {@link ZipCentralDirectory#read(File)}.
+     * @return <code>true</code> if at least one entry would be extracted.
+     * @throws IOException if a selector fails.
+     */
+    public boolean hasSelectedEntries( List<ZipArchiveEntry> entries )
+        throws IOException
+    {
+        for ( ZipArchiveEntry entry : entries )
+        {
+            if ( isSelected( entry ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the selected entries of a zip file whose central directory was already read.
+     *
+     * @param archive the zip file.
+     * @param centralDirectory the entries of the zip file, as read by {@link ZipCentralDirectory#read(File)}.
+     * @param destDirectory the directory to extract to.
+     * @throws IOException if the archive can't be read or a file can't be written.
+     */
+    public void extract( File archive, List<ZipArchiveEntry> centralDirectory, File destDirectory )
+        throws IOException
+    {
+        Path root = destDirectory.getAbsoluteFile().toPath().normalize();
+
+        // later entries with the same name overwrite earlier ones, only the last one is extracted
+        Map<String, ZipArchiveEntry> files = new LinkedHashMap<String, ZipArchiveEntry>();
+        Calendar calendar = Calendar.getInstance();
+        for ( ZipArchiveEntry entry : centralDirectory )
+        {
+            if ( !isSelected( entry ) )
+            {
+                continue;
+            }
+            if ( entry.isDirectory() )
+            {
+                File dir = resolve( root, entry ).toFile();
+                dir.mkdirs();
+                dir.setLastModified( entry.getTime( calendar ) );
+            }
+            else
+            {
+                files.remove( entry.getName() );
+                files.put( entry.getName(), entry );
+            }
+        }
+        if ( entryManifest != null )
+        {
+            skipUpToDateEntries( root, files );
+        }
+
+        List<Extraction> extractions = new ArrayList<Extraction>( files.size() );
+        for ( ZipArchiveEntry entry : files.values() )
+        {
+            extractions.add( new Extraction( entry, new File[] { resolve( root, entry ).toFile() } ) );
+        }
+        extract( archive, extractions );
+    }
+
+    /**
+     * Extracts a zip file into several directories in a single pass: every entry is read and
+     * inflated once, and written to each destination whose selectors select it. The file
+     * selectors and the entry manifest of this extractor are not used.
+     *
+     * @param archive the zip file.
+     * @param centralDirectory the entries of the zip file, as read by {@link ZipCentralDirectory#read(File)}.
+     * @param destinations the directories to extract to, with their selectors.
+     * @throws IOException if the archive can't be read or a file can't be written.
+     */
+    public void extract( File archive, List<ZipArchiveEntry> centralDirectory, List<Destination> destinations )
+        throws IOException
+    {
+        Path[] roots = new Path[destinations.size()];
+        for ( int i = 0; i < roots.length; i++ )
+        {
+            roots[i] = destinations.get( i ).getDirectory().getAbsoluteFile().toPath().normalize();
+        }
+
+        // selection only depends on the name, so the last entry of a name wins in every destination
+        Map<String, Extraction> files = new LinkedHashMap<String, Extraction>();
+        Calendar calendar = Calendar.getInstance();
+        for ( ZipArchiveEntry entry : centralDirectory )
+        {
+            Set<File> targets = new LinkedHashSet<File>();
+            for ( int i = 0; i < roots.length; i++ )
+            {
+                if ( isSelected( entry, destinations.get( i ).getFileSelectors() ) )
+                {
+                    targets.add( resolve( roots[i], entry ).toFile() );
+                }
+            }
+            if ( targets.isEmpty() )
+            {
+                continue;
+            }
+            if ( entry.isDirectory() )
+            {
+                for ( File dir : targets )
+                {
+                    dir.mkdirs();
+                    dir.setLastModified( entry.getTime( calendar ) );
+                }
+            }
+            else
+            {
+                files.remove( entry.getName() );
+                files.put( entry.getName(), new Extraction( entry, targets.toArray( new File[targets.size()] ) ) );
+            }
+        }
+        extract( archive, new ArrayList<Extraction>( files.values() ) );
+    }
+
+    /**
+     * Sorts the extractions by position in the archive and runs them, with several workers if worth it.
+     */
+    private void extract( File archive, List<Extraction> extractions )
+        throws IOException
+    {
+        if ( extractions.isEmpty() )
+        {
+            return;
+        }
+
+        Collections.sort( extractions, new Comparator<Extraction>()
+        {
+            public int compare( Extraction e1, Extraction e2 )
+            {
+                long o1 = e1.entry.getLocalHeaderOffset();
+                long o2 = e2.entry.getLocalHeaderOffset();
+                return o1 < o2 ? -1 : ( o1 == o2 ? 0 : 1 );
+            }
+        } );
+
+        long total = 0;
+        for ( Extraction extraction : extractions )
+        {
+            total += extraction.entry.getCompressedSize();
+        }
+        int workers = (int) Math.min( Math.min( threads, extractions.size() ), 1 + total / MIN_BYTES_PER_WORKER );
+
+        // every directory is created once up front, not checked again for each of its files
+        Set<File> directories = new HashSet<File>();
+        for ( Extraction extraction : extractions )
+        {
+            for ( File target : extraction.targets )
+            {
+                File directory = target.getParentFile();
+                if ( directories.add( directory ) )
+                {
+                    directory.mkdirs();
+                }
+            }
+        }
+
+        List<Worker> ranges = split( archive, extractions, total, workers );
+        if ( ranges.size() == 1 )
+        {
+            ranges.get( 0 ).call();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( ranges.size() );
+        try
+        {
+            List<Future<Object>> futures = executor.invokeAll( ranges );
+            for ( Future<Object> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while extracting " + archive );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            IOException ioe = new IOException( "Error extracting " + archive + ": " + cause );
+            ioe.initCause( cause );
+            throw ioe;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Removes the entries that are up to date from <code>files</code>, deletes the files of
+     * vanished entries and records the new entries in the manifest.
+     */
+    private void skipUpToDateEntries( Path root, Map<String, ZipArchiveEntry> files )
+        throws IOException
+    {
+        Map<String, EntryManifest.Entry> previous = new HashMap<String, EntryManifest.Entry>();
+        for ( EntryManifest.Entry entry : entryManifest.getEntries() )
+        {
+            previous.put( entry.getName(), entry );
+        }
+        entryManifest.clear();
+
+        for ( Iterator<ZipArchiveEntry> it = files.values().iterator(); it.hasNext(); )
+        {
+            ZipArchiveEntry entry = it.next();
+            Path target = resolve( root, entry );
+            String path = root.relativize( target ).toString().replace( File.separatorChar, '/' );
+            entryManifest.put( entry.getName(), entry.getCrc(), entry.getSize(), path );
+
+            EntryManifest.Entry old = previous.remove( entry.getName() );
+            if ( old != null && old.getCrc() == entry.getCrc() && old.getSize() == entry.getSize()
+                && old.getPath().equals( path ) )
+            {
+                File file = target.toFile();
+                if ( file.isFile() && file.length() == entry.getSize() )
+                {
+                    it.remove();
+                }
+            }
+        }
+
+        for ( EntryManifest.Entry old : previous.values() )
+        {
+            Path target = root.resolve( old.getPath() ).normalize();
+            // leave the file alone if something else has written it since, e.g. another archive
+            if ( target.startsWith( root ) && isUnchanged( target.toFile(), old ) && target.toFile().delete() )
+            {
+                // drop the directories the entry leaves empty
+                for ( File dir = target.toFile().getParentFile(); dir != null && !dir.toPath().equals( root );
+                      dir = dir.getParentFile() )
+                {
+                    String[] children = dir.list();
+                    if ( children == null || children.length > 0 || !dir.delete() )
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isUnchanged( File file, EntryManifest.Entry entry )
+        throws IOException
+    {
+        if ( !file.isFile() || file.length() != entry.getSize() )
+        {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[ExtractionBuffers.BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                crc.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return crc.getValue() == entry.getCrc();
+    }
+
+    /**
+     * Splits the entries, sorted by offset, into contiguous ranges of about the same compressed size.
+     */
+    private List<Worker> split( File archive, List<Extraction> extractions, long total, int workers )
+    {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Worker> ranges = new ArrayList<Worker>( workers );
+        int start = 0;
+        long done = 0;
+        for ( int i = 0; i < extractions.size(); i++ )
+        {
+            done += extractions.get( i ).entry.getCompressedSize();
+            boolean last = i == extractions.size() - 1;
+            if ( last || ( ranges.size() < workers - 1 && done >= total * ( ranges.size() + 1 ) / workers ) )
+            {
+                ranges.add( new Worker( archive, extractions.subList( start, i + 1 ), failed ) );
+                start = i + 1;
+            }
+        }
+        return ranges;
+    }
+
+    private boolean isSelected( ZipArchiveEntry entry )
+        throws IOException
+    {
+        return isSelected( entry, fileSelectors );
+    }
+
+    private static boolean isSelected( ZipArchiveEntry entry, FileSelector[] fileSelectors )
+        throws IOException
+    {
+        return isSelected( entry.getName(), entry.isDirectory(), fileSelectors );
+    }
+
+    /**
+     * Tells whether an archive entry passes the selectors, without making its content available to them.
+     */
+    static boolean isSelected( final String name, final boolean directory, FileSelector[] fileSelectors )
+        throws IOException
+    {
+        if ( fileSelectors == null )
+        {
+            return true;
+        }
+        if ( fileSelectors.length == 1 && fileSelectors[0] instanceof IncludeExcludeMatcher )
+        {
+            return ( (IncludeExcludeMatcher) fileSelectors[0] ).matches( name );
+        }
+        FileInfo info = new FileInfo()
+        {
+            public String getName()
+            {
+                return name;
+            }
+
+            public InputStream getContents()
+                throws IOException
+            {
+                throw new IOException( "The content of " + name + " is not available for selection" );
+            }
+
+            public boolean isFile()
+            {
+                return !directory;
+            }
+
+            public boolean isDirectory()
+            {
+                return directory;
+            }
+        };
+        for ( int i = 0; i < fileSelectors.length; i++ )
+        {
+            if ( !fileSelectors[i].isSelected( info ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Path resolve( Path root, ZipArchiveEntry entry )
+        throws IOException
+    {
+        return resolve( root, entry.getName() );
+    }
+
+    /**
+     * Resolves the name of an archive entry against the destination, refusing names that escape it.
+     */
+    static Path resolve( Path root, String name )
+        throws IOException
+    {
+        Path target = root.resolve( name ).normalize();
+        if ( !target.startsWith( root ) )
+        {
+            throw new IOException( "Entry " + name + " is outside of the destination directory" );
+        }
+        return target;
+    }
+
+    /**
+     * Applies the unix permissions of an entry, as the plexus unarchiver does unless told to ignore them.
+     */
+    static void setPermissions( File file, int mode )
+    {
+        if ( mode != 0 )
+        {
+            setPermissions( file, toPermissions( mode ) );
+        }
+    }
+
+    private static void setPermissions( File file, Set<PosixFilePermission> permissions )
+    {
+        try
+        {
+            Files.setPosixFilePermissions( file.toPath(), permissions );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // not a posix file system
+        }
+        catch ( IOException e )
+        {
+            // same as the unarchiver, permissions are best effort
+        }
+    }
+
+    private static Set<PosixFilePermission> toPermissions( int mode )
+    {
+        Set<PosixFilePermission> permissions = EnumSet.noneOf( PosixFilePermission.class );
+        PosixFilePermission[] bits = PosixFilePermission.values();
+        // OWNER_READ is 0400, OTHERS_EXECUTE is 0001
+        for ( int i = 0; i < bits.length; i++ )
+        {
+            if ( ( mode & ( 0400 >> i ) ) != 0 )
+            {
+                permissions.add( bits[i] );
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * A directory to extract into, with the selectors the entries must pass.
+     */
+    public static class Destination
+    {
+        private final File directory;
+
+        private final FileSelector[] fileSelectors;
+
+        /**
+         * @param directory the directory to extract to.
+         * @param fileSelectors the selectors an entry must pass to be extracted, or <code>null</code> for all entries.
+         */
+        public Destination( File directory, FileSelector[] fileSelectors )
+        {
+            this.directory = directory;
+            this.fileSelectors = fileSelectors;
+        }
+
+        public File getDirectory()
+        {
+            return this.directory;
+        }
+
+        public FileSelector[] getFileSelectors()
+        {
+            return this.fileSelectors;
+        }
+    }
+
+    /**
+     * An entry and the files it is extracted to.
+     */
+    private static class Extraction
+    {
+        private final ZipArchiveEntry entry;
+
+        private final File[] targets;
+
+        Extraction( ZipArchiveEntry entry, File[] targets )
+        {
+            this.entry = entry;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * Extracts a range of entries through its own channel, with pooled buffers and inflater.
+     */
+    private static class Worker
+        implements Callable<Object>
+    {
+        private final File archive;
+
+        private final List<Extraction> extractions;
+
+        private final AtomicBoolean failed;
+
+        /**
+         * Permissions by unix mode, as there are only a few different modes in an archive.
+         */
+        private final Map<Integer, Set<PosixFilePermission>> permissions =
+            new HashMap<Integer, Set<PosixFilePermission>>();
+
+        /**
+         * The permissions new files get, <code>null</code> until known.
+         */
+        private Set<PosixFilePermission> newFilePermissions;
+
+        private boolean posix = true;
+
+        Worker( File archive, List<Extraction> extractions, AtomicBoolean failed )
+        {
+            this.archive = archive;
+            this.extractions = extractions;
+            this.failed = failed;
+        }
+
+        public Object call()
+            throws IOException
+        {
+            RandomAccessFile raf = new RandomAccessFile( archive, "r" );
+            ExtractionBuffers buffers = ExtractionBuffers.acquire();
+            try
+            {
+                FileChannel channel = raf.getChannel();
+                for ( Extraction extraction : extractions )
+                {
+                    if ( failed.get() || Thread.currentThread().isInterrupted() )
+                    {
+                        return null;
+                    }
+                    ZipArchiveEntry entry = extraction.entry;
+                    long offset = ZipCentralDirectory.getDataOffset( channel, entry, buffers.header );
+                    extract( channel, offset, entry, extraction.targets, buffers );
+                    long time = entry.getTime( buffers.calendar );
+                    for ( File target : extraction.targets )
+                    {
+                        target.setLastModified( time );
+                        applyPermissions( target, entry.getUnixMode() );
+                    }
+                }
+                return null;
+            }
+            catch ( IOException e )
+            {
+                failed.set( true );
+                throw e;
+            }
+            catch ( RuntimeException e )
+            {
+                failed.set( true );
+                throw e;
+            }
+            finally
+            {
+                ExtractionBuffers.release( buffers );
+                raf.close();
+            }
+        }
+
+        /**
+         * Sets the permissions of the entry on a new file, unless new files get them anyway.
+         */
+        private void applyPermissions( File file, int mode )
+        {
+            if ( mode == 0 || !posix )
+            {
+                return;
+            }
+            if ( newFilePermissions == null )
+            {
+                try
+                {
+                    newFilePermissions = Files.getPosixFilePermissions( file.toPath() );
+                }
+                catch ( UnsupportedOperationException e )
+                {
+                    posix = false;
+                    return;
+                }
+                catch ( IOException e )
+                {
+                    setPermissions( file, mode );
+                    return;
+                }
+            }
+
+            Integer key = Integer.valueOf( mode & 0777 );
+            Set<PosixFilePermission> wanted = permissions.get( key );
+            if ( wanted == null )
+            {
+                wanted = toPermissions( mode );
+                permissions.put( key, wanted );
+            }
+            if ( !wanted.equals( newFilePermissions ) )
+            {
+                setPermissions( file, wanted );
+            }
+        }
+
+        private void extract( FileChannel channel, long offset, ZipArchiveEntry entry, File[] targets,
+                              ExtractionBuffers buffers )
+            throws IOException
+        {
+            Inflater inflater = buffers.inflater;
+            CRC32 crc = buffers.crc;
+            byte[] input = buffers.input;
+            byte[] output = buffers.output;
+            ByteBuffer in = buffers.in;
+
+            if ( entry.isEncrypted() )
+            {
+                throw new IOException( "Entry " + entry.getName() + " of " + archive + " is encrypted" );
+            }
+            if ( entry.getMethod() != ZipArchiveEntry.STORED && entry.getMethod() != ZipArchiveEntry.DEFLATED )
+            {
+                throw new IOException( "Entry " + entry.getName() + " of " + archive
+                    + " uses the unsupported compression method " + entry.getMethod() );
+            }
+
+            long position = offset;
+            long remaining = entry.getCompressedSize();
+            long written = 0;
+            crc.reset();
+            inflater.reset();
+
+            OutputStream[] outs = new OutputStream[targets.length];
+            try
+            {
+                for ( int i = 0; i < targets.length; i++ )
+                {
+                    // replace rather than overwrite, the file may be a hard link into the unpack cache
+                    Files.deleteIfExists( targets[i].toPath() );
+                    outs[i] = new FileOutputStream( targets[i] );
+                }
+
+                if ( entry.getMethod() == ZipArchiveEntry.STORED )
+                {
+                    while ( remaining > 0 )
+                    {
+                        int n = read( channel, in, position, remaining, entry );
+                        write( outs, input, n );
+                        crc.update( input, 0, n );
+                        position += n;
+                        remaining -= n;
+                        written += n;
+                    }
+                }
+                else
+                {
+                    boolean dummy = false;
+                    while ( !inflater.finished() )
+                    {
+                        if ( inflater.needsInput() )
+                        {
+                            if ( remaining > 0 )
+                            {
+                                int n = read( channel, in, position, remaining, entry );
+                                inflater.setInput( input, 0, n );
+                                position += n;
+                                remaining -= n;
+                            }
+                            else if ( !dummy )
+                            {
+                                // raw inflate may need one byte past the end of the data
+                                inflater.setInput( DUMMY_BYTE, 0, 1 );
+                                dummy = true;
+                            }
+                            else
+                            {
+                                throw new IOException( "Unexpected end of entry " + entry.getName() + " in "
+                                    + archive );
+                            }
+                        }
+                        int n;
+                        try
+                        {
+                            n = inflater.inflate( output );
+                        }
+                        catch ( DataFormatException e )
+                        {
+                            IOException ioe =
+                                new IOException( "Broken entry " + entry.getName() + " in " + archive + ": "
+                                    + e.getMessage() );
+                            ioe.initCause( e );
+                            throw ioe;
+                        }
+                        if ( n > 0 )
+                        {
+                            write( outs, output, n );
+                            crc.update( output, 0, n );
+                            written += n;
+                        }
+                        else if ( inflater.needsDictionary() )
+                        {
+                            throw new IOException( "Broken entry " + entry.getName() + " in " + archive );
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                close( outs );
+            }
+
+            if ( written != entry.getSize() || crc.getValue() != entry.getCrc() )
+            {
+                throw new IOException( "Entry " + entry.getName() + " of " + archive
+                    + " is corrupt: size or CRC does not match the central directory" );
+            }
+        }
+
+        /**
+         * Closes all streams, even if closing one of them fails.
+         */
+        private static void close( OutputStream[] outs )
+            throws IOException
+        {
+            IOException failure = null;
+            for ( int i = 0; i < outs.length; i++ )
+            {
+                try
+                {
+                    if ( outs[i] != null )
+                    {
+                        outs[i].close();
+                    }
+                }
+                catch ( IOException e )
+                {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+
+        private static void write( OutputStream[] outs, byte[] buffer, int length )
+            throws IOException
+        {
+            for ( int i = 0; i < outs.length; i++ )
+            {
+                outs[i].write( buffer, 0, length );
+            }
+        }
+
+        private int read( FileChannel channel, ByteBuffer in, long position, long remaining, ZipArchiveEntry entry )
+            throws IOException
+        {
+            in.clear();
+            in.limit( (int) Math.min( in.capacity(), remaining ) );
+            int n = channel.read( in, position );
+            if ( n < 0 )
+            {
+                throw new IOException( "Unexpected end of archive " + archive + " reading " + entry.getName() );
+            }
+            return n;
+        }
+    }
+}
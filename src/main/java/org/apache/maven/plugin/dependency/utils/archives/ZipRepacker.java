@@ -0,0 +1,408 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+
+/**
+ * Merges zip archives into one without decompressing them: the compressed data of every
+ * entry is copied as is from the source archive, the CRC and sizes are taken from its
+ * central directory. Merging costs the I/O of the data and nothing more.
+ * <p>
+ * The entries are written in the order the archives were added, every archive in the
+ * order of its central directory. An entry found in several archives is handled by the
+ * duplicates policy: {@link #FIRST} keeps the one of the first archive, {@link #LAST} the
+ * one of the last archive at the position of the first, and {@link #FAIL} refuses to
+ * merge. Directory entries found several times are always written once.
+ *
+ * @version $Id$
+ */
+public class ZipRepacker
+{
+    /**
+     * Keeps the entry of the first archive.
+     */
+    public static final String FIRST = "first";
+
+    /**
+     * Keeps the entry of the last archive.
+     */
+    public static final String LAST = "last";
+
+    /**
+     * Fails on entries found in several archives.
+     */
+    public static final String FAIL = "fail";
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final int VERSION = 20;
+
+    private static final int ZIP64_VERSION = 45;
+
+    /**
+     * Data descriptor flag, the repacked entries have their sizes in the local header.
+     */
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+
+    private static final long MAGIC_32 = 0xffffffffL;
+
+    private static final int MAGIC_16 = 0xffff;
+
+    /**
+     * Large enough for the longest local header.
+     */
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private final String duplicates;
+
+    private FileSelector[] fileSelectors;
+
+    private final Map<String, Source> entries = new LinkedHashMap<String, Source>();
+
+    /**
+     * @param duplicates the duplicates policy, {@link #FIRST}, {@link #LAST} or {@link #FAIL}.
+     * @throws IllegalArgumentException for another policy.
+     */
+    public ZipRepacker( String duplicates )
+    {
+        if ( !FIRST.equals( duplicates ) && !LAST.equals( duplicates ) && !FAIL.equals( duplicates ) )
+        {
+            throw new IllegalArgumentException( "Unknown duplicates policy: " + duplicates );
+        }
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * @param fileSelectors the selectors an entry must pass to be merged, or <code>null</code> for all entries.
+     */
+    public void setFileSelectors( FileSelector[] fileSelectors )
+    {
+        this.fileSelectors = fileSelectors;
+    }
+
+    /**
+     * Adds the selected entries of an archive. Only its central directory is read.
+     *
+     * @param archive a zip archive.
+     * @throws IOException if the central directory can't be read, or an entry is a duplicate
+     *             with the {@link #FAIL} policy.
+     */
+    public void add( File archive )
+        throws IOException
+    {
+        for ( ZipArchiveEntry entry : ZipCentralDirectory.read( archive ) )
+        {
+            String name = entry.getName();
+            if ( !ZipExtractor.isSelected( name, entry.isDirectory(), fileSelectors ) )
+            {
+                continue;
+            }
+            if ( entry.isEncrypted() )
+            {
+                throw new IOException( archive + ": can't repack the encrypted entry " + name );
+            }
+
+            Source previous = entries.get( name );
+            if ( previous == null )
+            {
+                entries.put( name, new Source( archive, entry ) );
+            }
+            else if ( !entry.isDirectory() && !previous.archive.equals( archive ) )
+            {
+                if ( FAIL.equals( duplicates ) )
+                {
+                    throw new IOException( "Duplicate entry " + name + " in " + previous.archive + " and " + archive );
+                }
+                if ( LAST.equals( duplicates ) )
+                {
+                    // a LinkedHashMap keeps the position of the first one
+                    entries.put( name, new Source( archive, entry ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries that will be written.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Writes the merged archive.
+     *
+     * @param destFile the archive to write, replaced if it exists.
+     * @throws IOException if an archive can't be read or the merged one written.
+     */
+    public void write( File destFile )
+        throws IOException
+    {
+        Map<File, FileChannel> channels = new HashMap<File, FileChannel>();
+        FileChannel out =
+            FileChannel.open( destFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                              StandardOpenOption.TRUNCATE_EXISTING );
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate( ZipCentralDirectory.LOCAL_HEADER_LENGTH )
+                .order( ByteOrder.LITTLE_ENDIAN );
+            ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+            List<Written> written = new ArrayList<Written>( entries.size() );
+            for ( Source source : entries.values() )
+            {
+                FileChannel channel = channels.get( source.archive );
+                if ( channel == null )
+                {
+                    channel = FileChannel.open( source.archive.toPath(), StandardOpenOption.READ );
+                    channels.put( source.archive, channel );
+                }
+                written.add( copyEntry( source, channel, out, header, buffer ) );
+            }
+            writeCentralDirectory( written, out, buffer );
+        }
+        finally
+        {
+            for ( FileChannel channel : channels.values() )
+            {
+                close( channel );
+            }
+            close( out );
+        }
+    }
+
+    private static Written copyEntry( Source source, FileChannel channel, FileChannel out, ByteBuffer header,
+                                      ByteBuffer buffer )
+        throws IOException
+    {
+        ZipArchiveEntry entry = source.entry;
+        long dataOffset = ZipCentralDirectory.getDataOffset( channel, entry, header );
+        Written written = new Written( entry, out.position() );
+        boolean zip64 = entry.getSize() >= MAGIC_32 || entry.getCompressedSize() >= MAGIC_32;
+
+        buffer.clear();
+        buffer.putInt( ZipCentralDirectory.LOCAL_HEADER_SIGNATURE );
+        buffer.putShort( (short) ( zip64 ? ZIP64_VERSION : VERSION ) );
+        buffer.putShort( (short) written.flags );
+        buffer.putShort( (short) entry.getMethod() );
+        buffer.putInt( (int) entry.getDosTime() );
+        buffer.putInt( (int) entry.getCrc() );
+        buffer.putInt( (int) ( zip64 ? MAGIC_32 : entry.getCompressedSize() ) );
+        buffer.putInt( (int) ( zip64 ? MAGIC_32 : entry.getSize() ) );
+        buffer.putShort( (short) written.name.length );
+        buffer.putShort( (short) ( zip64 ? 20 : 0 ) );
+        buffer.put( written.name );
+        if ( zip64 )
+        {
+            buffer.putShort( (short) ZIP64_EXTRA_ID );
+            buffer.putShort( (short) 16 );
+            buffer.putLong( entry.getSize() );
+            buffer.putLong( entry.getCompressedSize() );
+        }
+        buffer.flip();
+        writeFully( out, buffer );
+
+        long position = dataOffset;
+        long remaining = entry.getCompressedSize();
+        while ( remaining > 0 )
+        {
+            long n = channel.transferTo( position, remaining, out );
+            if ( n <= 0 )
+            {
+                throw new IOException( "Unexpected end of " + source.archive + " in " + entry.getName() );
+            }
+            position += n;
+            remaining -= n;
+        }
+        return written;
+    }
+
+    private static void writeCentralDirectory( List<Written> written, FileChannel out, ByteBuffer buffer )
+        throws IOException
+    {
+        long offset = out.position();
+        buffer.clear();
+        for ( Written entry : written )
+        {
+            ZipArchiveEntry source = entry.entry;
+            boolean sizes64 = source.getSize() >= MAGIC_32 || source.getCompressedSize() >= MAGIC_32;
+            boolean offset64 = entry.offset >= MAGIC_32;
+            int extraLength = sizes64 || offset64 ? 4 + ( sizes64 ? 16 : 0 ) + ( offset64 ? 8 : 0 ) : 0;
+            if ( buffer.remaining() < 46 + entry.name.length + extraLength )
+            {
+                buffer.flip();
+                writeFully( out, buffer );
+                buffer.clear();
+            }
+
+            buffer.putInt( CENTRAL_HEADER_SIGNATURE );
+            buffer.putShort( (short) source.getVersionMadeBy() );
+            buffer.putShort( (short) ( extraLength > 0 ? ZIP64_VERSION : VERSION ) );
+            buffer.putShort( (short) entry.flags );
+            buffer.putShort( (short) source.getMethod() );
+            buffer.putInt( (int) source.getDosTime() );
+            buffer.putInt( (int) source.getCrc() );
+            buffer.putInt( (int) ( sizes64 ? MAGIC_32 : source.getCompressedSize() ) );
+            buffer.putInt( (int) ( sizes64 ? MAGIC_32 : source.getSize() ) );
+            buffer.putShort( (short) entry.name.length );
+            buffer.putShort( (short) extraLength );
+            // comment length, disk number start, internal attributes
+            buffer.putShort( (short) 0 );
+            buffer.putShort( (short) 0 );
+            buffer.putShort( (short) 0 );
+            buffer.putInt( (int) source.getExternalAttributes() );
+            buffer.putInt( (int) ( offset64 ? MAGIC_32 : entry.offset ) );
+            buffer.put( entry.name );
+            if ( extraLength > 0 )
+            {
+                buffer.putShort( (short) ZIP64_EXTRA_ID );
+                buffer.putShort( (short) ( extraLength - 4 ) );
+                if ( sizes64 )
+                {
+                    buffer.putLong( source.getSize() );
+                    buffer.putLong( source.getCompressedSize() );
+                }
+                if ( offset64 )
+                {
+                    buffer.putLong( entry.offset );
+                }
+            }
+        }
+
+        long count = written.size();
+        long end = out.position() + buffer.position();
+        long size = end - offset;
+        if ( buffer.remaining() < 56 + 20 + 22 )
+        {
+            buffer.flip();
+            writeFully( out, buffer );
+            buffer.clear();
+        }
+        if ( count >= MAGIC_16 || offset >= MAGIC_32 || size >= MAGIC_32 )
+        {
+            buffer.putInt( ZIP64_END_SIGNATURE );
+            buffer.putLong( 44 );
+            buffer.putShort( (short) ZIP64_VERSION );
+            buffer.putShort( (short) ZIP64_VERSION );
+            buffer.putInt( 0 );
+            buffer.putInt( 0 );
+            buffer.putLong( count );
+            buffer.putLong( count );
+            buffer.putLong( size );
+            buffer.putLong( offset );
+
+            buffer.putInt( ZIP64_LOCATOR_SIGNATURE );
+            buffer.putInt( 0 );
+            buffer.putLong( end );
+            buffer.putInt( 1 );
+        }
+        buffer.putInt( END_SIGNATURE );
+        buffer.putShort( (short) 0 );
+        buffer.putShort( (short) 0 );
+        buffer.putShort( (short) Math.min( count, MAGIC_16 ) );
+        buffer.putShort( (short) Math.min( count, MAGIC_16 ) );
+        buffer.putInt( (int) Math.min( size, MAGIC_32 ) );
+        buffer.putInt( (int) Math.min( offset, MAGIC_32 ) );
+        buffer.putShort( (short) 0 );
+        buffer.flip();
+        writeFully( out, buffer );
+    }
+
+    private static void writeFully( FileChannel out, ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            out.write( buffer );
+        }
+    }
+
+    private static void close( FileChannel channel )
+    {
+        try
+        {
+            channel.close();
+        }
+        catch ( IOException e )
+        {
+            // ignore
+        }
+    }
+
+    /**
+     * An entry to merge and the archive it comes from.
+     */
+    private static final class Source
+    {
+        private final File archive;
+
+        private final ZipArchiveEntry entry;
+
+        Source( File archive, ZipArchiveEntry entry )
+        {
+            this.archive = archive;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * An entry of the merged archive, as needed for its central directory header.
+     */
+    private static final class Written
+    {
+        private final ZipArchiveEntry entry;
+
+        private final long offset;
+
+        private final byte[] name;
+
+        private final int flags;
+
+        Written( ZipArchiveEntry entry, long offset )
+        {
+            this.entry = entry;
+            this.offset = offset;
+            // the name is copied as is, with the flag telling its encoding
+            this.name = entry.getRawName();
+            this.flags = entry.getFlags() & ~DATA_DESCRIPTOR_FLAG;
+        }
+    }
+}
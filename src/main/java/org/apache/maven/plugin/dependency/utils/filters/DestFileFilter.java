@@ -20,12 +20,15 @@ package org.apache.maven.plugin.dependency.utils.filters;
  */
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.dependency.fromConfiguration.ArtifactItem;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.apache.maven.plugin.dependency.utils.OutputManifest;
 import org.apache.maven.shared.artifact.filter.collection.AbstractArtifactsFilter;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactFilterException;
 import org.codehaus.plexus.util.StringUtils;
@@ -56,6 +59,10 @@ public class DestFileFilter
 
     private File outputFileDirectory;
 
+    private boolean compareDigests;
+
+    private OutputManifest outputManifest;
+
     public DestFileFilter( File outputFileDirectory )
     {
         this.outputFileDirectory = outputFileDirectory;
@@ -243,6 +250,42 @@ public class DestFileFilter
         this.useRepositoryLayout = useRepositoryLayout;
     }
 
+    /**
+     * @return Returns the compareDigests.
+     */
+    public boolean isCompareDigests()
+    {
+        return this.compareDigests;
+    }
+
+    /**
+     * @param compareDigests
+     *            if set, overWriteIfNewer compares SHA-1 digests instead of
+     *            modification times.
+     */
+    public void setCompareDigests( boolean compareDigests )
+    {
+        this.compareDigests = compareDigests;
+    }
+
+    /**
+     * @return Returns the outputManifest.
+     */
+    public OutputManifest getOutputManifest()
+    {
+        return this.outputManifest;
+    }
+
+    /**
+     * @param outputManifest
+     *            the manifest of the output directory, used instead of looking
+     *            at the destination files where it is up to date.
+     */
+    public void setOutputManifest( OutputManifest outputManifest )
+    {
+        this.outputManifest = outputManifest;
+    }
+
     public boolean isArtifactIncluded( ArtifactItem item )
     {
         Artifact artifact = item.getArtifact();
@@ -269,7 +312,48 @@ public class DestFileFilter
             destFile = new File( destFolder, item.getDestFileName() );
         }
 
-        return overWrite || !destFile.exists()
-            || ( overWriteIfNewer && artifact.getFile().lastModified() > destFile.lastModified() );
+        if ( overWrite )
+        {
+            return true;
+        }
+
+        OutputManifest.Entry entry = null;
+        if ( outputManifest != null )
+        {
+            entry = outputManifest.getUpToDateEntry( artifact.getId(), artifact.getFile(), destFile );
+        }
+        if ( entry == null && !destFile.exists() )
+        {
+            return true;
+        }
+        if ( !overWriteIfNewer )
+        {
+            return false;
+        }
+        if ( compareDigests )
+        {
+            return !isSameDigest( artifact.getFile(), destFile, entry );
+        }
+        long destLastModified = entry != null ? entry.getLastModified() : destFile.lastModified();
+        return artifact.getFile().lastModified() > destLastModified;
+    }
+
+    private static boolean isSameDigest( File artifactFile, File destFile, OutputManifest.Entry entry )
+    {
+        long destLength = entry != null ? entry.getSize() : destFile.length();
+        if ( artifactFile.length() != destLength )
+        {
+            return false;
+        }
+        try
+        {
+            String destDigest = entry != null ? entry.getDigest() : DigestUtil.getDigest( destFile );
+            return DigestUtil.getArtifactDigest( artifactFile ).equals( destDigest );
+        }
+        catch ( IOException e )
+        {
+            // can't tell, copy again
+            return false;
+        }
     }
 }
@@ -89,7 +89,10 @@ public class MarkerFileFilter
 
         try
         {
-            return overWrite || !handler.isMarkerSet() || ( overWriteIfNewer && handler.isMarkerOlder( artifact ) );
+            // the marker fingerprint tells whether the artifact is processed another way now, and
+            // whether it changed whatever its time
+            return overWrite || !handler.isMarkerCurrent()
+                || ( overWriteIfNewer && handler.isMarkerOlder( artifact ) );
         }
         catch ( MojoExecutionException e )
         {
@@ -24,6 +24,9 @@ import java.io.IOException;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
 
 /**
  * @author <a href="mailto:brianf@apache.org">Brian Fox</a>
@@ -36,6 +39,16 @@ public class DefaultFileMarkerHandler
 
     protected File markerFilesDirectory;
 
+    /**
+     * The store holding the markers, <code>null</code> to keep them in files of their own.
+     */
+    protected MarkerStore markerStore;
+
+    /**
+     * The marker files listed beforehand, <code>null</code> to look each of them up.
+     */
+    protected MarkerIndex markerIndex;
+
     public DefaultFileMarkerHandler( File theMarkerFilesDirectory )
     {
         this.markerFilesDirectory = theMarkerFilesDirectory;
@@ -73,37 +86,55 @@ public class DefaultFileMarkerHandler
         throws MojoExecutionException
     {
         File marker = getMarkerFile();
-        return marker.exists();
+        return markerExists( marker );
     }
 
     public boolean isMarkerOlder( Artifact artifact1 )
         throws MojoExecutionException
     {
-        // temporary debug to find out why this intermittent failure on Sonatype grid Windows
-        System.out.println( "> isMarkerOlder:" );
         File marker = getMarkerFile();
-        System.out.println( "  artifact1 = " + artifact1.getFile().getPath() );
-        System.out.println( "  marker    = " + marker.getPath() );
-        if ( marker.exists() )
+        if ( markerExists( marker ) )
         {
-            System.out.println( "    artifact1 lastModified: " + artifact1.getFile().lastModified() );
-            System.out.println( "    marker lastModified: " + marker.lastModified() );
-            System.out.println( "< " + ( artifact1.getFile().lastModified() > marker.lastModified() ) + " = marker older than artifact?"  );
-            return artifact1.getFile().lastModified() > marker.lastModified();
+            // a recorded fingerprint tells alone: an artifact touched but identical is not newer,
+            // one replaced without a newer time is; only markers without one compare the times
+            String recorded = getMarkerFingerprint( marker );
+            if ( recorded != null && artifact1.getFile().isFile() )
+            {
+                return !recorded.startsWith( getArtifactFingerprint( artifact1.getFile() ) + ":" );
+            }
+            return artifact1.getFile().lastModified() > getMarkerTimestamp( marker );
         }
         else
         {
-            System.out.println( "< true : marker does not exist" );
             // if the marker doesn't exist, we want to copy so assume it is
             // infinitely older
             return true;
         }
     }
 
+    public boolean isMarkerCurrent()
+        throws MojoExecutionException
+    {
+        File marker = getMarkerFile();
+        if ( !markerExists( marker ) )
+        {
+            return false;
+        }
+        // markers set without fingerprint can't tell
+        String recorded = getMarkerFingerprint( marker );
+        return recorded == null || recorded.endsWith( ":" + getOptionsFingerprint() );
+    }
+
     public void setMarker()
         throws MojoExecutionException
     {
         File marker = getMarkerFile();
+        String fingerprint = getFingerprint();
+        if ( markerStore != null )
+        {
+            markerStore.set( marker.getName(), getMarkerTimestamp(), fingerprint );
+            return;
+        }
         // create marker file
         try
         {
@@ -116,6 +147,10 @@ public class DefaultFileMarkerHandler
         try
         {
             marker.createNewFile();
+            if ( fingerprint != null )
+            {
+                FileUtils.fileWrite( marker, "UTF-8", fingerprint );
+            }
         }
         catch ( IOException e )
         {
@@ -123,23 +158,19 @@ public class DefaultFileMarkerHandler
         }
         
         // update marker file timestamp
+        long timestamp = getMarkerTimestamp();
         try
         {
-            long ts;
-            if ( this.artifact != null && this.artifact.getFile() != null )
-            {
-                ts = this.artifact.getFile().lastModified();
-            }
-            else
-            {
-                ts = System.currentTimeMillis();
-            }
-            marker.setLastModified( ts );
+            marker.setLastModified( timestamp );
         }
         catch ( Exception e )
         {
             throw new MojoExecutionException( "Unable to update Marker timestamp: " + marker.getAbsolutePath(), e );
         }
+        if ( markerIndex != null )
+        {
+            markerIndex.set( marker.getName(), timestamp, fingerprint );
+        }
     }
 
     /**
@@ -159,6 +190,178 @@ public class DefaultFileMarkerHandler
         throws MojoExecutionException
     {
         File marker = getMarkerFile();
+        return deleteMarker( marker );
+    }
+
+    /**
+     * Returns the fingerprint recorded in the marker, <code>&lt;digest&gt;:&lt;size&gt;:&lt;options&gt;</code>:
+     * the SHA-1 digest and the size of the artifact, that {@link #isMarkerOlder(Artifact)} compares,
+     * and the SHA-1 of the include and exclude patterns and of the destination directory, that
+     * {@link #isMarkerCurrent()} compares.
+     *
+     * @return the fingerprint, <code>null</code> if the artifact is not a file.
+     * @throws MojoExecutionException if the artifact can't be read.
+     */
+    protected String getFingerprint()
+        throws MojoExecutionException
+    {
+        if ( this.artifact == null || this.artifact.getFile() == null || !this.artifact.getFile().isFile() )
+        {
+            return null;
+        }
+        return getArtifactFingerprint( this.artifact.getFile() ) + ":" + getOptionsFingerprint();
+    }
+
+    private String getArtifactFingerprint( File file )
+        throws MojoExecutionException
+    {
+        try
+        {
+            return DigestUtil.getArtifactDigest( file ) + ":" + file.length();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to compute the digest of " + file, e );
+        }
+    }
+
+    private String getOptionsFingerprint()
+    {
+        File destination = getDestination();
+        return DigestUtil.sha1( StringUtils.defaultString( getIncludes() ) + '\u0000'
+            + StringUtils.defaultString( getExcludes() ) + '\u0000'
+            + ( destination != null ? destination.getAbsolutePath() : "" ) );
+    }
+
+    /**
+     * @return the include patterns the artifact is processed with, recorded in the fingerprint.
+     */
+    protected String getIncludes()
+    {
+        return null;
+    }
+
+    /**
+     * @return the exclude patterns the artifact is processed with, recorded in the fingerprint.
+     */
+    protected String getExcludes()
+    {
+        return null;
+    }
+
+    /**
+     * @return the directory the artifact is processed into, recorded in the fingerprint.
+     */
+    protected File getDestination()
+    {
+        return null;
+    }
+
+    /**
+     * @return the time of the marker: the time the artifact file was modified, or now without file.
+     */
+    private long getMarkerTimestamp()
+    {
+        if ( this.artifact != null && this.artifact.getFile() != null )
+        {
+            return this.artifact.getFile().lastModified();
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @param marker a marker file of the markers directory.
+     * @return <code>true</code> if the marker is set, in the marker store or as a file.
+     */
+    protected boolean markerExists( File marker )
+    {
+        if ( markerStore != null )
+        {
+            return markerStore.contains( marker.getName() );
+        }
+        return markerIndex != null ? markerIndex.contains( marker.getName() ) : marker.exists();
+    }
+
+    /**
+     * @param marker a marker file of the markers directory.
+     * @return the time of the marker, <code>0</code> if it is not set.
+     */
+    protected long getMarkerTimestamp( File marker )
+    {
+        if ( markerStore != null )
+        {
+            return markerStore.getTimestamp( marker.getName() );
+        }
+        return markerIndex != null ? markerIndex.getTimestamp( marker.getName() ) : marker.lastModified();
+    }
+
+    /**
+     * @param marker a marker file of the markers directory.
+     * @return the fingerprint recorded in the marker, <code>null</code> if it is not set or has none.
+     * @throws MojoExecutionException if the marker file can't be read.
+     */
+    protected String getMarkerFingerprint( File marker )
+        throws MojoExecutionException
+    {
+        if ( markerStore != null )
+        {
+            return markerStore.getFingerprint( marker.getName() );
+        }
+        if ( markerIndex != null )
+        {
+            return markerIndex.getFingerprint( marker.getName() );
+        }
+        if ( marker.length() == 0 )
+        {
+            return null;
+        }
+        try
+        {
+            return StringUtils.trim( FileUtils.fileRead( marker, "UTF-8" ) );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to read Marker: " + marker.getAbsolutePath(), e );
+        }
+    }
+
+    /**
+     * Sets a marker at the current time, in the marker store or as a file.
+     *
+     * @param marker a marker file of the markers directory.
+     * @throws IOException if the marker file can't be created.
+     */
+    protected void createMarker( File marker )
+        throws IOException
+    {
+        if ( markerStore != null )
+        {
+            markerStore.set( marker.getName(), System.currentTimeMillis() );
+        }
+        else
+        {
+            marker.createNewFile();
+            if ( markerIndex != null )
+            {
+                markerIndex.set( marker.getName(), marker.lastModified(), null );
+            }
+        }
+    }
+
+    /**
+     * @param marker a marker file of the markers directory.
+     * @return <code>true</code> if the marker was set and is now cleared.
+     */
+    protected boolean deleteMarker( File marker )
+    {
+        if ( markerStore != null )
+        {
+            return markerStore.remove( marker.getName() );
+        }
+        if ( markerIndex != null )
+        {
+            markerIndex.remove( marker.getName() );
+        }
         return marker.delete();
     }
 
@@ -195,4 +398,40 @@ public class DefaultFileMarkerHandler
     {
         this.markerFilesDirectory = markerFilesDirectory;
     }
+
+    /**
+     * @return Returns the marker store, <code>null</code> if the markers are files.
+     */
+    public MarkerStore getMarkerStore()
+    {
+        return this.markerStore;
+    }
+
+    /**
+     * @param markerStore
+     *            The store of the markers of <code>markerFilesDirectory</code>, or <code>null</code> to
+     *            keep every marker in a file of its own.
+     */
+    public void setMarkerStore( MarkerStore markerStore )
+    {
+        this.markerStore = markerStore;
+    }
+
+    /**
+     * @return Returns the marker index, <code>null</code> if the marker files are looked up one by one.
+     */
+    public MarkerIndex getMarkerIndex()
+    {
+        return this.markerIndex;
+    }
+
+    /**
+     * @param markerIndex
+     *            The marker files of <code>markerFilesDirectory</code> listed beforehand, or <code>null</code>
+     *            to look each marker file up.
+     */
+    public void setMarkerIndex( MarkerIndex markerIndex )
+    {
+        this.markerIndex = markerIndex;
+    }
 }
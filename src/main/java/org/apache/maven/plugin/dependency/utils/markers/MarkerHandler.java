@@ -40,6 +40,13 @@ public interface MarkerHandler
     boolean isMarkerOlder( Artifact artifact )
         throws MojoExecutionException;
 
+    /**
+     * @return <code>true</code> if the marker is set and the fingerprint recorded in it, if any, is the
+     *         fingerprint of the artifact as it would be processed now.
+     */
+    boolean isMarkerCurrent()
+        throws MojoExecutionException;
+
     void setArtifact( Artifact artifact );
 
 }
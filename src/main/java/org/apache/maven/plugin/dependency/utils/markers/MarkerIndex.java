@@ -0,0 +1,194 @@
+package org.apache.maven.plugin.dependency.utils.markers;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * The marker files of a markers directory, listed once with their time and the fingerprint
+ * they hold, so that the handlers can tell whether the markers are set and current without
+ * asking the file system again for every artifact. The handlers keep the index up to date as
+ * they set and clear markers; markers changed by other processes meanwhile are not seen until
+ * the index is loaded again.
+ *
+ * @version $Id$
+ */
+public class MarkerIndex
+{
+    /**
+     * Marker files are written by the handlers, bigger files are not read for a fingerprint.
+     */
+    private static final long MAX_FINGERPRINT_LENGTH = 1024;
+
+    private final File directory;
+
+    private final Map<String, Marker> markers = new HashMap<String, Marker>();
+
+    /**
+     * @param markersDirectory the markers directory, it does not need to exist.
+     */
+    public MarkerIndex( File markersDirectory )
+    {
+        this.directory = markersDirectory;
+    }
+
+    /**
+     * Lists the marker files of the directory, if it exists, and reads their fingerprints.
+     *
+     * @throws IOException if the directory can't be listed.
+     */
+    public synchronized void load()
+        throws IOException
+    {
+        markers.clear();
+        DirectoryStream<Path> stream;
+        try
+        {
+            stream = Files.newDirectoryStream( directory.toPath() );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return;
+        }
+        catch ( NotDirectoryException e )
+        {
+            return;
+        }
+        try
+        {
+            for ( Path path : stream )
+            {
+                BasicFileAttributes attributes;
+                String fingerprint = null;
+                try
+                {
+                    attributes = Files.readAttributes( path, BasicFileAttributes.class );
+                    if ( attributes.isRegularFile() && attributes.size() > 0
+                        && attributes.size() <= MAX_FINGERPRINT_LENGTH )
+                    {
+                        fingerprint = StringUtils.trim( new String( Files.readAllBytes( path ), "UTF-8" ) );
+                    }
+                }
+                catch ( NoSuchFileException e )
+                {
+                    // deleted while listing
+                    continue;
+                }
+                if ( attributes.isRegularFile() )
+                {
+                    markers.put( path.getFileName().toString(),
+                                 new Marker( attributes.lastModifiedTime().toMillis(),
+                                             StringUtils.isEmpty( fingerprint ) ? null : fingerprint ) );
+                }
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the markers directory.
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    /**
+     * @param name the name of the marker file.
+     * @return <code>true</code> if the marker file exists.
+     */
+    public synchronized boolean contains( String name )
+    {
+        return markers.containsKey( name );
+    }
+
+    /**
+     * @param name the name of the marker file.
+     * @return the time the marker file was modified, or <code>0</code> if it does not exist, like
+     *         {@link File#lastModified()}.
+     */
+    public synchronized long getTimestamp( String name )
+    {
+        Marker marker = markers.get( name );
+        return marker != null ? marker.timestamp : 0;
+    }
+
+    /**
+     * @param name the name of the marker file.
+     * @return the fingerprint the marker file holds, or <code>null</code> if it holds none or does not exist.
+     */
+    public synchronized String getFingerprint( String name )
+    {
+        Marker marker = markers.get( name );
+        return marker != null ? marker.fingerprint : null;
+    }
+
+    /**
+     * Records a marker file that was written.
+     *
+     * @param name the name of the marker file.
+     * @param timestamp the time the marker file was modified.
+     * @param fingerprint the fingerprint written to the marker file, or <code>null</code> if it is empty.
+     */
+    public synchronized void set( String name, long timestamp, String fingerprint )
+    {
+        markers.put( name, new Marker( timestamp, fingerprint ) );
+    }
+
+    /**
+     * Records a marker file that was deleted.
+     *
+     * @param name the name of the marker file.
+     */
+    public synchronized void remove( String name )
+    {
+        markers.remove( name );
+    }
+
+    /**
+     * A marker file.
+     */
+    private static final class Marker
+    {
+        private final long timestamp;
+
+        private final String fingerprint;
+
+        Marker( long timestamp, String fingerprint )
+        {
+            this.timestamp = timestamp;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
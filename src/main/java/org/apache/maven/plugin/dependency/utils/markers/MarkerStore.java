@@ -0,0 +1,279 @@
+package org.apache.maven.plugin.dependency.utils.markers;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * All the markers of a markers directory in a single file, instead of one file per
+ * marker. The file is read once into memory; setting and clearing markers only changes
+ * the memory until {@link #save()} writes the file back, to a temporary file first that
+ * is then renamed over the previous one. A marker is known by the name its marker file
+ * would have and holds the time the marker file would have been modified at, and the
+ * fingerprint the marker file would contain, if any.
+ *
+ * @version $Id$
+ */
+public class MarkerStore
+{
+    /**
+     * The name of the file holding the markers, in the markers directory.
+     */
+    public static final String FILE_NAME = "markers.db";
+
+    private static final String NO_FINGERPRINT = "-";
+
+    private static final String HEADER =
+        "# maven-dependency-plugin markers, <timestamp> <fingerprint or " + NO_FINGERPRINT + "> <name> per line";
+
+    private final File file;
+
+    private final Map<String, Long> markers = new HashMap<String, Long>();
+
+    private final Map<String, String> fingerprints = new HashMap<String, String>();
+
+    private boolean modified;
+
+    /**
+     * @param markersDirectory the markers directory, it does not need to exist.
+     */
+    public MarkerStore( File markersDirectory )
+    {
+        this.file = new File( markersDirectory, FILE_NAME );
+    }
+
+    /**
+     * Reads the markers from the file, if it exists.
+     *
+     * @throws IOException if the markers file exists but can't be read.
+     */
+    public synchronized void load()
+        throws IOException
+    {
+        BufferedReader reader;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+        }
+        catch ( FileNotFoundException e )
+        {
+            return;
+        }
+        try
+        {
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                int space = line.indexOf( ' ' );
+                if ( line.startsWith( "#" ) || space < 0 )
+                {
+                    continue;
+                }
+                try
+                {
+                    Long timestamp = Long.valueOf( line.substring( 0, space ) );
+                    String name = line.substring( space + 1 );
+                    int nameStart = name.indexOf( ' ' );
+                    if ( nameStart < 0 )
+                    {
+                        // a line without fingerprint
+                        markers.put( name, timestamp );
+                        continue;
+                    }
+                    String fingerprint = name.substring( 0, nameStart );
+                    name = name.substring( nameStart + 1 );
+                    markers.put( name, timestamp );
+                    if ( !NO_FINGERPRINT.equals( fingerprint ) )
+                    {
+                        fingerprints.put( name, fingerprint );
+                    }
+                }
+                catch ( NumberFormatException e )
+                {
+                    // a damaged line only loses its marker
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * @return the file holding the markers.
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @param name the name of the marker.
+     * @return <code>true</code> if the marker is set.
+     */
+    public synchronized boolean contains( String name )
+    {
+        return markers.containsKey( name );
+    }
+
+    /**
+     * @param name the name of the marker.
+     * @return the time of the marker, or <code>0</code> if it is not set, like {@link File#lastModified()}.
+     */
+    public synchronized long getTimestamp( String name )
+    {
+        Long timestamp = markers.get( name );
+        return timestamp != null ? timestamp.longValue() : 0;
+    }
+
+    /**
+     * @param name the name of the marker.
+     * @return the fingerprint recorded with the marker, or <code>null</code> if it is not set or has none.
+     */
+    public synchronized String getFingerprint( String name )
+    {
+        return fingerprints.get( name );
+    }
+
+    /**
+     * Sets a marker without fingerprint, or changes its time if it is set.
+     *
+     * @param name the name of the marker.
+     * @param timestamp the time of the marker.
+     */
+    public void set( String name, long timestamp )
+    {
+        set( name, timestamp, null );
+    }
+
+    /**
+     * Sets a marker, or changes its time and fingerprint if it is set.
+     *
+     * @param name the name of the marker.
+     * @param timestamp the time of the marker.
+     * @param fingerprint the fingerprint to record with the marker, without spaces, or <code>null</code>.
+     */
+    public synchronized void set( String name, long timestamp, String fingerprint )
+    {
+        markers.put( name, Long.valueOf( timestamp ) );
+        if ( fingerprint != null )
+        {
+            fingerprints.put( name, fingerprint );
+        }
+        else
+        {
+            fingerprints.remove( name );
+        }
+        modified = true;
+    }
+
+    /**
+     * Clears a marker.
+     *
+     * @param name the name of the marker.
+     * @return <code>true</code> if the marker was set.
+     */
+    public synchronized boolean remove( String name )
+    {
+        if ( markers.remove( name ) == null )
+        {
+            return false;
+        }
+        fingerprints.remove( name );
+        modified = true;
+        return true;
+    }
+
+    /**
+     * Writes the markers back to the file, sorted by name, if they changed since they were loaded or saved.
+     *
+     * @throws IOException if the file can't be written.
+     */
+    public synchronized void save()
+        throws IOException
+    {
+        if ( !modified )
+        {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+        File tmp = File.createTempFile( FILE_NAME, ".tmp", file.getParentFile() );
+        try
+        {
+            Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( tmp ), "UTF-8" ) );
+            try
+            {
+                writer.write( HEADER );
+                writer.write( '\n' );
+                List<String> names = new ArrayList<String>( markers.keySet() );
+                Collections.sort( names );
+                for ( String name : names )
+                {
+                    String fingerprint = fingerprints.get( name );
+                    writer.write( markers.get( name ).toString() );
+                    writer.write( ' ' );
+                    writer.write( fingerprint != null ? fingerprint : NO_FINGERPRINT );
+                    writer.write( ' ' );
+                    writer.write( name );
+                    writer.write( '\n' );
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+
+            try
+            {
+                Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+            modified = false;
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+}
@@ -97,23 +97,23 @@ public class SourcesFileMarkerHandler
 
         File marker2 = getMarkerFile( !this.resolved );
 
-        return marker.exists() || marker2.exists();
+        return markerExists( marker ) || markerExists( marker2 );
     }
 
     public boolean isMarkerOlder( Artifact theArtifact )
         throws MojoExecutionException
     {
         File marker = getMarkerFile();
-        if ( marker.exists() )
+        if ( markerExists( marker ) )
         {
-            return theArtifact.getFile().lastModified() > marker.lastModified();
+            return theArtifact.getFile().lastModified() > getMarkerTimestamp( marker );
         }
         else
         {
             marker = getMarkerFile( !this.resolved );
-            if ( marker.exists() )
+            if ( markerExists( marker ) )
             {
-                return theArtifact.getFile().lastModified() > marker.lastModified();
+                return theArtifact.getFile().lastModified() > getMarkerTimestamp( marker );
             }
             else
             {
@@ -124,6 +124,13 @@ public class SourcesFileMarkerHandler
         }
     }
 
+    public boolean isMarkerCurrent()
+        throws MojoExecutionException
+    {
+        // resolution markers don't record fingerprints
+        return isMarkerSet();
+    }
+
     public void setMarker()
         throws MojoExecutionException
     {
@@ -143,12 +150,9 @@ public class SourcesFileMarkerHandler
 
         try
         {
-            marker.createNewFile();
+            createMarker( marker );
             // clear the other file if it exists.
-            if ( clearMarker.exists() )
-            {
-                clearMarker.delete();
-            }
+            deleteMarker( clearMarker );
         }
         catch ( IOException e )
         {
@@ -174,8 +178,8 @@ public class SourcesFileMarkerHandler
     {
         File marker = getMarkerFile();
         File marker2 = getMarkerFile( !this.resolved );
-        boolean markResult = marker.delete();
-        boolean mark2Result = marker2.delete();
+        boolean markResult = deleteMarker( marker );
+        boolean mark2Result = deleteMarker( marker2 );
         return markResult || mark2Result;
     }
 
@@ -22,6 +22,7 @@ package org.apache.maven.plugin.dependency.utils.markers;
 import java.io.File;
 
 import org.apache.maven.plugin.dependency.fromConfiguration.ArtifactItem;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
 import org.codehaus.plexus.util.StringUtils;
 
 /**
@@ -46,36 +47,37 @@ public class UnpackFileMarkerHandler extends DefaultFileMarkerHandler
     protected File getMarkerFile()
     {
         /**
-         * Build a hash of all include/exclude strings, to determine
-         * if an artifactItem has been unpacked using the include/exclude
-         * parameters, this will allow an artifact to be included multiple
-         * times with different include/exclude parameters
+         * Build a hash of the include/exclude strings and of the output directory, to tell
+         * apart the markers of an artifact unpacked multiple times with different
+         * include/exclude parameters or into different directories
          */
-        File markerFile = null;
-        if ( this.artifactItem == null
-            || ( StringUtils.isEmpty( this.artifactItem.getIncludes() )
-            &&	StringUtils.isEmpty( this.artifactItem.getExcludes() ) ) )
+        if ( this.artifactItem == null )
         {
-            markerFile = super.getMarkerFile();
+            return super.getMarkerFile();
         }
-        else
-        {
-            int includeExcludeHash = 0;
 
-            if ( StringUtils.isNotEmpty( this.artifactItem.getIncludes() ) )
-            {
-                includeExcludeHash += this.artifactItem.getIncludes().hashCode();
-            }
+        File outputDirectory = this.artifactItem.getOutputDirectory();
+        String key = StringUtils.defaultString( this.artifactItem.getIncludes() ) + '\u0000'
+            + StringUtils.defaultString( this.artifactItem.getExcludes() ) + '\u0000'
+            + ( outputDirectory != null ? outputDirectory.getAbsolutePath() : "" );
 
-            if ( StringUtils.isNotEmpty( this.artifactItem.getExcludes() ) )
-            {
-                includeExcludeHash += this.artifactItem.getExcludes().hashCode();
-            }
+        return new File( this.markerFilesDirectory, this.artifact.getId().replace( ':', '-' ) + "-"
+            + DigestUtil.sha1( key ).substring( 0, 12 ) + ".marker" );
+    }
 
-            markerFile = new File( this.markerFilesDirectory, this.artifact.getId().replace( ':', '-' ) + includeExcludeHash );
-        }
+    protected String getIncludes()
+    {
+        return this.artifactItem != null ? this.artifactItem.getIncludes() : null;
+    }
 
-        return markerFile;
+    protected String getExcludes()
+    {
+        return this.artifactItem != null ? this.artifactItem.getExcludes() : null;
+    }
+
+    protected File getDestination()
+    {
+        return this.artifactItem != null ? this.artifactItem.getOutputDirectory() : null;
     }
 
     public void setArtifactItem( ArtifactItem artifactItem )
@@ -21,19 +21,36 @@ package org.apache.maven.plugin.dependency;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.apache.maven.plugin.dependency.utils.DirectoryLock;
+import org.apache.maven.plugin.dependency.utils.FileCopier;
+import org.apache.maven.plugin.dependency.utils.OutputManifest;
+import org.apache.maven.plugin.dependency.utils.archives.TarExtractor;
 import org.apache.maven.plugin.dependency.utils.markers.DefaultFileMarkerHandler;
 import org.apache.maven.plugin.testing.stubs.StubArtifactRepository;
 import org.apache.maven.plugin.testing.stubs.StubArtifactResolver;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.util.StringUtils;
 
 public class TestCopyDependenciesMojo
@@ -94,6 +111,48 @@ public class TestCopyDependenciesMojo
         assertTrue( dest.exists() );
     }
 
+    public void testHeldLockFails()
+        throws Exception
+    {
+        mojo.locksDirectory = new File( this.testDir, "locks" );
+        mojo.directoryLockTimeout = 0;
+        File lockFile = DirectoryLock.getLockFile( mojo.locksDirectory, mojo.outputDirectory );
+        lockFile.getParentFile().mkdirs();
+        // the lock of another build
+        RandomAccessFile other = new RandomAccessFile( lockFile, "rw" );
+        try
+        {
+            other.getChannel().lock();
+            mojo.execute();
+            fail( "Expected the goal to fail while another build holds the output directory" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof DirectoryLock.LockTimeoutException );
+        }
+        finally
+        {
+            other.close();
+        }
+        assertFalse( mojo.outputDirectory.exists() );
+    }
+
+    public void testNoLockGoesOn()
+        throws Exception
+    {
+        // a lock file can't be created below a file
+        mojo.locksDirectory = File.createTempFile( "locks", null, this.testDir );
+        mojo.execute();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            String fileName = DependencyUtil.getFormattedFileName( artifact, false );
+            assertTrue( new File( mojo.outputDirectory, fileName ).exists() );
+        }
+    }
+
     /**
      * tests the proper discovery and configuration of the mojo
      *
@@ -783,6 +842,204 @@ public class TestCopyDependenciesMojo
         }
     }
     
+    public void testStageOutputKeepsPreviousOutputOnFailure()
+        throws Exception
+    {
+        mojo.stageOutput = true;
+        mojo.execute();
+
+        File[] previous = mojo.outputDirectory.listFiles();
+        assertTrue( previous.length > 0 );
+
+        mojo.overWriteReleases = true;
+        Artifact broken = (Artifact) mojo.project.getArtifacts().iterator().next();
+        broken.setFile( new File( this.testDir, "missing.jar" ) );
+        try
+        {
+            mojo.execute();
+            fail( "Expected MojoExecutionException" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            // expected
+        }
+
+        assertEquals( new File( this.testDir, "outputDirectory" ), mojo.outputDirectory );
+        assertEquals( previous.length, mojo.outputDirectory.listFiles().length );
+        assertFalse( new File( this.testDir, ".outputDirectory.staging" ).exists() );
+    }
+
+    public void testOutputManifest()
+        throws Exception
+    {
+        mojo.useOutputManifest = true;
+        mojo.execute();
+
+        File manifestFile = OutputManifest.getManifestFile( mojo.markersDirectory, mojo.outputDirectory );
+        OutputManifest manifest = new OutputManifest( manifestFile, mojo.outputDirectory );
+        manifest.load();
+        assertEquals( mojo.project.getArtifacts().size(), manifest.getEntries().size() );
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            OutputManifest.Entry entry = manifest.getEntry( artifact.getId() );
+            assertEquals( DependencyUtil.getFormattedFileName( artifact, false ), entry.getPath() );
+            assertEquals( DigestUtil.getDigest( artifact.getFile() ), entry.getDigest() );
+        }
+
+        // skipped artifacts stay in the manifest
+        mojo.execute();
+        manifest.load();
+        assertEquals( mojo.project.getArtifacts().size(), manifest.getEntries().size() );
+    }
+
+    public void testSync()
+        throws Exception
+    {
+        File stale = new File( mojo.outputDirectory, "old/stale-1.0.jar" );
+        File hidden = new File( mojo.outputDirectory, ".keep" );
+        stale.getParentFile().mkdirs();
+        assertTrue( stale.createNewFile() );
+        assertTrue( hidden.createNewFile() );
+
+        mojo.sync = true;
+        mojo.execute();
+
+        assertFalse( stale.exists() );
+        assertFalse( stale.getParentFile().exists() );
+        assertTrue( hidden.exists() );
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            String fileName = DependencyUtil.getFormattedFileName( artifact, false );
+            assertTrue( new File( mojo.outputDirectory, fileName ).exists() );
+        }
+
+        // skipped artifacts are still expected
+        mojo.execute();
+        assertEquals( mojo.project.getArtifacts().size() + 1, mojo.outputDirectory.list().length );
+    }
+
+    public void testOutputArchiveZip()
+        throws Exception
+    {
+        mojo.outputArchive = new File( this.testDir, "deps.zip" );
+        mojo.useSubDirectoryPerType = true;
+        mojo.execute();
+
+        assertFalse( mojo.outputDirectory.exists() );
+        ZipFile zip = new ZipFile( mojo.outputArchive );
+        try
+        {
+            int files = 0;
+            for ( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
+            {
+                files += e.nextElement().isDirectory() ? 0 : 1;
+            }
+            assertEquals( mojo.project.getArtifacts().size(), files );
+            Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+            while ( iter.hasNext() )
+            {
+                Artifact artifact = iter.next();
+                String name = artifact.getType() + "s/" + DependencyUtil.getFormattedFileName( artifact, false );
+                ZipEntry entry = zip.getEntry( name );
+                assertNotNull( name, entry );
+                assertEquals( ZipEntry.STORED, entry.getMethod() );
+                assertEquals( artifact.getFile().length(), entry.getSize() );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    public void testOutputArchiveTarGz()
+        throws Exception
+    {
+        mojo.outputArchive = new File( this.testDir, "deps.tar.gz" );
+        mojo.execute();
+
+        File extracted = new File( this.testDir, "extracted" );
+        extracted.mkdirs();
+        UnArchiver unArchiver = mojo.getArchiverManager().getUnArchiver( "tar.gz" );
+        unArchiver.setSourceFile( mojo.outputArchive );
+        unArchiver.setDestDirectory( extracted );
+        unArchiver.extract();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertTrue( new File( extracted, DependencyUtil.getFormattedFileName( artifact, false ) ).exists() );
+        }
+    }
+
+    public void testOutputArchiveTarZst()
+        throws Exception
+    {
+        mojo.outputArchive = new File( this.testDir, "deps.tar.zst" );
+        mojo.copyThreads = 2;
+        mojo.execute();
+
+        File extracted = new File( this.testDir, "extracted" );
+        new TarExtractor( 1 ).extract( mojo.outputArchive, extracted );
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertTrue( new File( extracted, DependencyUtil.getFormattedFileName( artifact, false ) ).exists() );
+        }
+    }
+
+    public void testOutputArchiveUnknownFormat()
+        throws Exception
+    {
+        mojo.outputArchive = new File( this.testDir, "deps.rar" );
+        try
+        {
+            mojo.execute();
+            fail( "Expected MojoExecutionException" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertFalse( mojo.outputArchive.exists() );
+        }
+    }
+
+    public void testCopyPomResolvesOnce()
+        throws Exception
+    {
+        final List<String> resolved = new ArrayList<String>();
+        mojo.setCopyPom( true );
+        mojo.useRepositoryLayout = true;
+        mojo.setResolver( new StubArtifactResolver( stubFactory, false, false )
+        {
+            public void resolve( Artifact artifact, List remoteRepositories, ArtifactRepository localRepository )
+                throws ArtifactResolutionException, ArtifactNotFoundException
+            {
+                resolved.add( artifact.getId() );
+                super.resolve( artifact, remoteRepositories, localRepository );
+            }
+        } );
+        mojo.setLocal( new StubArtifactRepository( this.testDir.getAbsolutePath() ) );
+
+        Set<Artifact> set = new HashSet<Artifact>();
+        set.add( stubFactory.createArtifact( "org.apache.maven", "maven-artifact", "2.0.7", Artifact.SCOPE_COMPILE ) );
+        mojo.project.setArtifacts( set );
+        mojo.execute();
+
+        // installArtifact and copyPoms share the resolved pom
+        assertEquals( 1, resolved.size() );
+
+        mojo.execute();
+        assertEquals( 2, resolved.size() );
+    }
+
     public void testPrependGroupId() 
         throws Exception
     {
@@ -798,4 +1055,97 @@ public class TestCopyDependenciesMojo
             assertTrue( file.exists() );
         }
     }
+
+    public void testCopyThreads()
+        throws Exception
+    {
+        mojo.copyThreads = 4;
+        mojo.execute();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            String fileName = DependencyUtil.getFormattedFileName( artifact, false );
+            File file = new File( mojo.outputDirectory, fileName );
+            assertTrue( file.exists() );
+        }
+    }
+
+    public void testCopyThreadsSameDestFile()
+        throws Exception
+    {
+        Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        artifacts.add( stubFactory.createArtifact( "testGroupId", "same", "1.0", Artifact.SCOPE_COMPILE ) );
+        artifacts.add( stubFactory.createArtifact( "testGroupId", "same", "2.0", Artifact.SCOPE_COMPILE ) );
+        artifacts.add( stubFactory.createArtifact( "testGroupId", "other", "1.0", Artifact.SCOPE_COMPILE ) );
+        mojo.project.setArtifacts( artifacts );
+        mojo.project.setDependencyArtifacts( artifacts );
+        mojo.stripVersion = true;
+        mojo.copyThreads = 4;
+        mojo.execute();
+
+        assertTrue( new File( mojo.outputDirectory, "same.jar" ).isFile() );
+        assertTrue( new File( mojo.outputDirectory, "other.jar" ).isFile() );
+        assertEquals( 2, mojo.outputDirectory.list().length );
+    }
+
+    public void testCopyThreadsReportsFailure()
+        throws Exception
+    {
+        Set<Artifact> artifacts = stubFactory.getReleaseAndSnapshotArtifacts();
+        Artifact missing = artifacts.iterator().next();
+        missing.setFile( new File( this.testDir, "missing.jar" ) );
+        mojo.project.setArtifacts( artifacts );
+        mojo.project.setDependencyArtifacts( artifacts );
+        mojo.copyThreads = 4;
+
+        try
+        {
+            mojo.execute();
+            fail( "Expected a MojoExecutionException for the missing artifact file" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            // expected: the remaining artifacts are still copied
+        }
+
+        for ( Artifact artifact : artifacts )
+        {
+            String fileName = DependencyUtil.getFormattedFileName( artifact, false );
+            File file = new File( mojo.outputDirectory, fileName );
+            assertEquals( artifact != missing, file.exists() );
+        }
+    }
+
+    public void testCopyModeHardLink()
+        throws Exception
+    {
+        mojo.copyMode = FileCopier.HARDLINK;
+        mojo.execute();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            String fileName = DependencyUtil.getFormattedFileName( artifact, false );
+            File file = new File( mojo.outputDirectory, fileName );
+            assertTrue( Files.isSameFile( artifact.getFile().toPath(), file.toPath() ) );
+        }
+    }
+
+    public void testUnknownCopyMode()
+        throws Exception
+    {
+        mojo.copyMode = "teleport";
+        try
+        {
+            mojo.execute();
+            fail( "Expected a MojoExecutionException for the unknown copy mode" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            // expected
+        }
+    }
 }
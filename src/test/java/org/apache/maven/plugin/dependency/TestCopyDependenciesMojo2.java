@@ -21,6 +21,9 @@ package org.apache.maven.plugin.dependency;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -29,15 +32,19 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.metadata.ArtifactMetadata;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.apache.maven.artifact.repository.metadata.RepositoryMetadata;
 import org.apache.maven.artifact.repository.metadata.Snapshot;
 import org.apache.maven.artifact.repository.metadata.SnapshotArtifactRepositoryMetadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.artifact.transform.SnapshotTransformation;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
 import org.apache.maven.plugin.dependency.utils.markers.DefaultFileMarkerHandler;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.StringUtils;
 
 public class TestCopyDependenciesMojo2
@@ -299,6 +306,74 @@ public class TestCopyDependenciesMojo2
         }
     }
 
+    public void testRepositoryLayoutLinksBaseSnapshot()
+        throws Exception
+    {
+        Artifact expandedSnapshot =
+            createExpandedVersionArtifact( "2.0-SNAPSHOT", "testGroupId", "expanded-snapshot", "compile", "jar", null );
+        Set<Artifact> artifacts = new HashSet<Artifact>();
+        artifacts.add( expandedSnapshot );
+        mojo.project.setArtifacts( artifacts );
+        mojo.project.setDependencyArtifacts( artifacts );
+
+        mojo.useRepositoryLayout = true;
+        mojo.execute();
+
+        File versionDir = new File( mojo.outputDirectory, "testGroupId/expanded-snapshot/2.0-SNAPSHOT" );
+        File timestamped = new File( versionDir, "expanded-snapshot-" + expandedSnapshot.getVersion() + ".jar" );
+        File base = new File( versionDir, "expanded-snapshot-2.0-SNAPSHOT.jar" );
+        assertTrue( timestamped.exists() );
+        assertTrue( base.exists() );
+        assertTrue( Files.isSameFile( timestamped.toPath(), base.toPath() ) );
+
+        Metadata metadata = readMetadata( new File( versionDir.getParentFile(), "maven-metadata-local.xml" ) );
+        assertEquals( Collections.singletonList( "2.0-SNAPSHOT" ), metadata.getVersioning().getVersions() );
+
+        metadata = readMetadata( new File( versionDir, "maven-metadata-local.xml" ) );
+        assertTrue( metadata.getVersioning().getSnapshot().isLocalCopy() );
+    }
+
+    public void testRepositoryLayoutSync()
+        throws Exception
+    {
+        Artifact expandedSnapshot =
+            createExpandedVersionArtifact( "2.0-SNAPSHOT", "testGroupId", "expanded-snapshot", "compile", "jar", null );
+        Set<Artifact> artifacts = new HashSet<Artifact>();
+        artifacts.add( expandedSnapshot );
+        mojo.project.setArtifacts( artifacts );
+        mojo.project.setDependencyArtifacts( artifacts );
+
+        File staleVersion = new File( mojo.outputDirectory, "testGroupId/expanded-snapshot/1.0/expanded-snapshot-1.0.jar" );
+        staleVersion.getParentFile().mkdirs();
+        assertTrue( staleVersion.createNewFile() );
+
+        mojo.useRepositoryLayout = true;
+        mojo.sync = true;
+        mojo.execute();
+
+        assertFalse( staleVersion.getParentFile().exists() );
+        File artifactDir = new File( mojo.outputDirectory, "testGroupId/expanded-snapshot" );
+        assertTrue( new File( artifactDir, "maven-metadata-local.xml" ).exists() );
+        assertTrue( new File( artifactDir, "2.0-SNAPSHOT/maven-metadata-local.xml" ).exists() );
+        assertTrue( new File( artifactDir, "2.0-SNAPSHOT/expanded-snapshot-2.0-SNAPSHOT.jar" ).exists() );
+        assertTrue( new File( artifactDir, "2.0-SNAPSHOT/expanded-snapshot-" + expandedSnapshot.getVersion() + ".jar" )
+            .exists() );
+    }
+
+    private Metadata readMetadata( File file )
+        throws Exception
+    {
+        Reader reader = ReaderFactory.newXmlReader( file );
+        try
+        {
+            return new MetadataXpp3Reader().read( reader );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
 	private Artifact createExpandedVersionArtifact( String baseVersion,
 			                                        String groupId, 
 			                                        String artifactId,
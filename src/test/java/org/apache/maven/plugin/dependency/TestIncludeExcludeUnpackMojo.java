@@ -20,6 +20,7 @@ package org.apache.maven.plugin.dependency;
  */
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.utils.markers.UnpackFileMarkerHandler;
 import org.apache.maven.plugin.testing.stubs.StubArtifactCollector;
 import org.apache.maven.plugin.testing.stubs.StubArtifactResolver;
+import org.codehaus.plexus.util.FileUtils;
 
 public class TestIncludeExcludeUnpackMojo
 	extends AbstractDependencyMojoTestCase
@@ -125,6 +127,94 @@ public class TestIncludeExcludeUnpackMojo
         assertUnpacked( false, UNPACKED_FILE_PREFIX + 3 + UNPACKED_FILE_SUFFIX );
 	}
 
+    /**
+     * Same as {@link #testUnpackIncludesManyFiles()} with the multi-threaded zip extractor.
+     * @throws Exception
+     */
+    public void testUnpackIncludesManyFilesWithExtractThreads()
+        throws Exception
+    {
+        mojo.extractThreads = 4;
+        mojo.setIncludes( "**/*1" + UNPACKED_FILE_SUFFIX );
+        mojo.execute();
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 1 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 11 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( false, UNPACKED_FILE_PREFIX + 2 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( false, UNPACKED_FILE_PREFIX + 3 + UNPACKED_FILE_SUFFIX );
+    }
+
+    /**
+     * Same as {@link #testUnpackIncludesManyFiles()} with an entry manifest kept in the markers directory.
+     * @throws Exception
+     */
+    public void testUnpackIncludesManyFilesIncrementally()
+        throws Exception
+    {
+        mojo.incrementalUnpack = true;
+        mojo.setIncludes( "**/*1" + UNPACKED_FILE_SUFFIX );
+        mojo.execute();
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 1 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 11 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( false, UNPACKED_FILE_PREFIX + 2 + UNPACKED_FILE_SUFFIX );
+
+        String[] manifests = mojo.getMarkersDirectory().list( new FilenameFilter()
+        {
+            public boolean accept( File dir, String name )
+            {
+                return name.startsWith( "entries-" );
+            }
+        } );
+        assertEquals( 1, manifests.length );
+    }
+
+    public void testUnpackIncludesNoMatchingFile()
+        throws Exception
+    {
+        mojo.setIncludes( "**/*.proto" );
+        mojo.execute();
+        assertUnpacked( false, UNPACKED_FILE_PREFIX + 1 + UNPACKED_FILE_SUFFIX );
+        assertEquals( 0, mojo.getOutputDirectory().list().length );
+        assertMarkerFiles( mojo.getArtifactItems(), true );
+    }
+
+    public void testUnpackIncludesManyFilesFromCache()
+        throws Exception
+    {
+        File cacheDirectory = new File( this.testDir, "cache" );
+        mojo.useUnpackCache = true;
+        mojo.unpackCacheDirectory = cacheDirectory;
+        mojo.setIncludes( "**/*1" + UNPACKED_FILE_SUFFIX );
+        mojo.execute();
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 1 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( true, UNPACKED_FILE_PREFIX + 11 + UNPACKED_FILE_SUFFIX );
+        assertUnpacked( false, UNPACKED_FILE_PREFIX + 2 + UNPACKED_FILE_SUFFIX );
+
+        String[] trees = cacheDirectory.list( new FilenameFilter()
+        {
+            public boolean accept( File dir, String name )
+            {
+                return !name.startsWith( "." ) && !name.endsWith( ".size" );
+            }
+        } );
+        assertEquals( 1, trees.length );
+
+        // unpacking again is served from the cached tree
+        File cached = new File( cacheDirectory, trees[0] + "/" + UNPACKED_FILE_PREFIX + 11 + UNPACKED_FILE_SUFFIX );
+        FileUtils.fileWrite( cached.getPath(), "cached" );
+        FileUtils.deleteDirectory( mojo.getOutputDirectory() );
+        FileUtils.deleteDirectory( mojo.getMarkersDirectory() );
+        mojo.execute();
+        assertEquals( "cached", FileUtils.fileRead( new File( mojo.getOutputDirectory(), UNPACKED_FILE_PREFIX + 11
+            + UNPACKED_FILE_SUFFIX ) ) );
+        assertEquals( 1, cacheDirectory.list( new FilenameFilter()
+        {
+            public boolean accept( File dir, String name )
+            {
+                return name.endsWith( ".size" );
+            }
+        } ).length );
+    }
+
     /**
      * This test will verify only the 2 file gets unpacked
      * @throws Exception
@@ -266,6 +356,33 @@ public class TestIncludeExcludeUnpackMojo
         assertMarkerFiles( mojo.getArtifactItems(), true );
 	}
 
+    public void testIncludeArtifactItemMultipleOutputDirectories()
+        throws Exception
+    {
+        List<ArtifactItem> list = new ArrayList<ArtifactItem>();
+        Artifact artifact = stubFactory.createArtifact( "test", "test", "1.0", Artifact.SCOPE_COMPILE, "jar", null );
+        ArtifactItem item = stubFactory.getArtifactItem( artifact );
+        item.setIncludes( "**/test2" + UNPACKED_FILE_SUFFIX );
+        item.setOutputDirectory( new File( this.testDir, "two" ) );
+        list.add( item );
+        item = stubFactory.getArtifactItem( artifact );
+        item.setIncludes( "**/test*" + UNPACKED_FILE_SUFFIX );
+        item.setExcludes( "**/test2" + UNPACKED_FILE_SUFFIX );
+        item.setOutputDirectory( new File( this.testDir, "others" ) );
+        list.add( item );
+        mojo.setArtifactItems( list );
+        mojo.execute();
+
+        File two = new File( this.testDir, "two" );
+        File others = new File( this.testDir, "others" );
+        assertTrue( new File( two, UNPACKED_FILE_PREFIX + 2 + UNPACKED_FILE_SUFFIX ).exists() );
+        assertFalse( new File( two, UNPACKED_FILE_PREFIX + 3 + UNPACKED_FILE_SUFFIX ).exists() );
+        assertFalse( new File( others, UNPACKED_FILE_PREFIX + 2 + UNPACKED_FILE_SUFFIX ).exists() );
+        assertTrue( new File( others, UNPACKED_FILE_PREFIX + 3 + UNPACKED_FILE_SUFFIX ).exists() );
+        assertTrue( new File( others, UNPACKED_FILE_PREFIX + 11 + UNPACKED_FILE_SUFFIX ).exists() );
+        assertMarkerFiles( mojo.getArtifactItems(), true );
+    }
+
     public void testIncludeArtifactItemMultipleExecutions()
     	throws Exception
 	{
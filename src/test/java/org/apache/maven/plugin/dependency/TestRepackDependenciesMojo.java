@@ -0,0 +1,118 @@
+package org.apache.maven.plugin.dependency;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.dependency.testUtils.DependencyArtifactStubFactory;
+import org.apache.maven.project.MavenProject;
+
+public class TestRepackDependenciesMojo
+    extends AbstractDependencyMojoTestCase
+{
+    private static final String UNPACKABLE_FILE_PATH = "target/test-classes/unit/unpack-dependencies-test/test.txt";
+
+    RepackDependenciesMojo mojo;
+
+    protected void setUp()
+        throws Exception
+    {
+        // required for mojo lookups to work
+        super.setUp( "repack", true );
+
+        File testPom = new File( getBasedir(), "target/test-classes/unit/repack-test/plugin-config.xml" );
+        mojo = (RepackDependenciesMojo) lookupMojo( "repack", testPom );
+        mojo.outputFile = new File( this.testDir, "dependencies.jar" );
+
+        stubFactory.setUnpackableFile( mojo.getArchiverManager() );
+        stubFactory.setSrcFile( new File( getBasedir() + File.separatorChar + UNPACKABLE_FILE_PATH ) );
+
+        assertNotNull( mojo );
+        assertNotNull( mojo.getProject() );
+        MavenProject project = mojo.getProject();
+
+        Set<Artifact> artifacts = this.stubFactory.getScopedArtifacts();
+        Set<Artifact> directArtifacts = this.stubFactory.getReleaseAndSnapshotArtifacts();
+        artifacts.addAll( directArtifacts );
+
+        project.setArtifacts( artifacts );
+        project.setDependencyArtifacts( directArtifacts );
+        mojo.markersDirectory = new File( this.testDir, "markers" );
+    }
+
+    public void testRepack()
+        throws Exception
+    {
+        mojo.execute();
+
+        ZipFile zip = new ZipFile( mojo.outputFile );
+        try
+        {
+            for ( Artifact artifact : mojo.getResolvedDependencies( true ) )
+            {
+                String name = DependencyArtifactStubFactory.getUnpackableFileName( artifact );
+                assertNotNull( name, zip.getEntry( name ) );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        assertFalse( new File( this.testDir, ".dependencies.jar.tmp" ).exists() );
+    }
+
+    public void testRepackIncludes()
+        throws Exception
+    {
+        Artifact included = mojo.getResolvedDependencies( true ).iterator().next();
+        mojo.includes = DependencyArtifactStubFactory.getUnpackableFileName( included );
+        mojo.execute();
+
+        ZipFile zip = new ZipFile( mojo.outputFile );
+        try
+        {
+            assertEquals( 1, zip.size() );
+            assertNotNull( zip.getEntry( mojo.includes ) );
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    public void testUnknownDuplicatesPolicy()
+        throws Exception
+    {
+        mojo.duplicates = "merge";
+        try
+        {
+            mojo.execute();
+            fail( "Expected MojoExecutionException" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertFalse( mojo.outputFile.exists() );
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.maven.plugin.dependency;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -32,6 +33,7 @@ import org.apache.maven.plugin.dependency.testUtils.DependencyArtifactStubFactor
 import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
 import org.apache.maven.plugin.dependency.utils.markers.DefaultFileMarkerHandler;
+import org.apache.maven.plugin.dependency.utils.markers.MarkerStore;
 import org.apache.maven.plugin.testing.stubs.StubArtifactRepository;
 import org.apache.maven.plugin.testing.stubs.StubArtifactResolver;
 import org.apache.maven.project.MavenProject;
@@ -130,6 +132,148 @@ public class TestUnpackDependenciesMojo
         }
     }
 
+    public void testStageOutput()
+        throws Exception
+    {
+        mojo.stageOutput = true;
+        mojo.execute();
+
+        assertEquals( new File( this.testDir, "outputDirectory" ), mojo.outputDirectory );
+        assertFalse( new File( this.testDir, ".outputDirectory.staging" ).exists() );
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertUnpacked( artifact );
+        }
+    }
+
+    public void testStageOutputTwice()
+        throws Exception
+    {
+        mojo.stageOutput = true;
+        mojo.execute();
+
+        // the markers set after the swap skip every artifact
+        DependencyTestUtils.removeDirectory( mojo.outputDirectory );
+        mojo.execute();
+        assertEquals( new File( this.testDir, "outputDirectory" ), mojo.outputDirectory );
+        assertFalse( mojo.outputDirectory.exists() && mojo.outputDirectory.list().length > 0 );
+    }
+
+    public void testNativeUnpackEngine()
+        throws Exception
+    {
+        mojo.unpackEngine = "native";
+        mojo.execute();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertUnpacked( artifact );
+        }
+    }
+
+    public void testUseMarkerStore()
+        throws Exception
+    {
+        mojo.useMarkerStore = true;
+        mojo.execute();
+
+        assertEquals( Arrays.asList( MarkerStore.FILE_NAME ), Arrays.asList( mojo.markersDirectory.list() ) );
+        MarkerStore store = new MarkerStore( mojo.markersDirectory );
+        store.load();
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( artifact, mojo.markersDirectory );
+            handler.setMarkerStore( store );
+            assertTrue( artifact.getId(), handler.isMarkerSet() );
+        }
+
+        // the markers read back skip every artifact
+        DependencyTestUtils.removeDirectory( mojo.outputDirectory );
+        mojo.execute();
+        assertFalse( mojo.outputDirectory.exists() && mojo.outputDirectory.list().length > 0 );
+    }
+
+    public void testChangedIncludesUnpackAgain()
+        throws Exception
+    {
+        mojo.execute();
+        DependencyTestUtils.removeDirectory( mojo.outputDirectory );
+
+        // the markers record the includes the artifacts were unpacked with
+        mojo.setIncludes( "**/*" );
+        mojo.execute();
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            assertUnpacked( iter.next() );
+        }
+    }
+
+    public void testUnknownUnpackEngine()
+        throws Exception
+    {
+        mojo.unpackEngine = "other";
+        try
+        {
+            mojo.execute();
+            fail( "Expected an exception for an unknown unpackEngine" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertTrue( e.getMessage().indexOf( "unpackEngine" ) >= 0 );
+        }
+    }
+
+    public void testUnpackThreads()
+        throws Exception
+    {
+        mojo.unpackThreads = 4;
+        mojo.execute();
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertUnpacked( artifact );
+        }
+    }
+
+    public void testUnpackThreadsFailure()
+        throws Exception
+    {
+        mojo.unpackThreads = 4;
+        Artifact broken = (Artifact) mojo.project.getArtifacts().iterator().next();
+        broken.setFile( new File( this.testDir, "missing.jar" ) );
+
+        try
+        {
+            mojo.execute();
+            fail( "Expected an exception for the missing archive" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( "Unable to unpack 1 of " ) );
+        }
+
+        Iterator<Artifact> iter = mojo.project.getArtifacts().iterator();
+        while ( iter.hasNext() )
+        {
+            Artifact artifact = iter.next();
+            assertUnpacked( artifact != broken, artifact );
+        }
+        String[] leftovers = this.testDir.list();
+        for ( int i = 0; i < leftovers.length; i++ )
+        {
+            assertFalse( leftovers[i], leftovers[i].startsWith( ".outputDirectory.scratch" ) );
+        }
+    }
+
     public void testNoTransitive()
         throws Exception
     {
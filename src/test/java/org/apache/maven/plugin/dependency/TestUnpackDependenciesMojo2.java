@@ -27,6 +27,7 @@ import java.util.Set;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.testUtils.DependencyArtifactStubFactory;
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
 import org.apache.maven.project.MavenProject;
 
@@ -199,8 +200,9 @@ public class TestUnpackDependenciesMojo2
         // round down to the last second
         long time = System.currentTimeMillis();
         time = time - ( time % 1000 );
-        // set source to be newer and dest to be a known value.
-        snap.getFile().setLastModified( time + 3000 );
+        // deploy the snapshot again and set dest to be a known value.
+        DependencyTestUtils.changeArchive( snap.getFile(),
+                                           DependencyArtifactStubFactory.getUnpackableFileName( snap ) );
         unpackedFile.setLastModified( time );
         // wait at least a second for filesystems that only record to the
         // nearest second.
@@ -22,6 +22,7 @@ package org.apache.maven.plugin.dependency.fromConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.apache.maven.plugin.testing.stubs.StubArtifactCollector;
 import org.apache.maven.plugin.testing.stubs.StubArtifactRepository;
 import org.apache.maven.plugin.testing.stubs.StubArtifactResolver;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
 
 public class TestUnpackMojo
     extends AbstractDependencyMojoTestCase
@@ -109,6 +111,39 @@ public class TestUnpackMojo
         assertEquals( output, result.getOutputDirectory() );
     }
 
+    public void testGroupByFile()
+        throws IOException
+    {
+        File dir = new File( this.testDir, "dir" );
+        File other = new File( this.testDir, "other" );
+        ArtifactItem a1 = createArtifactItem( "a", dir );
+        ArtifactItem b = createArtifactItem( "b", other );
+        ArtifactItem a2 = createArtifactItem( "a", new File( this.testDir, "a2" ) );
+        ArtifactItem c = createArtifactItem( "c", new File( dir, "sub" ) );
+        // c is unpacked into dir before a3, which would overwrite it
+        ArtifactItem a3 = createArtifactItem( "a", dir );
+        ArtifactItem b2 = createArtifactItem( "b", dir );
+
+        List<List<ArtifactItem>> groups = UnpackMojo.groupByFile( Arrays.asList( a1, b, a2, c, a3, b2 ) );
+
+        assertEquals( 5, groups.size() );
+        assertEquals( Arrays.asList( a1, a2 ), groups.get( 0 ) );
+        assertEquals( Collections.singletonList( b ), groups.get( 1 ) );
+        assertEquals( Collections.singletonList( c ), groups.get( 2 ) );
+        assertEquals( Collections.singletonList( a3 ), groups.get( 3 ) );
+        assertEquals( Collections.singletonList( b2 ), groups.get( 4 ) );
+    }
+
+    private ArtifactItem createArtifactItem( String artifactId, File outputDirectory )
+        throws IOException
+    {
+        Artifact artifact = stubFactory.createArtifact( "groupId", artifactId, "1.0" );
+        artifact.setFile( new File( this.testDir, artifactId + ".jar" ) );
+        ArtifactItem item = new ArtifactItem( artifact );
+        item.setOutputDirectory( outputDirectory );
+        return item;
+    }
+
     public void assertMarkerFiles( Collection<ArtifactItem> items, boolean exist )
     {
         for ( ArtifactItem item : items )
@@ -519,11 +554,15 @@ public class TestUnpackMojo
         time -= 10000;
         // set to known value
         assertTrue( unpackedFile.setLastModified( time ) );
-        // set source to be newer was 4s but test is brittle on MacOS if less than 5s
-        assertTrue( artifact.getFile().setLastModified( time + 5000 ) );
-
-        // manually set markerfile (must match getMarkerFile in DefaultMarkerFileHandler)
-        File marker = new File( mojo.getMarkersDirectory(), artifact.getId().replace( ':', '-' ) + ".marker" );
+        // deploy the snapshot again with other content, the markers compare the content
+        File changed = new File( this.testDir, "changed.txt" );
+        FileUtils.fileWrite( changed.getPath(), "changed content" );
+        stubFactory.setSrcFile( changed );
+
+        // manually set markerfile, the only marker of the only item
+        File[] markers = mojo.getMarkersDirectory().listFiles();
+        assertEquals( 1, markers.length );
+        File marker = markers[0];
         assertTrue( marker.setLastModified( time ) );
 
         displayFile( "unpackedFile", unpackedFile );
@@ -536,8 +575,9 @@ public class TestUnpackMojo
         displayFile( "marker      ", marker );
         System.out.println( "marker.lastModified() = " + marker.lastModified() );
         System.out.println( "unpackedFile.lastModified() = " + unpackedFile.lastModified() );
-        assertTrue( "unpackedFile '" + unpackedFile + "' lastModified() == " + marker.lastModified() + ": should be different",
-                    marker.lastModified() != unpackedFile.lastModified() );
+        assertTrue( "unpackedFile '" + unpackedFile + "' lastModified() == " + time + ": should be different",
+                    time != unpackedFile.lastModified() );
+        assertEquals( "changed content", FileUtils.fileRead( unpackedFile ) );
     }
 
     private void displayFile( String description, File file )
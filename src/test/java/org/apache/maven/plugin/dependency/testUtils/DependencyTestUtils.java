@@ -20,9 +20,12 @@ package org.apache.maven.plugin.dependency.testUtils;
  */
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.factory.DefaultArtifactFactory;
@@ -108,4 +111,27 @@ public class DependencyTestUtils
         Thread.sleep( 1000 );
     }
 
+    /**
+     * Replaces an archive by another one, holding the same entry with other content, as a
+     * snapshot deployed again.
+     *
+     * @param archive the archive to replace.
+     * @param entryName the name of its entry.
+     * @throws IOException if the archive can't be written.
+     */
+    public static void changeArchive( File archive, String entryName )
+        throws IOException
+    {
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            out.putNextEntry( new ZipEntry( entryName ) );
+            out.write( ( "changed at " + System.currentTimeMillis() ).getBytes( "UTF-8" ) );
+            out.closeEntry();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
 }
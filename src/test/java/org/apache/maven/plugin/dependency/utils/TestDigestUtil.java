@@ -0,0 +1,114 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+public class TestDigestUtil
+    extends TestCase
+{
+    File outputFolder;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        outputFolder = new File( "target/digesttests/" );
+        DependencyTestUtils.removeDirectory( outputFolder );
+        outputFolder.mkdirs();
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( outputFolder );
+    }
+
+    public void testSha1()
+        throws IOException
+    {
+        File file = new File( outputFolder, "abc.txt" );
+        FileUtils.fileWrite( file.getPath(), "abc" );
+
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", DigestUtil.sha1( file ) );
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", DigestUtil.sha1( "abc" ) );
+    }
+
+    public void testIsSameContent()
+        throws IOException
+    {
+        File file1 = new File( outputFolder, "one.txt" );
+        File file2 = new File( outputFolder, "two.txt" );
+        FileUtils.fileWrite( file1.getPath(), "abc" );
+        FileUtils.fileWrite( file2.getPath(), "abc" );
+
+        assertTrue( DigestUtil.isSameContent( file1, file2 ) );
+
+        FileUtils.fileWrite( file2.getPath(), "abd" );
+        assertFalse( DigestUtil.isSameContent( file1, file2 ) );
+        assertFalse( DigestUtil.isSameContent( file1, new File( outputFolder, "missing.txt" ) ) );
+    }
+
+    public void testArtifactDigestUsesChecksumFile()
+        throws IOException
+    {
+        File file = new File( outputFolder, "artifact.jar" );
+        FileUtils.fileWrite( file.getPath(), "abc" );
+        FileUtils.fileWrite( file.getPath() + ".sha1", "0123456789ABCDEF0123456789abcdef01234567  artifact.jar" );
+
+        assertEquals( "0123456789abcdef0123456789abcdef01234567", DigestUtil.getArtifactDigest( file ) );
+        // the actual content is used without a usable checksum file
+        FileUtils.fileWrite( file.getPath() + ".sha1", "garbage" );
+        DigestUtil.clearCache();
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", DigestUtil.getArtifactDigest( file ) );
+    }
+
+    public void testArtifactDigestIgnoresStaleChecksumFile()
+        throws IOException
+    {
+        File file = new File( outputFolder, "artifact.jar" );
+        FileUtils.fileWrite( file.getPath(), "abc" );
+        File checksumFile = new File( file.getPath() + ".sha1" );
+        FileUtils.fileWrite( checksumFile.getPath(), "0123456789abcdef0123456789abcdef01234567" );
+        // left behind by the previous snapshot
+        checksumFile.setLastModified( file.lastModified() - 10000 );
+        DigestUtil.clearCache();
+
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", DigestUtil.getArtifactDigest( file ) );
+    }
+
+    public void testDigestFollowsChanges()
+        throws IOException
+    {
+        File file = new File( outputFolder, "abc.txt" );
+        FileUtils.fileWrite( file.getPath(), "abc" );
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", DigestUtil.getDigest( file ) );
+
+        FileUtils.fileWrite( file.getPath(), "abcd" );
+        assertEquals( DigestUtil.sha1( "abcd" ), DigestUtil.getDigest( file ) );
+    }
+}
@@ -0,0 +1,168 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.testing.SilentLog;
+
+public class TestDirectoryLock
+    extends TestCase
+{
+    File testDir;
+
+    File outputDirectory;
+
+    File locksDirectory;
+
+    long timeout = 10000;
+
+    Log log = new SilentLog();
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/directorylocktests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        outputDirectory = new File( testDir, "lib" );
+        locksDirectory = new File( testDir, "locks" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testLockFile()
+        throws IOException
+    {
+        DirectoryLock lock = lock( Collections.singletonList( outputDirectory ) );
+        try
+        {
+            File lockFile = DirectoryLock.getLockFile( locksDirectory, outputDirectory );
+            assertEquals( locksDirectory, lockFile.getParentFile() );
+            assertEquals( DigestUtil.sha1( outputDirectory.getCanonicalPath() ) + ".lock", lockFile.getName() );
+            assertTrue( lockFile.isFile() );
+            assertEquals( 1, locksDirectory.list().length );
+            assertFalse( outputDirectory.exists() );
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+    public void testReentrant()
+        throws IOException
+    {
+        List<File> directories = Arrays.asList( outputDirectory, new File( testDir, "markers" ) );
+        DirectoryLock lock = lock( directories );
+        DirectoryLock again = lock( Collections.singletonList( outputDirectory ) );
+        again.release();
+        lock.release();
+
+        // everything was released
+        lock( directories ).release();
+    }
+
+    public void testOtherThreadWaits()
+        throws Exception
+    {
+        DirectoryLock lock = lock( Collections.singletonList( outputDirectory ) );
+
+        final CountDownLatch done = new CountDownLatch( 1 );
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread other = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    lock( Collections.singletonList( outputDirectory ) ).release();
+                }
+                catch ( IOException e )
+                {
+                    failed.set( true );
+                }
+                done.countDown();
+            }
+        };
+        other.start();
+
+        assertFalse( done.await( 200, TimeUnit.MILLISECONDS ) );
+        lock.release();
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        assertFalse( failed.get() );
+    }
+
+    public void testOtherProcessTimesOut()
+        throws Exception
+    {
+        File lockFile = DirectoryLock.getLockFile( locksDirectory, outputDirectory );
+        lockFile.getParentFile().mkdirs();
+        // a lock of another channel, like the lock of another process
+        RandomAccessFile other = new RandomAccessFile( lockFile, "rw" );
+        try
+        {
+            FileLock otherLock = other.getChannel().lock();
+            long start = System.currentTimeMillis();
+            try
+            {
+                DirectoryLock.lock( Collections.singletonList( outputDirectory ), locksDirectory, 300, log );
+                fail( "Expected the lock to time out" );
+            }
+            catch ( DirectoryLock.LockTimeoutException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().startsWith( "Timed out" ) );
+            }
+            assertTrue( System.currentTimeMillis() - start >= 300 );
+            otherLock.release();
+        }
+        finally
+        {
+            other.close();
+        }
+
+        // the thread lock was released with the failure
+        lock( Collections.singletonList( outputDirectory ) ).release();
+    }
+
+    private DirectoryLock lock( List<File> directories )
+        throws IOException
+    {
+        return DirectoryLock.lock( directories, locksDirectory, timeout, log );
+    }
+}
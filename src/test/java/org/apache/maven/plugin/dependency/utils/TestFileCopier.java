@@ -0,0 +1,170 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+public class TestFileCopier
+    extends TestCase
+{
+    File outputFolder;
+
+    File src;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        outputFolder = new File( "target/copiertests/" );
+        DependencyTestUtils.removeDirectory( outputFolder );
+        outputFolder.mkdirs();
+
+        src = new File( outputFolder, "src.jar" );
+        FileUtils.fileWrite( src.getPath(), "some content" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( outputFolder );
+    }
+
+    public void testUnknownMode()
+    {
+        try
+        {
+            new FileCopier( "teleport" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    public void testCopy()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest/dest.jar" );
+        new FileCopier( FileCopier.COPY ).copy( src, dest );
+
+        assertEquals( "some content", FileUtils.fileRead( dest ) );
+        assertFalse( Files.isSameFile( src.toPath(), dest.toPath() ) );
+    }
+
+    public void testHardLink()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest/dest.jar" );
+        new FileCopier( FileCopier.HARDLINK ).copy( src, dest );
+
+        assertEquals( "some content", FileUtils.fileRead( dest ) );
+        assertTrue( Files.isSameFile( src.toPath(), dest.toPath() ) );
+    }
+
+    public void testSymLink()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest/dest.jar" );
+        new FileCopier( FileCopier.SYMLINK ).copy( src, dest );
+
+        assertEquals( "some content", FileUtils.fileRead( dest ) );
+        // symbolic links may not be permitted (e.g. on Windows), the copy fallback is fine then
+        if ( Files.isSymbolicLink( dest.toPath() ) )
+        {
+            assertTrue( Files.isSameFile( src.toPath(), dest.toPath() ) );
+        }
+    }
+
+    public void testReflinkFallsBackToCopy()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest/dest.jar" );
+        new FileCopier( FileCopier.REFLINK ).copy( src, dest );
+
+        assertEquals( "some content", FileUtils.fileRead( dest ) );
+    }
+
+    public void testCopyOverLinkLeavesSourceAlone()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest/dest.jar" );
+        new FileCopier( FileCopier.HARDLINK ).copy( src, dest );
+
+        File other = new File( outputFolder, "other.jar" );
+        FileUtils.fileWrite( other.getPath(), "other content" );
+        new FileCopier( FileCopier.COPY ).copy( other, dest );
+
+        assertEquals( "other content", FileUtils.fileRead( dest ) );
+        assertEquals( "some content", FileUtils.fileRead( src ) );
+    }
+
+    public void testCopySkipsIdenticalContent()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest.jar" );
+        FileUtils.fileWrite( dest.getPath(), "some content" );
+        dest.setLastModified( 100000 );
+        Object fileKey = Files.readAttributes( dest.toPath(), BasicFileAttributes.class ).fileKey();
+
+        new FileCopier( FileCopier.COPY ).copy( src, dest );
+
+        assertTrue( dest.lastModified() > 100000 );
+        if ( fileKey != null )
+        {
+            assertEquals( fileKey, Files.readAttributes( dest.toPath(), BasicFileAttributes.class ).fileKey() );
+        }
+    }
+
+    public void testCopyReplacesDifferentContent()
+        throws IOException
+    {
+        File dest = new File( outputFolder, "dest.jar" );
+        FileUtils.fileWrite( dest.getPath(), "some CONTENT" );
+
+        new FileCopier( FileCopier.COPY ).copy( src, dest );
+
+        assertEquals( "some content", FileUtils.fileRead( dest ) );
+        assertEquals( 2, outputFolder.list().length );
+    }
+
+    public void testCopyMissingSource()
+    {
+        try
+        {
+            new FileCopier( FileCopier.COPY ).copy( new File( outputFolder, "missing.jar" ),
+                                                    new File( outputFolder, "dest.jar" ) );
+            fail( "Expected IOException" );
+        }
+        catch ( IOException e )
+        {
+            assertFalse( new File( outputFolder, "dest.jar" ).exists() );
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+public class TestOutputManifest
+    extends TestCase
+{
+    File testDir;
+
+    File outputDirectory;
+
+    File source;
+
+    File dest;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/manifesttests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        outputDirectory = new File( testDir, "lib" );
+        source = new File( testDir, "repo/a-1.0.jar" );
+        dest = new File( outputDirectory, "sub/a-1.0.jar" );
+        source.getParentFile().mkdirs();
+        dest.getParentFile().mkdirs();
+        FileUtils.fileWrite( source.getPath(), "abc" );
+        FileUtils.fileWrite( dest.getPath(), "abc" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testSaveAndLoad()
+        throws IOException
+    {
+        File manifestFile = new File( testDir, "markers/test.manifest" );
+        OutputManifest manifest = new OutputManifest( manifestFile, outputDirectory );
+        manifest.put( "g:a:jar:1.0", source, dest );
+        manifest.save();
+
+        manifest = new OutputManifest( manifestFile, outputDirectory );
+        manifest.load();
+        OutputManifest.Entry entry = manifest.getEntry( "g:a:jar:1.0" );
+        assertEquals( "sub/a-1.0.jar", entry.getPath() );
+        assertEquals( 3, entry.getSize() );
+        assertEquals( dest.lastModified(), entry.getLastModified() );
+        assertEquals( "a9993e364706816aba3e25717850c26c9cd0d89d", entry.getDigest() );
+        assertEquals( source.lastModified(), entry.getSourceLastModified() );
+
+        manifest.retain( Collections.<String>emptyList() );
+        assertNull( manifest.getEntry( "g:a:jar:1.0" ) );
+    }
+
+    public void testUpToDateEntry()
+        throws IOException
+    {
+        OutputManifest manifest = new OutputManifest( new File( testDir, "test.manifest" ), outputDirectory );
+        manifest.put( "g:a:jar:1.0", source, dest );
+
+        assertNotNull( manifest.getUpToDateEntry( "g:a:jar:1.0", source, dest ) );
+        assertNull( manifest.getUpToDateEntry( "g:b:jar:1.0", source, dest ) );
+        assertNull( manifest.getUpToDateEntry( "g:a:jar:1.0", source, new File( outputDirectory, "a-1.0.jar" ) ) );
+
+        source.setLastModified( source.lastModified() - 10000 );
+        assertNull( manifest.getUpToDateEntry( "g:a:jar:1.0", source, dest ) );
+    }
+
+    public void testDeletedCopyIsNotUpToDate()
+        throws IOException
+    {
+        OutputManifest manifest = new OutputManifest( new File( testDir, "test.manifest" ), outputDirectory );
+        manifest.put( "g:a:jar:1.0", source, dest );
+        manifest.save();
+        dest.delete();
+
+        manifest.load();
+        assertNull( manifest.getUpToDateEntry( "g:a:jar:1.0", source, dest ) );
+    }
+
+    public void testUnreadableManifestIsEmpty()
+        throws IOException
+    {
+        File manifestFile = new File( testDir, "test.manifest" );
+        FileUtils.fileWrite( manifestFile.getPath(), "something else" );
+
+        OutputManifest manifest = new OutputManifest( manifestFile, outputDirectory );
+        manifest.load();
+        assertTrue( manifest.getEntries().isEmpty() );
+    }
+}
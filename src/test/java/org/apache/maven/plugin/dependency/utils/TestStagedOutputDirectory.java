@@ -0,0 +1,138 @@
+package org.apache.maven.plugin.dependency.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+public class TestStagedOutputDirectory
+    extends TestCase
+{
+    File testDir;
+
+    File outputDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/stagingtests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        outputDirectory = new File( testDir, "lib" );
+        outputDirectory.mkdirs();
+        FileUtils.fileWrite( new File( outputDirectory, "old.jar" ).getPath(), "old" );
+        new File( outputDirectory, "sub" ).mkdirs();
+        FileUtils.fileWrite( new File( outputDirectory, "sub/nested.jar" ).getPath(), "nested" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testBeginLinksPreviousOutput()
+        throws IOException
+    {
+        StagedOutputDirectory staged = new StagedOutputDirectory( outputDirectory );
+        File staging = staged.begin();
+
+        assertFalse( staging.equals( outputDirectory.getAbsoluteFile() ) );
+        assertEquals( "old", FileUtils.fileRead( new File( staging, "old.jar" ) ) );
+        assertEquals( "nested", FileUtils.fileRead( new File( staging, "sub/nested.jar" ) ) );
+    }
+
+    public void testCommit()
+        throws IOException
+    {
+        StagedOutputDirectory staged = new StagedOutputDirectory( outputDirectory );
+        File staging = staged.begin();
+        new FileCopier( FileCopier.COPY ).copy( writeSource( "new" ), new File( staging, "old.jar" ) );
+        FileUtils.fileWrite( new File( staging, "added.jar" ).getPath(), "added" );
+
+        File previous = new File( outputDirectory, "old.jar" );
+        assertEquals( "old", FileUtils.fileRead( previous ) );
+
+        staged.commit();
+
+        assertFalse( staging.exists() );
+        assertEquals( "new", FileUtils.fileRead( new File( outputDirectory, "old.jar" ) ) );
+        assertEquals( "added", FileUtils.fileRead( new File( outputDirectory, "added.jar" ) ) );
+        assertEquals( "nested", FileUtils.fileRead( new File( outputDirectory, "sub/nested.jar" ) ) );
+        assertEquals( 2, testDir.list().length );
+    }
+
+    public void testRollback()
+        throws IOException
+    {
+        StagedOutputDirectory staged = new StagedOutputDirectory( outputDirectory );
+        File staging = staged.begin();
+        FileUtils.fileWrite( new File( staging, "added.jar" ).getPath(), "added" );
+
+        staged.rollback();
+
+        assertFalse( staging.exists() );
+        assertFalse( new File( outputDirectory, "added.jar" ).exists() );
+        assertEquals( "old", FileUtils.fileRead( new File( outputDirectory, "old.jar" ) ) );
+    }
+
+    public void testMoveIntoReplacesLinkedFiles()
+        throws IOException
+    {
+        StagedOutputDirectory staged = new StagedOutputDirectory( outputDirectory );
+        File staging = staged.begin();
+
+        File scratch = staged.createScratchDirectory();
+        new File( scratch, "sub" ).mkdirs();
+        FileUtils.fileWrite( new File( scratch, "sub/nested.jar" ).getPath(), "unpacked" );
+        staged.moveInto( scratch, staging );
+
+        assertFalse( scratch.exists() );
+        assertEquals( "unpacked", FileUtils.fileRead( new File( staging, "sub/nested.jar" ) ) );
+        assertEquals( "nested", FileUtils.fileRead( new File( outputDirectory, "sub/nested.jar" ) ) );
+    }
+
+    public void testBeginRecoversInterruptedSwap()
+        throws IOException
+    {
+        File previous = new File( testDir, ".lib.old" );
+        Files.move( outputDirectory.toPath(), previous.toPath() );
+
+        new StagedOutputDirectory( outputDirectory ).begin();
+
+        assertFalse( previous.exists() );
+        assertEquals( "old", FileUtils.fileRead( new File( outputDirectory, "old.jar" ) ) );
+    }
+
+    private File writeSource( String content )
+        throws IOException
+    {
+        File source = new File( testDir, "source.jar" );
+        FileUtils.fileWrite( source.getPath(), content );
+        return source;
+    }
+}
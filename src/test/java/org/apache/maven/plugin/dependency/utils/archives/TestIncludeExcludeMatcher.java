@@ -0,0 +1,148 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
+
+public class TestIncludeExcludeMatcher
+    extends TestCase
+{
+    private static final String[] PATTERNS =
+        { "", "**", "**/*", "*", "*.txt", "**/*.txt", "a/**", "a/", "a/*.txt", "a/**/c.txt", "**/b/**",
+            "a/b/c.txt", "a?/**", "**/*1.txt", "/abs/**", "**/CVS/**", "a/**/b/**/*.xml", "%regex[.*\\.txt]",
+            "%ant[a/**]", "META-INF/**", "**/META-INF/*.MF", " a/** ", "a\\b\\**" };
+
+    private static final String[] PATHS =
+        { "a", "a/", "a.txt", "a/b.txt", "a/b/c.txt", "a/x/b/c.txt", "ab/c.txt", "x/b/y", "x/b", "test1.txt",
+            "x/test11.txt", "/abs/x.txt", "abs/x.txt", "x/CVS/Entries", "a/b/x.xml", "a/x/b/y/z.xml",
+            "META-INF/MANIFEST.MF", "lib/META-INF/MANIFEST.MF", "a\\b\\c.txt", "x/.svn/entries", "x/file~" };
+
+    public void testSameAsIncludeExcludeFileSelector()
+        throws IOException
+    {
+        for ( int i = 0; i < PATTERNS.length; i++ )
+        {
+            for ( int j = 0; j < PATTERNS.length; j++ )
+            {
+                assertSame( new String[] { PATTERNS[i] }, new String[] { PATTERNS[j] } );
+                assertSame( new String[] { PATTERNS[i], PATTERNS[j] }, null );
+            }
+            assertSame( null, new String[] { PATTERNS[i] } );
+        }
+    }
+
+    public void testCompile()
+    {
+        assertNull( IncludeExcludeMatcher.compile( null, "" ) );
+
+        IncludeExcludeMatcher matcher = IncludeExcludeMatcher.compile( "**/*.xml,**/*.properties", "**/test/**" );
+        assertTrue( matcher.matches( "config/app.xml" ) );
+        assertTrue( matcher.matches( "app.properties" ) );
+        assertFalse( matcher.matches( "config/test/app.xml" ) );
+        assertFalse( matcher.matches( "App.class" ) );
+    }
+
+    public void testManyLiteralPatterns()
+    {
+        StringBuffer includes = new StringBuffer();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            includes.append( "**/dir" ).append( i ).append( "/**," );
+        }
+        IncludeExcludeMatcher matcher = IncludeExcludeMatcher.compile( includes.toString(), null );
+
+        assertTrue( matcher.matches( "x/y/dir999/z.txt" ) );
+        assertTrue( matcher.matches( "dir0/z.txt" ) );
+        assertFalse( matcher.matches( "x/y/dir1000/z.txt" ) );
+    }
+
+    private void assertSame( String[] includes, String[] excludes )
+        throws IOException
+    {
+        IncludeExcludeFileSelector selector = new IncludeExcludeFileSelector();
+        if ( includes != null )
+        {
+            selector.setIncludes( includes );
+        }
+        if ( excludes != null )
+        {
+            selector.setExcludes( excludes );
+        }
+        IncludeExcludeMatcher matcher = new IncludeExcludeMatcher( includes, excludes );
+
+        for ( int i = 0; i < PATHS.length; i++ )
+        {
+            boolean expected = selector.isSelected( new Info( PATHS[i] ) );
+            assertEquals( "includes " + toString( includes ) + " excludes " + toString( excludes ) + " on "
+                + PATHS[i], expected, matcher.matches( PATHS[i] ) );
+        }
+    }
+
+    private static String toString( String[] patterns )
+    {
+        if ( patterns == null )
+        {
+            return "null";
+        }
+        StringBuffer buffer = new StringBuffer();
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            buffer.append( '[' ).append( patterns[i] ).append( ']' );
+        }
+        return buffer.toString();
+    }
+
+    private static class Info
+        implements FileInfo
+    {
+        private final String name;
+
+        Info( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public InputStream getContents()
+        {
+            return null;
+        }
+
+        public boolean isFile()
+        {
+            return !name.endsWith( "/" );
+        }
+
+        public boolean isDirectory()
+        {
+            return name.endsWith( "/" );
+        }
+    }
+}
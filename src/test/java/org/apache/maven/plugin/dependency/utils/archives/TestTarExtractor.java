@@ -0,0 +1,371 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.archiver.bzip2.CBZip2OutputStream;
+import org.codehaus.plexus.archiver.tar.TarEntry;
+import org.codehaus.plexus.archiver.tar.TarOutputStream;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+public class TestTarExtractor
+    extends TestCase
+{
+    File testDir;
+
+    File outputDirectory;
+
+    byte[] big;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/tarextractortests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        testDir.mkdirs();
+        outputDirectory = new File( testDir, "out" );
+
+        big = new byte[1024 * 1024 + 17];
+        new Random( 42 ).nextBytes( big );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testIsTarFile()
+    {
+        assertTrue( TarExtractor.isTarFile( new File( "sdk-1.0.tar.gz" ) ) );
+        assertTrue( TarExtractor.isTarFile( new File( "sdk-1.0.TBZ2" ) ) );
+        assertTrue( TarExtractor.isTarFile( new File( "sdk-1.0.tar" ) ) );
+        assertTrue( TarExtractor.isTarFile( new File( "sdk-1.0.tar.zst" ) ) );
+        assertTrue( TarExtractor.isZstdFile( new File( "sdk-1.0.tzst" ) ) );
+        assertFalse( TarExtractor.isTarFile( new File( "data.json.zst" ) ) );
+        assertFalse( TarExtractor.isTarFile( new File( "sdk-1.0.zip" ) ) );
+        assertFalse( TarExtractor.isTarFile( new File( "sdk-1.0.gz" ) ) );
+    }
+
+    public void testExtractTar()
+        throws IOException
+    {
+        File archive = new File( testDir, "test.tar" );
+        FileOutputStream out = new FileOutputStream( archive );
+        writeTar( out );
+
+        new TarExtractor( 1 ).extract( archive, outputDirectory );
+        assertExtracted();
+    }
+
+    public void testExtractTarGz()
+        throws IOException
+    {
+        File archive = new File( testDir, "test.tar.gz" );
+        writeTar( new GZIPOutputStream( new FileOutputStream( archive ) ) );
+
+        new TarExtractor( 1 ).extract( archive, outputDirectory );
+        assertExtracted();
+
+        DependencyTestUtils.removeDirectory( outputDirectory );
+        new TarExtractor( 4 ).extract( archive, outputDirectory );
+        assertExtracted();
+    }
+
+    public void testExtractTarBz2()
+        throws IOException
+    {
+        File archive = new File( testDir, "test.tar.bz2" );
+        OutputStream out = new FileOutputStream( archive );
+        out.write( 'B' );
+        out.write( 'Z' );
+        writeTar( new CBZip2OutputStream( out ) );
+
+        new TarExtractor( 4 ).extract( archive, outputDirectory );
+        assertExtracted();
+    }
+
+    public void testExtractTarZst()
+        throws IOException
+    {
+        File archive = new File( testDir, "test.tar.zst" );
+        writeTar( new ZstdOutputStream( new FileOutputStream( archive ) ) );
+
+        new TarExtractor( 1 ).extract( archive, outputDirectory );
+        assertExtracted();
+
+        DependencyTestUtils.removeDirectory( outputDirectory );
+        new TarExtractor( 4 ).extract( archive, outputDirectory );
+        assertExtracted();
+    }
+
+    public void testDecompressZst()
+        throws IOException
+    {
+        File file = new File( testDir, "big.bin.zst" );
+        OutputStream out = new ZstdOutputStream( new FileOutputStream( file ) );
+        out.write( big );
+        out.close();
+
+        new TarExtractor( 2 ).decompress( file, outputDirectory );
+        assertTrue( Arrays.equals( big, Files.readAllBytes( new File( outputDirectory, "big.bin" ).toPath() ) ) );
+    }
+
+    public void testExtractBgzf()
+        throws IOException
+    {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTar( tar );
+        File archive = new File( testDir, "test.tar.gz" );
+        writeBgzf( tar.toByteArray(), archive );
+
+        new TarExtractor( 4 ).extract( archive, outputDirectory );
+        assertExtracted();
+
+        DependencyTestUtils.removeDirectory( outputDirectory );
+        new TarExtractor( 1 ).extract( archive, outputDirectory );
+        assertExtracted();
+    }
+
+    public void testFileSelectors()
+        throws IOException
+    {
+        File archive = new File( testDir, "test.tgz" );
+        writeTar( new GZIPOutputStream( new FileOutputStream( archive ) ) );
+
+        TarExtractor extractor = new TarExtractor( 4 );
+        extractor.setFileSelectors( new FileSelector[] { IncludeExcludeMatcher.compile( "**/*.txt", null ) } );
+        extractor.extract( archive, outputDirectory );
+
+        assertTrue( new File( outputDirectory, "dir/file1.txt" ).isFile() );
+        assertFalse( new File( outputDirectory, "big.bin" ).exists() );
+    }
+
+    public void testCorruptArchive()
+        throws IOException
+    {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTar( tar );
+        File archive = new File( testDir, "test.tar.gz" );
+        writeBgzf( tar.toByteArray(), archive );
+        byte[] data = Files.readAllBytes( archive.toPath() );
+        data[data.length / 2] ^= 0x55;
+        Files.write( archive.toPath(), data );
+
+        try
+        {
+            new TarExtractor( 4 ).extract( archive, outputDirectory );
+            fail( "Expected an exception for a corrupt archive" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+    public void testDecompressionError()
+        throws IOException
+    {
+        InputStream raw = new InputStream()
+        {
+            public int read()
+            {
+                throw new NoClassDefFoundError( "com/github/luben/zstd/Zstd" );
+            }
+        };
+        DecompressionPipeline in = new DecompressionPipeline( raw, DecompressionPipeline.NONE, 1 );
+        try
+        {
+            in.read();
+            fail( "Expected the error of the decompressing thread" );
+        }
+        catch ( NoClassDefFoundError e )
+        {
+            // expected
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testUnwritableTarget()
+        throws Exception
+    {
+        final File archive = new File( testDir, "test.tar" );
+        TarOutputStream out = new TarOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            for ( int i = 0; i < 2000; i++ )
+            {
+                byte[] content = ( "content of file " + i ).getBytes( "UTF-8" );
+                TarEntry entry = new TarEntry( "file" + i + ".txt" );
+                entry.setSize( content.length );
+                out.putNextEntry( entry );
+                out.write( content );
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        // a directory that isn't empty can't be replaced by a file; by then the writer,
+        // slower than the parser, is behind and its queue full
+        File blocker = new File( outputDirectory, "file1500.txt/keep" );
+        blocker.getParentFile().mkdirs();
+        blocker.createNewFile();
+
+        final IOException[] failure = new IOException[1];
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    new TarExtractor( 4 ).extract( archive, outputDirectory );
+                }
+                catch ( IOException e )
+                {
+                    failure[0] = e;
+                }
+            }
+        };
+        thread.setDaemon( true );
+        thread.start();
+        thread.join( 30000 );
+        assertFalse( "The extraction hangs", thread.isAlive() );
+        assertNotNull( "Expected an exception for the unwritable file", failure[0] );
+    }
+
+    private void writeTar( OutputStream stream )
+        throws IOException
+    {
+        TarOutputStream out = new TarOutputStream( stream );
+        try
+        {
+            TarEntry dir = new TarEntry( "dir/" );
+            dir.setModTime( TestZipExtractor.TIME );
+            out.putNextEntry( dir );
+            out.closeEntry();
+            for ( int i = 0; i < 50; i++ )
+            {
+                byte[] content = ( "content of file " + i ).getBytes( "UTF-8" );
+                TarEntry entry = new TarEntry( "dir/file" + i + ".txt" );
+                entry.setSize( content.length );
+                entry.setModTime( TestZipExtractor.TIME + i * 1000L );
+                entry.setMode( 0644 );
+                out.putNextEntry( entry );
+                out.write( content );
+                out.closeEntry();
+            }
+            TarEntry entry = new TarEntry( "big.bin" );
+            entry.setSize( big.length );
+            entry.setModTime( TestZipExtractor.TIME );
+            out.putNextEntry( entry );
+            out.write( big );
+            out.closeEntry();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private void assertExtracted()
+        throws IOException
+    {
+        assertTrue( new File( outputDirectory, "dir" ).isDirectory() );
+        for ( int i = 0; i < 50; i++ )
+        {
+            File file = new File( outputDirectory, "dir/file" + i + ".txt" );
+            assertEquals( "content of file " + i, new String( Files.readAllBytes( file.toPath() ), "UTF-8" ) );
+            assertEquals( TestZipExtractor.TIME + i * 1000L, file.lastModified() );
+        }
+        assertTrue( Arrays.equals( big, Files.readAllBytes( new File( outputDirectory, "big.bin" ).toPath() ) ) );
+    }
+
+    /**
+     * Writes the data as BGZF, gzip members of at most 64k with their size in a BC subfield.
+     */
+    private static void writeBgzf( byte[] data, File file )
+        throws IOException
+    {
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            byte[] compressed = new byte[128 * 1024];
+            for ( int pos = 0; pos <= data.length; pos += 60000 )
+            {
+                int length = Math.min( 60000, data.length - pos );
+                Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+                deflater.setInput( data, pos, length );
+                deflater.finish();
+                int size = 0;
+                while ( !deflater.finished() )
+                {
+                    size += deflater.deflate( compressed, size, compressed.length - size );
+                }
+                deflater.end();
+                CRC32 crc = new CRC32();
+                crc.update( data, pos, length );
+
+                int blockSize = 18 + size + 8 - 1;
+                out.write( new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                    (byte) blockSize, (byte) ( blockSize >> 8 ) } );
+                out.write( compressed, 0, size );
+                writeInt( out, (int) crc.getValue() );
+                writeInt( out, length );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static void writeInt( OutputStream out, int value )
+        throws IOException
+    {
+        out.write( value );
+        out.write( value >> 8 );
+        out.write( value >> 16 );
+        out.write( value >> 24 );
+    }
+}
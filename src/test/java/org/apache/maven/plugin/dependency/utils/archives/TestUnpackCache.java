@@ -0,0 +1,125 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+public class TestUnpackCache
+    extends TestCase
+{
+    File testDir;
+
+    File cacheDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/unpackcachetests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        testDir.mkdirs();
+        cacheDirectory = new File( testDir, "cache" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testGetKey()
+    {
+        String key = UnpackCache.getKey( "abc", "**/*.xml", null );
+        assertTrue( key.startsWith( "abc-" ) );
+        assertEquals( key, UnpackCache.getKey( "abc", "**/*.xml", "" ) );
+        assertFalse( key.equals( UnpackCache.getKey( "abc", null, "**/*.xml" ) ) );
+    }
+
+    public void testAddAndMaterialize()
+        throws IOException
+    {
+        UnpackCache cache = new UnpackCache( cacheDirectory, Long.MAX_VALUE );
+        assertNull( cache.getTree( "key" ) );
+
+        File tree = cache.add( "key", createTree( cache, "content" ) );
+        assertEquals( tree, cache.getTree( "key" ) );
+        assertEquals( "content", FileUtils.fileRead( new File( tree, "dir/file.txt" ) ) );
+
+        File copy = new File( testDir, "copy" );
+        UnpackCache.materialize( tree, copy, false );
+        File copied = new File( copy, "dir/file.txt" );
+        assertEquals( "content", FileUtils.fileRead( copied ) );
+        assertEquals( new File( tree, "dir/file.txt" ).lastModified(), copied.lastModified() );
+        assertFalse( Files.isSameFile( copied.toPath(), new File( tree, "dir/file.txt" ).toPath() ) );
+
+        File linked = new File( testDir, "linked" );
+        UnpackCache.materialize( tree, linked, true );
+        assertTrue( Files.isSameFile( new File( linked, "dir/file.txt" ).toPath(),
+                                      new File( tree, "dir/file.txt" ).toPath() ) );
+    }
+
+    public void testAddExistingKeepsTree()
+        throws IOException
+    {
+        UnpackCache cache = new UnpackCache( cacheDirectory, Long.MAX_VALUE );
+        File tree = cache.add( "key", createTree( cache, "first" ) );
+        File staging = createTree( cache, "second" );
+
+        assertEquals( tree, cache.add( "key", staging ) );
+        assertEquals( "first", FileUtils.fileRead( new File( tree, "dir/file.txt" ) ) );
+        assertFalse( staging.exists() );
+    }
+
+    public void testEvictsLeastRecentlyUsed()
+        throws IOException
+    {
+        UnpackCache cache = new UnpackCache( cacheDirectory, 20 );
+        cache.add( "old", createTree( cache, "0123456789" ) );
+        cache.add( "used", createTree( cache, "0123456789" ) );
+        new File( cacheDirectory, "old.size" ).setLastModified( System.currentTimeMillis() - 20000 );
+        new File( cacheDirectory, "used.size" ).setLastModified( System.currentTimeMillis() - 10000 );
+
+        cache.add( "new", createTree( cache, "0123456789" ) );
+
+        assertNull( cache.getTree( "old" ) );
+        assertNotNull( cache.getTree( "used" ) );
+        assertNotNull( cache.getTree( "new" ) );
+        assertFalse( new File( cacheDirectory, "old.size" ).exists() );
+    }
+
+    private File createTree( UnpackCache cache, String content )
+        throws IOException
+    {
+        File staging = cache.createStagingDirectory();
+        File file = new File( staging, "dir/file.txt" );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), content );
+        file.setLastModified( TestZipExtractor.TIME );
+        return staging;
+    }
+}
@@ -0,0 +1,180 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+public class TestZipCentralDirectory
+    extends TestCase
+{
+    File testDir;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/zipcentraldirectorytests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        testDir.mkdirs();
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testRead()
+        throws IOException
+    {
+        File archive = TestZipExtractor.createArchive( new File( testDir, "test.zip" ) );
+
+        List<ZipArchiveEntry> entries = ZipCentralDirectory.read( archive );
+
+        assertEquals( 208, entries.size() );
+        ZipArchiveEntry dir = entries.get( 0 );
+        assertEquals( "dir0/", dir.getName() );
+        assertTrue( dir.isDirectory() );
+        ZipArchiveEntry file = entries.get( 2 );
+        assertEquals( "dir0/file1.txt", file.getName() );
+        assertEquals( ZipArchiveEntry.DEFLATED, file.getMethod() );
+        assertEquals( "line 0 of file 1\n".length(), file.getSize() );
+        assertEquals( TestZipExtractor.TIME + 2000L, file.getTime( Calendar.getInstance() ) );
+        ZipArchiveEntry big = entries.get( entries.size() - 1 );
+        assertEquals( ZipArchiveEntry.STORED, big.getMethod() );
+        assertEquals( 1024 * 1024, big.getSize() );
+        assertEquals( big.getSize(), big.getCompressedSize() );
+    }
+
+    public void testReadZip64()
+        throws IOException
+    {
+        File archive = new File( testDir, "zip64.zip" );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            // more entries than the end of central directory record can count
+            for ( int i = 0; i < 70000; i++ )
+            {
+                out.putNextEntry( new ZipEntry( "e" + i ) );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+
+        List<ZipArchiveEntry> entries = ZipCentralDirectory.read( archive );
+
+        assertEquals( 70000, entries.size() );
+        assertEquals( "e69999", entries.get( 69999 ).getName() );
+    }
+
+    public void testReadWithPrependedData()
+        throws IOException
+    {
+        File archive = TestZipExtractor.createArchive( new File( testDir, "test.zip" ) );
+        File sfx = new File( testDir, "test.sfx" );
+        OutputStream out = new FileOutputStream( sfx );
+        FileInputStream in = new FileInputStream( archive );
+        try
+        {
+            out.write( "#!/bin/sh\nexit 0\n".getBytes( "UTF-8" ) );
+            IOUtil.copy( in, out );
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.close( out );
+        }
+
+        File outputDirectory = new File( testDir, "out" );
+        new ZipExtractor( 2 ).extract( sfx, outputDirectory );
+
+        assertEquals( "line 0 of file 1\n", FileUtils.fileRead( new File( outputDirectory, "dir0/file1.txt" ) ) );
+    }
+
+    public void testReadNameEncodings()
+        throws IOException
+    {
+        File utf8 = new File( testDir, "utf8.zip" );
+        writeEntry( new ZipOutputStream( new FileOutputStream( utf8 ), Charset.forName( "UTF-8" ) ) );
+
+        // the jars built by Maven hold UTF-8 names without the UTF-8 flag
+        File entry = new File( testDir, "entry.txt" );
+        FileUtils.fileWrite( entry.getPath(), "x" );
+        File plexus = new File( testDir, "plexus.jar" );
+        JarArchiver archiver = new JarArchiver();
+        archiver.enableLogging( new SilentLog() );
+        archiver.setDestFile( plexus );
+        archiver.addFile( entry, "caf\u00e9.txt" );
+        archiver.createArchive();
+
+        assertEquals( "caf\u00e9.txt", ZipCentralDirectory.read( utf8 ).get( 0 ).getName() );
+        List<ZipArchiveEntry> entries = ZipCentralDirectory.read( plexus );
+        ZipArchiveEntry plexusEntry = entries.get( entries.size() - 1 );
+        assertEquals( 0, plexusEntry.getFlags() & 0x800 );
+        assertEquals( "caf\u00e9.txt", plexusEntry.getName() );
+    }
+
+    private static void writeEntry( ZipOutputStream out )
+        throws IOException
+    {
+        try
+        {
+            out.putNextEntry( new ZipEntry( "caf\u00e9.txt" ) );
+            out.write( 'x' );
+            out.closeEntry();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    public void testIsZipFile()
+        throws IOException
+    {
+        File text = new File( testDir, "test.txt" );
+        FileUtils.fileWrite( text.getPath(), "this is not a zip file at all" );
+
+        assertTrue( ZipCentralDirectory.isZipFile( TestZipExtractor.createArchive( new File( testDir, "test.zip" ) ) ) );
+        assertFalse( ZipCentralDirectory.isZipFile( text ) );
+        assertFalse( ZipCentralDirectory.isZipFile( new File( testDir, "missing.zip" ) ) );
+    }
+}
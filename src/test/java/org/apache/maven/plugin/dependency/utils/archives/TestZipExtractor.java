@@ -0,0 +1,294 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+public class TestZipExtractor
+    extends TestCase
+{
+    static final long TIME = 1262401446000L;
+
+    File testDir;
+
+    File outputDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/zipextractortests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        testDir.mkdirs();
+        outputDirectory = new File( testDir, "out" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testExtractMatchesZipFile()
+        throws IOException
+    {
+        File archive = createArchive( new File( testDir, "test.zip" ) );
+
+        new ZipExtractor( 4 ).extract( archive, outputDirectory );
+
+        ZipFile zip = new ZipFile( archive );
+        try
+        {
+            int files = 0;
+            for ( Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
+            {
+                ZipEntry entry = entries.nextElement();
+                File file = new File( outputDirectory, entry.getName() );
+                if ( entry.isDirectory() )
+                {
+                    assertTrue( file.isDirectory() );
+                    continue;
+                }
+                byte[] expected = IOUtil.toByteArray( zip.getInputStream( entry ) );
+                assertTrue( entry.getName(), Arrays.equals( expected, Files.readAllBytes( file.toPath() ) ) );
+                assertEquals( entry.getName(), entry.getTime(), file.lastModified() );
+                files++;
+            }
+            assertEquals( 204, files );
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    public void testFileSelectors()
+        throws IOException
+    {
+        File archive = createArchive( new File( testDir, "test.zip" ) );
+        IncludeExcludeFileSelector selector = new IncludeExcludeFileSelector();
+        selector.setIncludes( new String[] { "**/*.txt" } );
+        selector.setExcludes( new String[] { "dir1/**" } );
+
+        ZipExtractor extractor = new ZipExtractor( 4 );
+        extractor.setFileSelectors( new FileSelector[] { selector } );
+        extractor.extract( archive, outputDirectory );
+
+        assertTrue( new File( outputDirectory, "dir0/file0.txt" ).isFile() );
+        assertFalse( new File( outputDirectory, "dir1/file1.txt" ).exists() );
+        assertFalse( new File( outputDirectory, "big0.bin" ).exists() );
+    }
+
+    public void testHasSelectedEntries()
+        throws IOException
+    {
+        File archive = createArchive( new File( testDir, "test.zip" ) );
+        List<ZipArchiveEntry> entries = ZipCentralDirectory.read( archive );
+
+        ZipExtractor extractor = new ZipExtractor( 1 );
+        assertTrue( extractor.hasSelectedEntries( entries ) );
+        extractor.setFileSelectors( new FileSelector[] { IncludeExcludeMatcher.compile( "**/*.proto", null ) } );
+        assertFalse( extractor.hasSelectedEntries( entries ) );
+        extractor.setFileSelectors( new FileSelector[] { IncludeExcludeMatcher.compile( "**/file7.txt", null ) } );
+        assertTrue( extractor.hasSelectedEntries( entries ) );
+
+        extractor.extract( archive, entries, outputDirectory );
+        assertTrue( new File( outputDirectory, "dir0/file7.txt" ).isFile() );
+        assertFalse( new File( outputDirectory, "dir0/file8.txt" ).exists() );
+    }
+
+    public void testExtractToSeveralDestinations()
+        throws IOException
+    {
+        File archive = createArchive( new File( testDir, "test.zip" ) );
+        File txt = new File( testDir, "txt" );
+        File dir1 = new File( testDir, "dir1" );
+        List<ZipExtractor.Destination> destinations = new ArrayList<ZipExtractor.Destination>();
+        destinations.add( new ZipExtractor.Destination( txt, new FileSelector[] {
+            IncludeExcludeMatcher.compile( "**/*.txt", "dir1/**" ) } ) );
+        destinations.add( new ZipExtractor.Destination( dir1, new FileSelector[] {
+            IncludeExcludeMatcher.compile( "dir1/**", null ) } ) );
+        destinations.add( new ZipExtractor.Destination( outputDirectory, null ) );
+
+        new ZipExtractor( 4 ).extract( archive, ZipCentralDirectory.read( archive ), destinations );
+
+        assertTrue( new File( txt, "dir0/file0.txt" ).isFile() );
+        assertFalse( new File( txt, "dir1/file50.txt" ).exists() );
+        assertFalse( new File( txt, "big0.bin" ).exists() );
+        assertTrue( new File( dir1, "dir1/file50.txt" ).isFile() );
+        assertFalse( new File( dir1, "dir0" ).exists() );
+        assertEquals( FileUtils.fileRead( new File( outputDirectory, "dir1/file50.txt" ) ),
+                      FileUtils.fileRead( new File( dir1, "dir1/file50.txt" ) ) );
+        assertEquals( 1024 * 1024, new File( outputDirectory, "big3.bin" ).length() );
+        assertEquals( TIME + 7 * 2000L, new File( txt, "dir0/file7.txt" ).lastModified() );
+    }
+
+    public void testEntryOutsideDestination()
+        throws IOException
+    {
+        File archive = new File( testDir, "evil.zip" );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            out.putNextEntry( new ZipEntry( "../evil.txt" ) );
+            out.write( "evil".getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        try
+        {
+            new ZipExtractor( 2 ).extract( archive, outputDirectory );
+            fail( "Expected an exception for an entry outside of the destination" );
+        }
+        catch ( IOException e )
+        {
+            assertFalse( new File( testDir, "evil.txt" ).exists() );
+        }
+    }
+
+    public void testEntryManifest()
+        throws IOException
+    {
+        File manifestFile = new File( testDir, "markers/entries.manifest" );
+        EntryManifest manifest = new EntryManifest( manifestFile );
+        File archive = writeArchive( new File( testDir, "v1.zip" ), new String[] { "same.txt", "changed.txt",
+            "gone/gone.txt", "kept.txt" }, new String[] { "same", "v1", "gone", "kept" } );
+        ZipExtractor extractor = new ZipExtractor( 1 );
+        extractor.setEntryManifest( manifest );
+        extractor.extract( archive, outputDirectory );
+        manifest.save();
+
+        EntryManifest.Entry entry = manifest.getEntry( "changed.txt" );
+        assertEquals( "changed.txt", entry.getPath() );
+        assertEquals( 2, entry.getSize() );
+
+        // an unchanged entry is not written again, so this edit survives
+        FileUtils.fileWrite( new File( outputDirectory, "same.txt" ).getPath(), "SAME" );
+        // modified since it was unpacked, so it is not deleted although its entry is gone
+        FileUtils.fileWrite( new File( outputDirectory, "kept.txt" ).getPath(), "mine" );
+
+        archive = writeArchive( new File( testDir, "v2.zip" ), new String[] { "same.txt", "changed.txt",
+            "added.txt" }, new String[] { "same", "v2", "added" } );
+        manifest = new EntryManifest( manifestFile );
+        manifest.load();
+        extractor.setEntryManifest( manifest );
+        extractor.extract( archive, outputDirectory );
+
+        assertEquals( "SAME", FileUtils.fileRead( new File( outputDirectory, "same.txt" ) ) );
+        assertEquals( "v2", FileUtils.fileRead( new File( outputDirectory, "changed.txt" ) ) );
+        assertEquals( "added", FileUtils.fileRead( new File( outputDirectory, "added.txt" ) ) );
+        assertEquals( "mine", FileUtils.fileRead( new File( outputDirectory, "kept.txt" ) ) );
+        assertFalse( new File( outputDirectory, "gone" ).exists() );
+        assertEquals( 3, manifest.getEntries().size() );
+        assertNull( manifest.getEntry( "gone/gone.txt" ) );
+    }
+
+    static File writeArchive( File archive, String[] names, String[] contents )
+        throws IOException
+    {
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            for ( int i = 0; i < names.length; i++ )
+            {
+                out.putNextEntry( new ZipEntry( names[i] ) );
+                out.write( contents[i].getBytes( "UTF-8" ) );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return archive;
+    }
+
+    /**
+     * Creates an archive with small deflated files, directories and a few large stored
+     * files, big enough to be split across several workers.
+     */
+    static File createArchive( File archive )
+        throws IOException
+    {
+        Random random = new Random( 42 );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            for ( int i = 0; i < 200; i++ )
+            {
+                if ( i % 50 == 0 )
+                {
+                    ZipEntry dir = new ZipEntry( "dir" + ( i / 50 ) + "/" );
+                    dir.setTime( TIME );
+                    out.putNextEntry( dir );
+                }
+                ZipEntry entry = new ZipEntry( "dir" + ( i / 50 ) + "/file" + i + ".txt" );
+                entry.setTime( TIME + i * 2000L );
+                out.putNextEntry( entry );
+                for ( int j = 0; j < i; j++ )
+                {
+                    out.write( ( "line " + j + " of file " + i + "\n" ).getBytes( "UTF-8" ) );
+                }
+            }
+            for ( int i = 0; i < 4; i++ )
+            {
+                byte[] data = new byte[1024 * 1024];
+                random.nextBytes( data );
+                CRC32 crc = new CRC32();
+                crc.update( data );
+                ZipEntry entry = new ZipEntry( "big" + i + ".bin" );
+                entry.setMethod( ZipEntry.STORED );
+                entry.setSize( data.length );
+                entry.setCrc( crc.getValue() );
+                entry.setTime( TIME );
+                out.putNextEntry( entry );
+                out.write( data );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,276 @@
+package org.apache.maven.plugin.dependency.utils.archives;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.util.IOUtil;
+
+public class TestZipRepacker
+    extends TestCase
+{
+    File testDir;
+
+    File first;
+
+    File second;
+
+    File merged;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        testDir = new File( "target/ziprepackertests/" );
+        DependencyTestUtils.removeDirectory( testDir );
+        testDir.mkdirs();
+        first = createArchive( "first.jar", "a" );
+        second = createArchive( "second.jar", "b" );
+        merged = new File( testDir, "merged.jar" );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( testDir );
+    }
+
+    public void testRepack()
+        throws IOException
+    {
+        ZipRepacker repacker = new ZipRepacker( ZipRepacker.FIRST );
+        repacker.add( first );
+        repacker.add( second );
+        assertEquals( 6, repacker.size() );
+        repacker.write( merged );
+
+        assertEquals( "[META-INF/, META-INF/MANIFEST.MF, a/, a/A.class, b/, b/B.class]", getNames( merged ).toString() );
+        assertEquals( "manifest of a", getContent( merged, "META-INF/MANIFEST.MF" ) );
+        assertEquals( "class a", getContent( merged, "a/A.class" ) );
+        assertEquals( "class b", getContent( merged, "b/B.class" ) );
+
+        // the compressed data is copied, not deflated again
+        ZipFile source = new ZipFile( second );
+        ZipFile zip = new ZipFile( merged );
+        try
+        {
+            ZipEntry expected = source.getEntry( "b/B.class" );
+            ZipEntry entry = zip.getEntry( "b/B.class" );
+            assertEquals( expected.getCompressedSize(), entry.getCompressedSize() );
+            assertEquals( expected.getCrc(), entry.getCrc() );
+            assertEquals( expected.getTime(), entry.getTime() );
+        }
+        finally
+        {
+            source.close();
+            zip.close();
+        }
+
+        // readable as a stream too: the sizes are in the local headers
+        ZipInputStream in = new ZipInputStream( new FileInputStream( merged ) );
+        try
+        {
+            int count = 0;
+            ZipEntry entry;
+            while ( ( entry = in.getNextEntry() ) != null )
+            {
+                IOUtil.toByteArray( in );
+                count++;
+                assertFalse( entry.getName(), entry.getName().endsWith( "MANIFEST.MF" ) && entry.getSize() < 0 );
+            }
+            assertEquals( 6, count );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testLastDuplicateWins()
+        throws IOException
+    {
+        ZipRepacker repacker = new ZipRepacker( ZipRepacker.LAST );
+        repacker.add( first );
+        repacker.add( second );
+        repacker.write( merged );
+
+        assertEquals( "[META-INF/, META-INF/MANIFEST.MF, a/, a/A.class, b/, b/B.class]", getNames( merged ).toString() );
+        assertEquals( "manifest of b", getContent( merged, "META-INF/MANIFEST.MF" ) );
+    }
+
+    public void testFailOnDuplicates()
+        throws IOException
+    {
+        ZipRepacker repacker = new ZipRepacker( ZipRepacker.FAIL );
+        repacker.add( first );
+        try
+        {
+            repacker.add( second );
+            fail( "Expected an exception for META-INF/MANIFEST.MF" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( "Duplicate entry META-INF/MANIFEST.MF" ) );
+        }
+    }
+
+    public void testFileSelectors()
+        throws IOException
+    {
+        ZipRepacker repacker = new ZipRepacker( ZipRepacker.FAIL );
+        repacker.setFileSelectors( new FileSelector[] { IncludeExcludeMatcher.compile( null, "META-INF/**" ) } );
+        repacker.add( first );
+        repacker.add( second );
+        repacker.write( merged );
+
+        assertEquals( "[a/, a/A.class, b/, b/B.class]", getNames( merged ).toString() );
+    }
+
+    public void testKeepsNameEncoding()
+        throws IOException
+    {
+        Charset cp437 = Charset.forName( "IBM437" );
+        File legacy = new File( testDir, "legacy.zip" );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( legacy ), cp437 );
+        try
+        {
+            putEntry( out, "caf\u00e9.txt", "cp437" );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        ZipRepacker repacker = new ZipRepacker( ZipRepacker.FIRST );
+        repacker.add( legacy );
+        repacker.add( first );
+        repacker.write( merged );
+
+        // the name bytes and flags are copied, the entry still reads as CP437
+        ZipFile zip = new ZipFile( merged, cp437 );
+        try
+        {
+            assertNotNull( zip.getEntry( "caf\u00e9.txt" ) );
+            assertNotNull( zip.getEntry( "a/A.class" ) );
+        }
+        finally
+        {
+            zip.close();
+        }
+        ZipArchiveEntry entry = ZipCentralDirectory.read( merged ).get( 0 );
+        assertEquals( 0, entry.getFlags() & 0x800 );
+        assertTrue( Arrays.equals( "caf\u00e9.txt".getBytes( "IBM437" ), entry.getRawName() ) );
+    }
+
+    public void testUnknownPolicy()
+    {
+        try
+        {
+            new ZipRepacker( "merge" );
+            fail( "Expected an exception for an unknown policy" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    private File createArchive( String name, String pkg )
+        throws IOException
+    {
+        File file = new File( testDir, name );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( file ) );
+        try
+        {
+            putEntry( out, "META-INF/", null );
+            putEntry( out, "META-INF/MANIFEST.MF", "manifest of " + pkg );
+            putEntry( out, pkg + "/", null );
+            putEntry( out, pkg + "/" + pkg.toUpperCase() + ".class", "class " + pkg );
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void putEntry( ZipOutputStream out, String name, String content )
+        throws IOException
+    {
+        ZipEntry entry = new ZipEntry( name );
+        entry.setTime( TestZipExtractor.TIME );
+        out.putNextEntry( entry );
+        if ( content != null )
+        {
+            out.write( content.getBytes( "UTF-8" ) );
+        }
+        out.closeEntry();
+    }
+
+    private static List<String> getNames( File file )
+        throws IOException
+    {
+        List<String> names = new ArrayList<String>();
+        ZipFile zip = new ZipFile( file );
+        try
+        {
+            for ( Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
+            {
+                names.add( entries.nextElement().getName() );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return names;
+    }
+
+    private static String getContent( File file, String name )
+        throws IOException
+    {
+        ZipFile zip = new ZipFile( file );
+        try
+        {
+            return new String( IOUtil.toByteArray( zip.getInputStream( zip.getEntry( name ) ) ), "UTF-8" );
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+}
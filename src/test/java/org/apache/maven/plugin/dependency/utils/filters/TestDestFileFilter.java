@@ -31,9 +31,12 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.testUtils.DependencyArtifactStubFactory;
 import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.utils.DependencyUtil;
+import org.apache.maven.plugin.dependency.utils.DigestUtil;
+import org.apache.maven.plugin.dependency.utils.OutputManifest;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.testing.SilentLog;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactFilterException;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * @author brianf
@@ -189,6 +192,77 @@ public class TestDestFileFilter
         assertFalse( filter.isArtifactIncluded( artifact ) );
     }
 
+    public void testDestFileOverwriteIfDigestDiffers()
+        throws IOException, ArtifactFilterException
+    {
+        DestFileFilter filter = new DestFileFilter( outputFolder );
+        filter.setOverWriteIfNewer( true );
+        filter.setCompareDigests( true );
+
+        fact.setCreateFiles( true );
+        Artifact artifact = fact.getSnapshotArtifact();
+        File artifactFile = artifact.getFile();
+        FileUtils.fileWrite( artifactFile.getPath(), "jar content" );
+
+        // should pass because the file doesn't exist yet.
+        assertTrue( filter.isArtifactIncluded( artifact ) );
+
+        // same content but an older timestamp, as restored from a cache
+        File destFile = createFile( artifact, false, false, false );
+        FileUtils.fileWrite( destFile.getPath(), "jar content" );
+        destFile.setLastModified( artifactFile.lastModified() - 10000 );
+        assertFalse( filter.isArtifactIncluded( artifact ) );
+
+        // different content but a newer timestamp
+        FileUtils.fileWrite( destFile.getPath(), "jar CONTENT" );
+        destFile.setLastModified( artifactFile.lastModified() + 10000 );
+        assertTrue( filter.isArtifactIncluded( artifact ) );
+    }
+
+    public void testDestFileDigestFromChecksumFile()
+        throws IOException, ArtifactFilterException
+    {
+        DestFileFilter filter = new DestFileFilter( outputFolder );
+        filter.setOverWriteIfNewer( true );
+        filter.setCompareDigests( true );
+
+        fact.setCreateFiles( true );
+        Artifact artifact = fact.getReleaseArtifact();
+        File artifactFile = artifact.getFile();
+        FileUtils.fileWrite( artifactFile.getPath(), "jar content" );
+        File destFile = createFile( artifact, false, false, false );
+        FileUtils.fileWrite( destFile.getPath(), "jar CONTENT" );
+
+        // the repository checksum wins over the actual content of the artifact
+        FileUtils.fileWrite( artifactFile.getPath() + ".sha1", DigestUtil.sha1( destFile ) + "  "
+            + artifactFile.getName() );
+        assertFalse( filter.isArtifactIncluded( artifact ) );
+    }
+
+    public void testDestFileFromOutputManifest()
+        throws IOException, ArtifactFilterException
+    {
+        fact.setCreateFiles( true );
+        Artifact artifact = fact.getReleaseArtifact();
+        File artifactFile = artifact.getFile();
+        File destFile = createFile( artifact );
+
+        OutputManifest manifest = new OutputManifest( new File( outputFolder, "test.manifest" ), outputFolder );
+        manifest.put( artifact.getId(), artifactFile, destFile );
+
+        DestFileFilter filter = new DestFileFilter( outputFolder );
+        filter.setOverWriteIfNewer( true );
+        filter.setOutputManifest( manifest );
+
+        // the manifest is trusted for the modification time of the copy
+        destFile.setLastModified( artifactFile.lastModified() - 10000 );
+        assertFalse( filter.isArtifactIncluded( artifact ) );
+
+        // but not when the artifact has changed since
+        artifactFile.setLastModified( artifactFile.lastModified() + 20000 );
+        assertTrue( filter.isArtifactIncluded( artifact ) );
+    }
+
     public void testGettersSetters()
     {
         DestFileFilter filter = new DestFileFilter( null );
@@ -34,6 +34,7 @@ import org.apache.maven.plugin.dependency.utils.markers.DefaultFileMarkerHandler
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.testing.SilentLog;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactFilterException;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * @author brianf
@@ -124,7 +125,7 @@ public class TestMarkerFileFilter
         throws IOException, MojoExecutionException, ArtifactFilterException
     {
         // filter includes release artifact because no marker present
-        // filter includes snapshot artifact becaues it is newer than marker
+        // filter includes snapshot artifact because it changed since the marker was set
         DependencyArtifactStubFactory fileFact = new DependencyArtifactStubFactory( outputFolder, true );
         Artifact snap = fileFact.getSnapshotArtifact();
         Artifact release = fileFact.getReleaseArtifact();
@@ -133,18 +134,18 @@ public class TestMarkerFileFilter
         tempArtifacts.add( release );
         DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( snap, outputFolder );
         handler.setMarker();
-        snap.getFile().setLastModified( snap.getFile().lastModified() + 1500 );
+        FileUtils.fileWrite( snap.getFile(), "UTF-8", "changed" );
         MarkerFileFilter filter = new MarkerFileFilter( false, false, true, new DefaultFileMarkerHandler( outputFolder ) );
         Set<Artifact> result = filter.filter( tempArtifacts );
         assertEquals( 2, result.size() );
 
-        // update marker; filter won't include snapshot because timestamps equal
+        // update marker; filter won't include snapshot because it is the one marked
         handler.setMarker();
         result = filter.filter( tempArtifacts );
         assertEquals( 1, result.size() );
-        
-        // filter won't include snapshot because it is older than marker
-        snap.getFile().setLastModified( snap.getFile().lastModified() - 10000 );
+
+        // nor when it is only touched
+        snap.getFile().setLastModified( snap.getFile().lastModified() + 10000 );
 
         result = filter.filter( tempArtifacts );
         assertEquals( 1, result.size() );
@@ -36,6 +36,7 @@ import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
 import org.apache.maven.plugin.dependency.testUtils.stubs.StubDefaultFileMarkerHandler;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.testing.SilentLog;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * @author brianf
@@ -139,6 +140,17 @@ public class TestDefaultMarkerFileHandler
         handler.setMarker();
         assertFalse( handler.isMarkerOlder( theArtifact ) );
 
+        // the recorded fingerprint tells, not the time
+        theFile.setLastModified( theFile.lastModified() + 60000 );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+        FileUtils.fileWrite( theFile, "UTF-8", "changed" );
+        theFile.setLastModified( theFile.lastModified() - 120000 );
+        assertTrue( handler.isMarkerOlder( theArtifact ) );
+
+        // markers without fingerprint compare the times
+        FileUtils.fileWrite( handler.getMarkerFile(), "UTF-8", "" );
+        handler.getMarkerFile().setLastModified( theFile.lastModified() );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
         theFile.setLastModified( theFile.lastModified() + 60000 );
         assertTrue( handler.isMarkerOlder( theArtifact ) );
 
@@ -147,6 +159,84 @@ public class TestDefaultMarkerFileHandler
         assertFalse( handler.isMarkerSet() );
     }
 
+    public void testMarkerStore()
+        throws MojoExecutionException, IOException
+    {
+        File theFile = new File( outputFolder, "theFile.jar" );
+        outputFolder.mkdirs();
+        theFile.createNewFile();
+        Artifact theArtifact = artifacts.get( 0 );
+        theArtifact.setFile( theFile );
+
+        MarkerStore store = new MarkerStore( outputFolder );
+        DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( theArtifact, this.outputFolder );
+        handler.setMarkerStore( store );
+        assertFalse( handler.isMarkerSet() );
+        assertTrue( handler.isMarkerOlder( theArtifact ) );
+
+        handler.setMarker();
+        assertTrue( handler.isMarkerSet() );
+        assertFalse( handler.getMarkerFile().exists() );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+        theFile.setLastModified( theFile.lastModified() + 60000 );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+        FileUtils.fileWrite( theFile, "UTF-8", "changed" );
+        assertTrue( handler.isMarkerOlder( theArtifact ) );
+        store.save();
+
+        // read back by the next build
+        store = new MarkerStore( outputFolder );
+        store.load();
+        handler.setMarkerStore( store );
+        assertTrue( handler.isMarkerSet() );
+        assertTrue( handler.clearMarker() );
+        assertFalse( handler.isMarkerSet() );
+    }
+
+    public void testMarkerIndex()
+        throws MojoExecutionException, IOException
+    {
+        File theFile = new File( outputFolder, "theFile.jar" );
+        outputFolder.mkdirs();
+        theFile.createNewFile();
+        Artifact theArtifact = artifacts.get( 0 );
+        theArtifact.setFile( theFile );
+        Artifact other = artifacts.get( 1 );
+
+        new DefaultFileMarkerHandler( theArtifact, this.outputFolder ).setMarker();
+        MarkerIndex index = new MarkerIndex( outputFolder );
+        index.load();
+        DefaultFileMarkerHandler handler = new DefaultFileMarkerHandler( theArtifact, this.outputFolder );
+        handler.setMarkerIndex( index );
+        assertTrue( handler.isMarkerSet() );
+        assertTrue( handler.isMarkerCurrent() );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+        assertEquals( handler.getMarkerFile().lastModified(), index.getTimestamp( handler.getMarkerFile().getName() ) );
+
+        // markers written by someone else are not seen until the index is loaded again
+        DefaultFileMarkerHandler otherHandler = new DefaultFileMarkerHandler( other, this.outputFolder );
+        otherHandler.setMarker();
+        otherHandler.setMarkerIndex( index );
+        assertFalse( otherHandler.isMarkerSet() );
+        index.load();
+        assertTrue( otherHandler.isMarkerSet() );
+
+        // the markers set and cleared through the handler are
+        assertTrue( handler.clearMarker() );
+        assertFalse( handler.isMarkerSet() );
+        handler.setMarker();
+        assertTrue( handler.isMarkerSet() );
+        assertTrue( handler.isMarkerCurrent() );
+        assertEquals( FileUtils.fileRead( handler.getMarkerFile(), "UTF-8" ),
+                      index.getFingerprint( handler.getMarkerFile().getName() ) );
+
+        // the fingerprints are read with the directory, the markers are not read again
+        index.load();
+        assertTrue( handler.getMarkerFile().delete() );
+        assertTrue( handler.isMarkerCurrent() );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+    }
+
     public void testMarkerFileException()
     {
         // this stub wraps the file with an object to throw exceptions
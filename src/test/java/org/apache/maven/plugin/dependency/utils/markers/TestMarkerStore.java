@@ -0,0 +1,114 @@
+package org.apache.maven.plugin.dependency.utils.markers;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.dependency.testUtils.DependencyTestUtils;
+
+public class TestMarkerStore
+    extends TestCase
+{
+    File markersDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        markersDirectory = new File( "target/markerstore/" );
+        DependencyTestUtils.removeDirectory( markersDirectory );
+    }
+
+    protected void tearDown()
+        throws IOException
+    {
+        DependencyTestUtils.removeDirectory( markersDirectory );
+    }
+
+    public void testSaveAndLoad()
+        throws IOException
+    {
+        MarkerStore store = new MarkerStore( markersDirectory );
+        store.load();
+        assertFalse( store.contains( "test-1-jar-1.1.marker" ) );
+        assertEquals( 0, store.getTimestamp( "test-1-jar-1.1.marker" ) );
+
+        store.set( "test-1-jar-1.1.marker", 1000 );
+        store.set( "test-2-war-1.1.marker", 2000 );
+        store.set( "test-3-zip-1.1.marker", 3000 );
+        assertTrue( store.remove( "test-3-zip-1.1.marker" ) );
+        assertFalse( store.remove( "test-3-zip-1.1.marker" ) );
+        store.save();
+
+        assertEquals( 1, markersDirectory.list().length );
+
+        store = new MarkerStore( markersDirectory );
+        store.load();
+        assertEquals( 1000, store.getTimestamp( "test-1-jar-1.1.marker" ) );
+        assertEquals( 2000, store.getTimestamp( "test-2-war-1.1.marker" ) );
+        assertFalse( store.contains( "test-3-zip-1.1.marker" ) );
+    }
+
+    public void testFingerprints()
+        throws IOException
+    {
+        MarkerStore store = new MarkerStore( markersDirectory );
+        store.set( "test-1-jar-1.1.marker", 1000, "0123abcd" );
+        store.set( "test-2-war-1.1.marker", 2000 );
+        store.save();
+
+        store = new MarkerStore( markersDirectory );
+        store.load();
+        assertEquals( "0123abcd", store.getFingerprint( "test-1-jar-1.1.marker" ) );
+        assertEquals( 1000, store.getTimestamp( "test-1-jar-1.1.marker" ) );
+        assertNull( store.getFingerprint( "test-2-war-1.1.marker" ) );
+        assertTrue( store.contains( "test-2-war-1.1.marker" ) );
+
+        store.remove( "test-1-jar-1.1.marker" );
+        assertNull( store.getFingerprint( "test-1-jar-1.1.marker" ) );
+    }
+
+    public void testUnmodifiedStoreIsNotWritten()
+        throws IOException
+    {
+        MarkerStore store = new MarkerStore( markersDirectory );
+        store.load();
+        store.save();
+        assertFalse( store.getFile().exists() );
+    }
+
+    public void testDamagedLinesAreIgnored()
+        throws IOException
+    {
+        markersDirectory.mkdirs();
+        Files.write( new File( markersDirectory, MarkerStore.FILE_NAME ).toPath(),
+                     "# header\n1000 good.marker\nbroken\nabc bad.marker\n".getBytes( "UTF-8" ) );
+
+        MarkerStore store = new MarkerStore( markersDirectory );
+        store.load();
+        assertEquals( 1000, store.getTimestamp( "good.marker" ) );
+        assertFalse( store.contains( "bad.marker" ) );
+    }
+}
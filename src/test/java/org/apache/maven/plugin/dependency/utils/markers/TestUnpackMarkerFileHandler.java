@@ -33,6 +33,7 @@ import org.apache.maven.plugin.dependency.testUtils.stubs.StubUnpackFileMarkerHa
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
 import org.apache.maven.plugin.testing.SilentLog;
+import org.codehaus.plexus.util.FileUtils;
 
 public class TestUnpackMarkerFileHandler
 	extends AbstractMojoTestCase
@@ -155,7 +156,11 @@ public class TestUnpackMarkerFileHandler
         handler.setMarker();
         assertFalse( handler.isMarkerOlder( theArtifact ) );
 
+        // the recorded fingerprint tells, not the time
         theFile.setLastModified( theFile.lastModified() + 60000 );
+        assertFalse( handler.isMarkerOlder( theArtifact ) );
+        FileUtils.fileWrite( theFile, "UTF-8", "changed" );
+        theFile.setLastModified( theFile.lastModified() - 120000 );
         assertTrue( handler.isMarkerOlder( theArtifact ) );
 
         theFile.delete();
@@ -218,8 +223,7 @@ public class TestUnpackMarkerFileHandler
         handler.setMarker();
         assertTrue( handler.isMarkerSet() );
         assertTrue( handle.exists() );
-        String hashCode = "" + ( 0 + "**/*.xml".hashCode() );
-        assertTrue( handle.getName().indexOf( hashCode ) > -1 );
+        assertFalse( handle.getName().equals( getMarkerName( artifactItems.get( 0 ) ) ) );
 
         handle.delete();
         assertFalse( handler.isMarkerSet() );
@@ -242,8 +246,7 @@ public class TestUnpackMarkerFileHandler
 	    handler.setMarker();
 	    assertTrue( handler.isMarkerSet() );
 	    assertTrue( handle.exists() );
-	    String hashCode = "" + ( 0 + "**/*.class".hashCode() );
-	    assertTrue( handle.getName().indexOf( hashCode ) > -1 );
+	    assertFalse( handle.getName().equals( getMarkerName( artifactItems.get( 0 ) ) ) );
 	
 	    handle.delete();
 	    assertFalse( handler.isMarkerSet() );
@@ -266,8 +269,7 @@ public class TestUnpackMarkerFileHandler
 	    handler.setMarker();
 	    assertTrue( handler.isMarkerSet() );
 	    assertTrue( handle.exists() );
-	    String hashCode = "" + ( 0 + "**/*.class".hashCode() + "**/*.xml".hashCode() );
-	    assertTrue( handle.getName().indexOf( hashCode ) > -1 );
+	    assertFalse( handle.getName().equals( getMarkerName( artifactItems.get( 0 ) ) ) );
 	
 	    handle.delete();
 	    assertFalse( handler.isMarkerSet() );
@@ -278,6 +280,70 @@ public class TestUnpackMarkerFileHandler
 	    handler.clearMarker();
 	    assertFalse( handle.exists() );
 	}
-}
 
+    public void testMarkerNames()
+    {
+        ArtifactItem item = artifactItems.get( 1 );
+        String name = getMarkerName( item );
+
+        // "Aa" and "BB" have the same hashCode
+        item.setIncludes( "Aa" );
+        String aa = getMarkerName( item );
+        item.setIncludes( "BB" );
+        assertFalse( aa.equals( getMarkerName( item ) ) );
+
+        item.setIncludes( "**/*.xml" );
+        assertEquals( name, getMarkerName( item ) );
+        item.setOutputDirectory( new File( testDir, "other" ) );
+        assertFalse( name.equals( getMarkerName( item ) ) );
+    }
+
+    public void testMarkerFingerprint()
+        throws MojoExecutionException, IOException
+    {
+        File theFile = new File( outputFolder, "theFile.jar" );
+        outputFolder.mkdirs();
+        FileUtils.fileWrite( theFile.getPath(), "first" );
+        ArtifactItem theArtifactItem = artifactItems.get( 1 );
+        theArtifactItem.getArtifact().setFile( theFile );
+        UnpackFileMarkerHandler handler = new UnpackFileMarkerHandler( theArtifactItem, this.outputFolder );
+        assertFalse( handler.isMarkerCurrent() );
+        handler.setMarker();
+        assertTrue( handler.isMarkerCurrent() );
+        assertTrue( handler.getMarkerFile().length() > 0 );
+
+        assertFalse( handler.isMarkerOlder( theArtifactItem.getArtifact() ) );
+
+        // same time, other content
+        long time = theFile.lastModified();
+        FileUtils.fileWrite( theFile.getPath(), "second" );
+        theFile.setLastModified( time );
+        assertTrue( handler.isMarkerCurrent() );
+        assertTrue( handler.isMarkerOlder( theArtifactItem.getArtifact() ) );
+        handler.setMarker();
+        assertFalse( handler.isMarkerOlder( theArtifactItem.getArtifact() ) );
+
+        // other options, under the same marker
+        UnpackFileMarkerHandler other = new UnpackFileMarkerHandler( theArtifactItem, this.outputFolder )
+        {
+            protected String getIncludes()
+            {
+                return "**/*.class";
+            }
+        };
+        assertTrue( other.isMarkerSet() );
+        assertFalse( other.isMarkerCurrent() );
+
+        // a marker without fingerprint
+        FileUtils.fileWrite( handler.getMarkerFile().getPath(), "" );
+        assertTrue( other.isMarkerCurrent() );
 
+        handler.clearMarker();
+        assertFalse( handler.isMarkerCurrent() );
+    }
+
+    private String getMarkerName( ArtifactItem item )
+    {
+        return new UnpackFileMarkerHandler( item, outputFolder ).getMarkerFile().getName();
+    }
+}